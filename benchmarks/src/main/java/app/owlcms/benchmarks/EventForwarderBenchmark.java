@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.group.Group;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.fieldofplay.FieldOfPlay;
+import app.owlcms.fieldofplay.ProxyAthleteTimer;
+import app.owlcms.fieldofplay.ProxyBreakTimer;
+import app.owlcms.init.OwlcmsSession;
+import app.owlcms.uievents.EventForwarder;
+import app.owlcms.uievents.UIEvent;
+
+/**
+ * Building the update sent to the remote results site after every change on the field of play.
+ *
+ * The forwarder receives the lifting order event as it does from the field of play; the post itself goes to a local
+ * {@link RemoteSiteStub} on the sending thread and is not measured.
+ *
+ * @author owlcms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventForwarderBenchmark {
+
+    @Param({ "50", "500", "5000" })
+    public int athletes;
+
+    private UIEvent.LiftingOrderUpdated event;
+    private EventForwarder forwarder;
+    private RemoteSiteStub remoteSite;
+
+    /**
+     * The scoreboard tables and the parameters of the post, as done for each lifting order change.
+     */
+    @Benchmark
+    public EventForwarder liftingOrderUpdated() {
+        forwarder.slaveOrderUpdated(event);
+        return forwarder;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<Athlete> allAthletes = SyntheticCompetition.create(athletes);
+        remoteSite = new RemoteSiteStub();
+        remoteSite.start();
+        Group group = SyntheticCompetition.largestGroup(allAthletes);
+        List<Athlete> groupAthletes = SyntheticCompetition.inGroup(allAthletes, group);
+        FieldOfPlay fop = FieldOfPlay.mockFieldOfPlay(groupAthletes, new ProxyAthleteTimer(null),
+                new ProxyBreakTimer(null));
+        OwlcmsSession.setFop(fop);
+        forwarder = new EventForwarder(fop);
+        event = new UIEvent.LiftingOrderUpdated(fop.getCurAthlete(), null, fop.getPreviousAthlete(), null,
+                fop.getLiftingOrder(), fop.getDisplayOrder(), fop.getTimeAllowed(), true, false, this, false, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        remoteSite.stop();
+        JPAService.close();
+    }
+}
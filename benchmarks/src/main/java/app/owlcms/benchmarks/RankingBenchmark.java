@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.athleteSort.RankingIndex;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.group.Group;
+import app.owlcms.data.jpa.JPAService;
+
+/**
+ * Sorting and ranking done by the field of play after every lift.
+ *
+ * The sorting benchmarks use the largest group; the ranking benchmarks use everybody in the categories of that group,
+ * as the field of play does. The ranking index benchmarks measure a full reload, and the refresh done after a single
+ * athlete has been saved.
+ *
+ * @author owlcms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RankingBenchmark {
+
+    @Param({ "50", "500", "5000" })
+    public int athletes;
+
+    private List<Athlete> allAthletes;
+    private Group group;
+    private List<Athlete> groupAthletes;
+    private RankingIndex rankingIndex;
+    private List<Athlete> rankedAthletes;
+    private Long savedAthleteId;
+
+    @Benchmark
+    public List<Athlete> assignCategoryRanks() {
+        return AthleteSorter.assignCategoryRanks(group);
+    }
+
+    @Benchmark
+    public List<Athlete> assignCategoryRanksInMemory() {
+        List<Athlete> sorted = new ArrayList<>(rankedAthletes);
+        AthleteSorter.assignCategoryRanks(sorted, Ranking.TOTAL);
+        return sorted;
+    }
+
+    @Benchmark
+    public TreeMap<Category, TreeSet<Athlete>> computeMedals() {
+        return Competition.getCurrent().computeMedals(group, rankedAthletes);
+    }
+
+    @Benchmark
+    public List<Athlete> displayOrderCopy() {
+        return AthleteSorter.displayOrderCopy(groupAthletes);
+    }
+
+    @Benchmark
+    public Competition globalRankings() {
+        Competition competition = Competition.getCurrent();
+        competition.globalRankings();
+        return competition;
+    }
+
+    @Benchmark
+    public List<Athlete> liftingOrderCopy() {
+        return AthleteSorter.liftingOrderCopy(groupAthletes);
+    }
+
+    /**
+     * Reload of all the weighed-in athletes, as after a group switch.
+     */
+    @Benchmark
+    public RankingIndex rankingIndexRebuild() {
+        rankingIndex.invalidate();
+        JPAService.runInTransaction(em -> {
+            rankingIndex.refresh(em);
+            return null;
+        });
+        return rankingIndex;
+    }
+
+    /**
+     * Repositioning one athlete of the group, as after a lift.
+     */
+    @Benchmark
+    public RankingIndex rankingIndexRefresh() {
+        rankingIndex.athleteModified(savedAthleteId);
+        JPAService.runInTransaction(em -> {
+            rankingIndex.refresh(em);
+            return null;
+        });
+        return rankingIndex;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        allAthletes = SyntheticCompetition.create(athletes);
+        group = SyntheticCompetition.largestGroup(allAthletes);
+        groupAthletes = SyntheticCompetition.inGroup(allAthletes, group);
+        rankedAthletes = AthleteRepository.findAthletesForGlobalRanking(group);
+        savedAthleteId = groupAthletes.get(0).getId();
+        rankingIndex = new RankingIndex();
+        rankingIndexRebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JPAService.close();
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.records.RecordEvent;
+import app.owlcms.data.records.RecordRepository;
+import elemental.json.JsonValue;
+
+/**
+ * Building the record table shown on the scoreboards for the current athlete.
+ *
+ * The size is the number of records that apply to the athlete: several federations, age groups and body weight
+ * categories, with older records superseded by newer ones.
+ *
+ * @author owlcms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordJsonBenchmark {
+
+    private static final String[] FEDERATIONS = { "WFED", "CONT", "NAT", "PROV" };
+    private static final int[][] AGE_GROUPS = { { 13, 17 }, { 15, 20 }, { 18, 999 }, { 35, 39 }, { 40, 44 } };
+    private static final int[] CATEGORIES = { 55, 61, 67, 73, 81, 89, 96, 102, 109, 999 };
+    private static final Ranking[] LIFTS = { Ranking.SNATCH, Ranking.CLEANJERK, Ranking.TOTAL };
+
+    @Param({ "50", "500", "5000" })
+    public int records;
+
+    private List<RecordEvent> recordEvents;
+
+    @Benchmark
+    public JsonValue buildRecordJson() {
+        return RecordRepository.buildRecordJson(recordEvents, 120, 150, 270);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // translations are used for the column titles
+        SyntheticCompetition.init();
+        recordEvents = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            int f = i % FEDERATIONS.length;
+            int ag = (i / FEDERATIONS.length) % AGE_GROUPS.length;
+            int cat = (i / (FEDERATIONS.length * AGE_GROUPS.length)) % CATEGORIES.length;
+            int lift = (i / (FEDERATIONS.length * AGE_GROUPS.length * CATEGORIES.length)) % LIFTS.length;
+            int generation = i / (FEDERATIONS.length * AGE_GROUPS.length * CATEGORIES.length * LIFTS.length);
+
+            RecordEvent re = new RecordEvent();
+            re.setFileName(f + "_" + FEDERATIONS[f] + ".xlsx");
+            re.setRecordName(FEDERATIONS[f]);
+            re.setRecordFederation(FEDERATIONS[f]);
+            re.setGender(Gender.M);
+            re.setAgeGrp("AG" + AGE_GROUPS[ag][0]);
+            re.setAgeGrpLower(AGE_GROUPS[ag][0]);
+            re.setAgeGrpUpper(AGE_GROUPS[ag][1]);
+            re.setBwCatLower(cat == 0 ? 0 : CATEGORIES[cat - 1]);
+            re.setBwCatUpper(CATEGORIES[cat]);
+            re.setBwCatString(CATEGORIES[cat] == 999 ? ">" + CATEGORIES[cat - 1] : Integer.toString(CATEGORIES[cat]));
+            re.setRecordLift(LIFTS[lift]);
+            // older records are lighter
+            double base = LIFTS[lift] == Ranking.TOTAL ? 250 : (LIFTS[lift] == Ranking.SNATCH ? 110 : 140);
+            re.setRecordValue(Double.valueOf(base + cat * 5 - generation));
+            recordEvents.add(re);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JPAService.close();
+    }
+}
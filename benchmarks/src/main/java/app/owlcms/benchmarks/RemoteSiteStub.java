@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import com.sun.net.httpserver.HttpServer;
+
+import app.owlcms.data.config.Config;
+import app.owlcms.uievents.DeltaEncoder;
+
+/**
+ * Local stand-in for the remote results site: accepts every post, so the field of play builds and sends its updates
+ * as it does in a competition.
+ *
+ * @author owlcms
+ */
+public class RemoteSiteStub {
+
+    private HttpServer server;
+
+    /**
+     * Start listening on a free local port and make it the remote site of the configuration.
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream is = exchange.getRequestBody()) {
+                is.readAllBytes();
+            }
+            exchange.getResponseHeaders().add(DeltaEncoder.DELTA_HEADER, "1");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        Config.getCurrent().setPublicResultsURL("http://localhost:" + server.getAddress().getPort());
+        Config.getCurrent().setUpdatekey("benchmark");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        Config.getCurrent().setPublicResultsURL(null);
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.benchmarks;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.group.Group;
+import app.owlcms.data.jpa.DemoData;
+import app.owlcms.data.jpa.JPAService;
+
+/**
+ * In-memory competition for the benchmarks, built like the demonstration data, with lifts already done.
+ *
+ * @author owlcms
+ */
+public class SyntheticCompetition {
+
+    /**
+     * DemoData creates about this many athletes for each athlete requested in its largest group, plus a second group
+     * of at most 20.
+     */
+    private static final double DEMO_ATHLETES_PER_UNIT = 2.425;
+
+    /**
+     * Create a fresh in-memory database with about nbAthletes athletes. Three quarters of the athletes have done all
+     * their lifts, the others have only done their snatches.
+     *
+     * @param nbAthletes the approximate total number of athletes
+     * @return the athletes, with their participations loaded
+     */
+    public static List<Athlete> create(int nbAthletes) {
+        init();
+        int perGroup = (int) Math.max(1, Math.round((nbAthletes - 20) / DEMO_ATHLETES_PER_UNIT));
+        DemoData.insertInitialData(perGroup, EnumSet.of(AgeDivision.DEFAULT));
+
+        JPAService.runInTransaction(em -> {
+            Random r = new Random(0);
+            int i = 0;
+            for (Athlete a : AthleteRepository.doFindAll(em)) {
+                lift(a, r, i++ % 4 != 3);
+                em.merge(a);
+            }
+            return null;
+        });
+        return JPAService.runInTransaction(em -> AthleteRepository.doFindAllForRankingIndex(em));
+    }
+
+    /**
+     * Create a fresh, empty in-memory database and the configuration needed by the translations.
+     */
+    public static void init() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+    }
+
+    /**
+     * @param athletes all the athletes
+     * @return the group with the most athletes
+     */
+    public static Group largestGroup(List<Athlete> athletes) {
+        Map<Group, Long> counts = athletes.stream()
+                .filter(a -> a.getGroup() != null)
+                .collect(Collectors.groupingBy(Athlete::getGroup, Collectors.counting()));
+        return counts.entrySet().stream()
+                .max(Comparator.comparing(Map.Entry::getValue))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    /**
+     * @param athletes all the athletes
+     * @param g        a group
+     * @return the athletes in the group
+     */
+    public static List<Athlete> inGroup(List<Athlete> athletes, Group g) {
+        return athletes.stream()
+                .filter(a -> a.getGroup() != null && a.getGroup().getId().equals(g.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private static String attempt(Random r, int weight) {
+        return (r.nextDouble() < 0.3 ? "-" : "") + weight;
+    }
+
+    private static void lift(Athlete a, Random r, boolean cleanJerk) {
+        a.setValidation(false);
+        int snatch = Integer.parseInt(a.getSnatch1Declaration());
+        a.setSnatch1ActualLift(attempt(r, snatch));
+        a.setSnatch2Declaration(Integer.toString(snatch + 2));
+        a.setSnatch2ActualLift(attempt(r, snatch + 2));
+        a.setSnatch3Declaration(Integer.toString(snatch + 4));
+        a.setSnatch3ActualLift(attempt(r, snatch + 4));
+        if (cleanJerk) {
+            int cj = Integer.parseInt(a.getCleanJerk1Declaration());
+            a.setCleanJerk1ActualLift(attempt(r, cj));
+            a.setCleanJerk2Declaration(Integer.toString(cj + 3));
+            a.setCleanJerk2ActualLift(attempt(r, cj + 3));
+            a.setCleanJerk3Declaration(Integer.toString(cj + 5));
+            a.setCleanJerk3ActualLift(attempt(r, cj + 5));
+        }
+        a.setValidation(true);
+    }
+}
@@ -116,7 +116,12 @@ public class DownloadButtonFactory {
                 try {
                     // Competition.setTemplateFileName(...)
                     String fileName = e.getValue().getFileName();
-                    fileNameSetter.accept(Competition.getCurrent(), fileName);
+                    // opening the dialog selects the current template; only save an actual change, since saving
+                    // the competition invalidates the cached reports and rankings
+                    boolean changed = !fileName.equals(fileNameGetter.apply(Competition.getCurrent()));
+                    if (changed) {
+                        fileNameSetter.accept(Competition.getCurrent(), fileName);
+                    }
                     xlsWriter = streamSourceSupplier.get();
                     logger.debug("(2) xlsWriter {} {}", xlsWriter, fileName);
 
@@ -129,9 +134,12 @@ public class DownloadButtonFactory {
 
                     InputStream is = res.getStream();
                     xlsWriter.setInputStream(is);
+                    xlsWriter.setTemplateName(resourceDirectoryLocation + "/" + fileName);
                     logger.debug("(2) filter present = {}", xlsWriter.getGroup());
 
-                    CompetitionRepository.save(Competition.getCurrent());
+                    if (changed) {
+                        CompetitionRepository.save(Competition.getCurrent());
+                    }
                     fileName = getTargetFileName();
                     logger.debug("(2) filename final = {}", fileName);
                     wrappedButton.setHref(new StreamResource(fileName, xlsWriter));
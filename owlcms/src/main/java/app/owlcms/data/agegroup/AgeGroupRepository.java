@@ -25,10 +25,12 @@ import org.slf4j.LoggerFactory;
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.category.Participation;
 import app.owlcms.data.competition.Competition;
+import app.owlcms.data.competition.ReportingService;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.spreadsheet.PAthlete;
@@ -399,6 +401,8 @@ public class AgeGroupRepository {
             }
             return null;
         });
+        RankingIndex.getCurrent().invalidate();
+        ReportingService.getCurrent().dataChanged();
 
         return nAgeGroup;
     }
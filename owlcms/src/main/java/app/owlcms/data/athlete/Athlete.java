@@ -7,6 +7,31 @@
 
 package app.owlcms.data.athlete;
 
+import static app.owlcms.data.athlete.LiftValues.CJ1_ACTUAL;
+import static app.owlcms.data.athlete.LiftValues.CJ1_CHANGE1;
+import static app.owlcms.data.athlete.LiftValues.CJ1_CHANGE2;
+import static app.owlcms.data.athlete.LiftValues.CJ1_DECLARATION;
+import static app.owlcms.data.athlete.LiftValues.CJ2_ACTUAL;
+import static app.owlcms.data.athlete.LiftValues.CJ2_CHANGE1;
+import static app.owlcms.data.athlete.LiftValues.CJ2_CHANGE2;
+import static app.owlcms.data.athlete.LiftValues.CJ2_DECLARATION;
+import static app.owlcms.data.athlete.LiftValues.CJ3_ACTUAL;
+import static app.owlcms.data.athlete.LiftValues.CJ3_CHANGE1;
+import static app.owlcms.data.athlete.LiftValues.CJ3_CHANGE2;
+import static app.owlcms.data.athlete.LiftValues.CJ3_DECLARATION;
+import static app.owlcms.data.athlete.LiftValues.SNATCH1_ACTUAL;
+import static app.owlcms.data.athlete.LiftValues.SNATCH1_CHANGE1;
+import static app.owlcms.data.athlete.LiftValues.SNATCH1_CHANGE2;
+import static app.owlcms.data.athlete.LiftValues.SNATCH1_DECLARATION;
+import static app.owlcms.data.athlete.LiftValues.SNATCH2_ACTUAL;
+import static app.owlcms.data.athlete.LiftValues.SNATCH2_CHANGE1;
+import static app.owlcms.data.athlete.LiftValues.SNATCH2_CHANGE2;
+import static app.owlcms.data.athlete.LiftValues.SNATCH2_DECLARATION;
+import static app.owlcms.data.athlete.LiftValues.SNATCH3_ACTUAL;
+import static app.owlcms.data.athlete.LiftValues.SNATCH3_CHANGE1;
+import static app.owlcms.data.athlete.LiftValues.SNATCH3_CHANGE2;
+import static app.owlcms.data.athlete.LiftValues.SNATCH3_DECLARATION;
+
 import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,8 +59,9 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Transient;
 
-import org.apache.commons.codec.binary.StringUtils;
 import org.apache.commons.lang3.ObjectUtils;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
@@ -54,6 +80,7 @@ import app.owlcms.data.category.Participation;
 import app.owlcms.data.category.RobiCategories;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.group.Group;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.data.jpa.LocalDateAttributeConverter;
 import app.owlcms.fieldofplay.FOPState;
 import app.owlcms.fieldofplay.FieldOfPlay;
@@ -94,6 +121,7 @@ import ch.qos.logback.classic.Logger;
 //must be listed in app.owlcms.data.jpa.JPAService.entityClassNames()
 @Entity
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ATHLETE)
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @JsonIgnoreProperties(ignoreUnknown = true, value = { "hibernateLazyInitializer", "logger" })
 @JsonPropertyOrder({ "id", "participations", "category" })
@@ -245,13 +273,12 @@ public class Athlete {
      * @return the int
      */
     public static int zeroIfInvalid(String value) {
-        try {
-            return Integer.valueOf(value);
-        } catch (NumberFormatException nfe) {
-            return 0;
-        }
+        return LiftValues.parseOrZero(value);
     }
 
+    @Transient
+    private final LiftValues liftValues = new LiftValues();
+
     @Transient
     protected final Logger timingLogger = (Logger) LoggerFactory.getLogger("TimingLogger");
 
@@ -340,9 +367,17 @@ public class Athlete {
     @Transient
     private final Level NORMAL_LEVEL = Level.INFO;
     @OneToMany(mappedBy = "athlete", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.ATHLETE_PARTICIPATIONS)
     @JsonProperty(index = 200)
     private List<Participation> participations = new ArrayList<>();
 
+    /**
+     * participation for the current category, cleared when the category or the participations change.
+     */
+    @Transient
+    @JsonIgnore
+    private transient Participation mainRankings;
+
     /**
      * body weight inferred from category, used until real bodyweight is known.
      */
@@ -432,6 +467,7 @@ public class Athlete {
         removeCurrentAthleteCategoryParticipation(category, participations);
         participations.add(participation);
         setParticipations(participations);
+        mainRankings = null;
 
         List<Participation> categoryParticipations = category.getParticipations();
         if (categoryParticipations == null) {
@@ -443,6 +479,7 @@ public class Athlete {
     }
 
     public void checkParticipations() {
+        mainRankings = null;
         for (Iterator<Participation> iterator = participations.iterator(); iterator.hasNext();) {
             Participation p = iterator.next();
             if (p.getAthlete() == null || p.getAthlete().getId() == null || p.getCategory() == null
@@ -652,34 +689,56 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public Integer getActualLift(int liftNo) {
-        try {
-            String value = null;
-            switch (liftNo) {
-            case 1:
-                value = this.getSnatch1ActualLift();
-                break;
-            case 2:
-                value = this.getSnatch2ActualLift();
-                break;
-            case 3:
-                value = this.getSnatch3ActualLift();
-                break;
-            case 4:
-                value = this.getCleanJerk1ActualLift();
-                break;
-            case 5:
-                value = this.getCleanJerk2ActualLift();
-                break;
-            case 6:
-                value = this.getCleanJerk3ActualLift();
-                break;
-            default:
-                value = null;
-                break;
-            }
-            return value == null ? null : Integer.valueOf(value);
-        } catch (NumberFormatException e) {
-            LoggerUtils.logError(logger, e);
+        String value = null;
+        switch (liftNo) {
+        case 1:
+            value = this.getSnatch1ActualLift();
+            break;
+        case 2:
+            value = this.getSnatch2ActualLift();
+            break;
+        case 3:
+            value = this.getSnatch3ActualLift();
+            break;
+        case 4:
+            value = this.getCleanJerk1ActualLift();
+            break;
+        case 5:
+            value = this.getCleanJerk2ActualLift();
+            break;
+        case 6:
+            value = this.getCleanJerk3ActualLift();
+            break;
+        default:
+            value = null;
+            break;
+        }
+        return value == null ? null : getActualLiftValue(liftNo);
+    }
+
+    /**
+     * Same as {@link #getActualLift(int)}, without boxing; an empty attempt is 0. Used by the comparators.
+     *
+     * @param liftNo 1 to 6
+     * @return the weight lifted (negative if failed), 0 if not done
+     */
+    @Transient
+    @JsonIgnore
+    public int getActualLiftValue(int liftNo) {
+        switch (liftNo) {
+        case 1:
+            return liftValue(SNATCH1_ACTUAL, getSnatch1ActualLift());
+        case 2:
+            return liftValue(SNATCH2_ACTUAL, getSnatch2ActualLift());
+        case 3:
+            return liftValue(SNATCH3_ACTUAL, getSnatch3ActualLift());
+        case 4:
+            return liftValue(CJ1_ACTUAL, getCleanJerk1ActualLift());
+        case 5:
+            return liftValue(CJ2_ACTUAL, getCleanJerk2ActualLift());
+        case 6:
+            return liftValue(CJ3_ACTUAL, getCleanJerk3ActualLift());
+        default:
             return 0;
         }
     }
@@ -724,22 +783,22 @@ public class Athlete {
     @JsonIgnore
     public int getActuallyAttemptedLifts() {
         int i = 0;
-        if (zeroIfInvalid(snatch1ActualLift) != 0) {
+        if (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) != 0) {
             i++;
         }
-        if (zeroIfInvalid(snatch2ActualLift) != 0) {
+        if (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) != 0) {
             i++;
         }
-        if (zeroIfInvalid(snatch3ActualLift) != 0) {
+        if (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) != 0) {
             i++;
         }
-        if (zeroIfInvalid(cleanJerk1ActualLift) != 0) {
+        if (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) != 0) {
             i++;
         }
-        if (zeroIfInvalid(cleanJerk2ActualLift) != 0) {
+        if (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) != 0) {
             i++;
         }
-        if (zeroIfInvalid(cleanJerk3ActualLift) != 0) {
+        if (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) != 0) {
             i++;
         }
         return i; // long ago
@@ -775,9 +834,9 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public Integer getBestCleanJerk() {
-        final int cj1 = zeroIfInvalid(cleanJerk1ActualLift);
-        final int cj2 = zeroIfInvalid(cleanJerk2ActualLift);
-        final int cj3 = zeroIfInvalid(cleanJerk3ActualLift);
+        final int cj1 = liftValue(CJ1_ACTUAL, cleanJerk1ActualLift);
+        final int cj2 = liftValue(CJ2_ACTUAL, cleanJerk2ActualLift);
+        final int cj3 = liftValue(CJ3_ACTUAL, cleanJerk3ActualLift);
         return max(0, cj1, cj2, cj3);
     }
 
@@ -791,13 +850,13 @@ public class Athlete {
     public int getBestCleanJerkAttemptNumber() {
         int referenceValue = getBestCleanJerk();
         if (referenceValue > 0) {
-            if (zeroIfInvalid(cleanJerk3ActualLift) == referenceValue) {
+            if (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) == referenceValue) {
                 return 6;
             }
-            if (zeroIfInvalid(cleanJerk2ActualLift) == referenceValue) {
+            if (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) == referenceValue) {
                 return 5;
             }
-            if (zeroIfInvalid(cleanJerk1ActualLift) == referenceValue) {
+            if (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) == referenceValue) {
                 return 4;
             }
         }
@@ -814,25 +873,25 @@ public class Athlete {
     public int getBestResultAttemptNumber() {
         int referenceValue = getBestCleanJerk();
         if (referenceValue > 0) {
-            if (zeroIfInvalid(cleanJerk3ActualLift) == referenceValue) {
+            if (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) == referenceValue) {
                 return 6;
             }
-            if (zeroIfInvalid(cleanJerk2ActualLift) == referenceValue) {
+            if (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) == referenceValue) {
                 return 5;
             }
-            if (zeroIfInvalid(cleanJerk1ActualLift) == referenceValue) {
+            if (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) == referenceValue) {
                 return 4;
             }
         } else {
             if (referenceValue > 0) {
                 referenceValue = getBestSnatch();
-                if (zeroIfInvalid(snatch3ActualLift) == referenceValue) {
+                if (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) == referenceValue) {
                     return 3;
                 }
-                if (zeroIfInvalid(snatch2ActualLift) == referenceValue) {
+                if (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) == referenceValue) {
                     return 2;
                 }
-                if (zeroIfInvalid(snatch1ActualLift) == referenceValue) {
+                if (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) == referenceValue) {
                     return 1;
                 }
             }
@@ -848,9 +907,9 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public Integer getBestSnatch() {
-        final int sn1 = zeroIfInvalid(snatch1ActualLift);
-        final int sn2 = zeroIfInvalid(snatch2ActualLift);
-        final int sn3 = zeroIfInvalid(snatch3ActualLift);
+        final int sn1 = liftValue(SNATCH1_ACTUAL, snatch1ActualLift);
+        final int sn2 = liftValue(SNATCH2_ACTUAL, snatch2ActualLift);
+        final int sn3 = liftValue(SNATCH3_ACTUAL, snatch3ActualLift);
         return max(0, sn1, sn2, sn3);
     }
 
@@ -864,13 +923,13 @@ public class Athlete {
     public int getBestSnatchAttemptNumber() {
         int referenceValue = getBestSnatch();
         if (referenceValue > 0) {
-            if (zeroIfInvalid(snatch3ActualLift) == referenceValue) {
+            if (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) == referenceValue) {
                 return 3;
             }
-            if (zeroIfInvalid(snatch2ActualLift) == referenceValue) {
+            if (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) == referenceValue) {
                 return 2;
             }
-            if (zeroIfInvalid(snatch1ActualLift) == referenceValue) {
+            if (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) == referenceValue) {
                 return 1;
             }
         }
@@ -1063,7 +1122,7 @@ public class Athlete {
      * @return the clean jerk 2 automatic progression
      */
     public String getCleanJerk2AutomaticProgression() {
-        final int prevVal = zeroIfInvalid(cleanJerk1ActualLift);
+        final int prevVal = liftValue(CJ1_ACTUAL, cleanJerk1ActualLift);
         return doAutomaticProgression(prevVal);
     }
 
@@ -1129,7 +1188,7 @@ public class Athlete {
      * @return the clean jerk 3 automatic progression
      */
     public String getCleanJerk3AutomaticProgression() {
-        final int prevVal = zeroIfInvalid(cleanJerk2ActualLift);
+        final int prevVal = liftValue(CJ2_ACTUAL, cleanJerk2ActualLift);
         return doAutomaticProgression(prevVal);
     }
 
@@ -1225,8 +1284,9 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public int getCleanJerkTotal() {
-        final int cleanJerkTotal = max(0, zeroIfInvalid(cleanJerk1ActualLift), zeroIfInvalid(cleanJerk2ActualLift),
-                zeroIfInvalid(cleanJerk3ActualLift));
+        final int cleanJerkTotal = max(0, liftValue(CJ1_ACTUAL, cleanJerk1ActualLift),
+                liftValue(CJ2_ACTUAL, cleanJerk2ActualLift),
+                liftValue(CJ3_ACTUAL, cleanJerk3ActualLift));
         return cleanJerkTotal;
     }
 
@@ -1450,17 +1510,17 @@ public class Athlete {
     @JsonIgnore
     public LocalDateTime getFirstAttemptedLiftTime() {
         LocalDateTime attemptTime = LocalDateTime.MAX;// forever in the future
-        if (zeroIfInvalid(snatch1ActualLift) != 0) {
+        if (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) != 0) {
             attemptTime = getSnatch1LiftTime();
-        } else if (zeroIfInvalid(snatch2ActualLift) != 0) {
+        } else if (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) != 0) {
             attemptTime = getSnatch2LiftTime();
-        } else if (zeroIfInvalid(snatch3ActualLift) != 0) {
+        } else if (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) != 0) {
             attemptTime = getSnatch3LiftTime();
-        } else if (zeroIfInvalid(cleanJerk1ActualLift) != 0) {
+        } else if (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) != 0) {
             attemptTime = getCleanJerk1LiftTime();
-        } else if (zeroIfInvalid(cleanJerk2ActualLift) != 0) {
+        } else if (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) != 0) {
             attemptTime = getCleanJerk2LiftTime();
-        } else if (zeroIfInvalid(cleanJerk3ActualLift) != 0) {
+        } else if (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) != 0) {
             attemptTime = getCleanJerk3LiftTime();
         }
         return attemptTime;
@@ -1560,22 +1620,22 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public LocalDateTime getLastAttemptedLiftTime() {
-        if (zeroIfInvalid(cleanJerk3ActualLift) != 0) {
+        if (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) != 0) {
             return getCleanJerk3LiftTime();
         }
-        if (zeroIfInvalid(cleanJerk2ActualLift) != 0) {
+        if (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) != 0) {
             return getCleanJerk2LiftTime();
         }
-        if (zeroIfInvalid(cleanJerk1ActualLift) != 0) {
+        if (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) != 0) {
             return getCleanJerk1LiftTime();
         }
-        if (zeroIfInvalid(snatch3ActualLift) != 0) {
+        if (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) != 0) {
             return getSnatch3LiftTime();
         }
-        if (zeroIfInvalid(snatch2ActualLift) != 0) {
+        if (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) != 0) {
             return getSnatch2LiftTime();
         }
-        if (zeroIfInvalid(snatch1ActualLift) != 0) {
+        if (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) != 0) {
             return getSnatch1LiftTime();
         }
         return LocalDateTime.MIN; // long ago
@@ -1598,22 +1658,22 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public LocalDateTime getLastSuccessfulLiftTime() {
-        if (zeroIfInvalid(cleanJerk3ActualLift) > 0) {
+        if (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) > 0) {
             return getCleanJerk3LiftTime();
         }
-        if (zeroIfInvalid(cleanJerk2ActualLift) > 0) {
+        if (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) > 0) {
             return getCleanJerk2LiftTime();
         }
-        if (zeroIfInvalid(cleanJerk1ActualLift) > 0) {
+        if (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) > 0) {
             return getCleanJerk1LiftTime();
         }
-        if (zeroIfInvalid(snatch3ActualLift) > 0) {
+        if (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) > 0) {
             return getSnatch3LiftTime();
         }
-        if (zeroIfInvalid(snatch2ActualLift) > 0) {
+        if (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) > 0) {
             return getSnatch2LiftTime();
         }
-        if (zeroIfInvalid(snatch1ActualLift) > 0) {
+        if (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) > 0) {
             return getSnatch1LiftTime();
         }
         return LocalDateTime.MIN; // long ago
@@ -1663,15 +1723,25 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public Participation getMainRankings() {
+        if (category == null) {
+            return null;
+        }
+        // computed codes are interned, so they can be compared by reference
+        String catCode = category.getComputedCode();
+        Participation cached = mainRankings;
+        if (cached != null && cached.getAthlete() != null && cached.getCategory() != null
+                && cached.getCategory().getComputedCode() == catCode) {
+            return cached;
+        }
+
         Participation curRankings = null;
         List<Participation> participations2 = getParticipations();
         // logger.trace("athlete {} category {} participations {}", this, category, participations2);
         for (Participation eligible : participations2) {
             Category eligibleCat = eligible.getCategory();
-            if (category != null && eligibleCat != null) {
+            if (eligibleCat != null) {
                 String eligibleCode = eligibleCat.getComputedCode();
-                String catCode = category.getComputedCode();
-                if (StringUtils.equals(eligibleCode, catCode)) {
+                if (eligibleCode == catCode) {
                     curRankings = eligible;
                     // logger.trace("yep eligibleCode '{}' catCode '{}'", eligibleCode, catCode);
                     break;
@@ -1680,6 +1750,7 @@ public class Athlete {
                 }
             }
         }
+        mainRankings = curRankings;
         return curRankings;
     }
 
@@ -1897,23 +1968,29 @@ public class Athlete {
     public Integer getRequestedWeightForAttempt(int attempt) {
         switch (attempt) {
         case 1:
-            return last(zeroIfInvalid(getSnatch1AutomaticProgression()), zeroIfInvalid(snatch1Declaration),
-                    zeroIfInvalid(snatch1Change1), zeroIfInvalid(snatch1Change2));
+            return last(zeroIfInvalid(getSnatch1AutomaticProgression()),
+                    liftValue(SNATCH1_DECLARATION, snatch1Declaration), liftValue(SNATCH1_CHANGE1, snatch1Change1),
+                    liftValue(SNATCH1_CHANGE2, snatch1Change2));
         case 2:
-            return last(zeroIfInvalid(getSnatch2AutomaticProgression()), zeroIfInvalid(snatch2Declaration),
-                    zeroIfInvalid(snatch2Change1), zeroIfInvalid(snatch2Change2));
+            return last(zeroIfInvalid(getSnatch2AutomaticProgression()),
+                    liftValue(SNATCH2_DECLARATION, snatch2Declaration), liftValue(SNATCH2_CHANGE1, snatch2Change1),
+                    liftValue(SNATCH2_CHANGE2, snatch2Change2));
         case 3:
-            return last(zeroIfInvalid(getSnatch3AutomaticProgression()), zeroIfInvalid(snatch3Declaration),
-                    zeroIfInvalid(snatch3Change1), zeroIfInvalid(snatch3Change2));
+            return last(zeroIfInvalid(getSnatch3AutomaticProgression()),
+                    liftValue(SNATCH3_DECLARATION, snatch3Declaration), liftValue(SNATCH3_CHANGE1, snatch3Change1),
+                    liftValue(SNATCH3_CHANGE2, snatch3Change2));
         case 4:
-            return last(zeroIfInvalid(getCleanJerk1AutomaticProgression()), zeroIfInvalid(cleanJerk1Declaration),
-                    zeroIfInvalid(cleanJerk1Change1), zeroIfInvalid(cleanJerk1Change2));
+            return last(zeroIfInvalid(getCleanJerk1AutomaticProgression()),
+                    liftValue(CJ1_DECLARATION, cleanJerk1Declaration), liftValue(CJ1_CHANGE1, cleanJerk1Change1),
+                    liftValue(CJ1_CHANGE2, cleanJerk1Change2));
         case 5:
-            return last(zeroIfInvalid(getCleanJerk2AutomaticProgression()), zeroIfInvalid(cleanJerk2Declaration),
-                    zeroIfInvalid(cleanJerk2Change1), zeroIfInvalid(cleanJerk2Change2));
+            return last(zeroIfInvalid(getCleanJerk2AutomaticProgression()),
+                    liftValue(CJ2_DECLARATION, cleanJerk2Declaration), liftValue(CJ2_CHANGE1, cleanJerk2Change1),
+                    liftValue(CJ2_CHANGE2, cleanJerk2Change2));
         case 6:
-            return last(zeroIfInvalid(getCleanJerk3AutomaticProgression()), zeroIfInvalid(cleanJerk3Declaration),
-                    zeroIfInvalid(cleanJerk3Change1), zeroIfInvalid(cleanJerk3Change2));
+            return last(zeroIfInvalid(getCleanJerk3AutomaticProgression()),
+                    liftValue(CJ3_DECLARATION, cleanJerk3Declaration), liftValue(CJ3_CHANGE1, cleanJerk3Change1),
+                    liftValue(CJ3_CHANGE2, cleanJerk3Change2));
         }
         return 0;
     }
@@ -2253,7 +2330,7 @@ public class Athlete {
      * @return the snatch 2 automatic progression
      */
     public String getSnatch2AutomaticProgression() {
-        final int prevVal = zeroIfInvalid(snatch1ActualLift);
+        final int prevVal = liftValue(SNATCH1_ACTUAL, snatch1ActualLift);
         return doAutomaticProgression(prevVal);
     }
 
@@ -2319,7 +2396,7 @@ public class Athlete {
      * @return the snatch 3 automatic progression
      */
     public String getSnatch3AutomaticProgression() {
-        final int prevVal = zeroIfInvalid(snatch2ActualLift);
+        final int prevVal = liftValue(SNATCH2_ACTUAL, snatch2ActualLift);
         return doAutomaticProgression(prevVal);
     }
 
@@ -2419,8 +2496,9 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public int getSnatchTotal() {
-        final int snatchTotal = max(0, zeroIfInvalid(snatch1ActualLift), zeroIfInvalid(snatch2ActualLift),
-                zeroIfInvalid(snatch3ActualLift));
+        final int snatchTotal = max(0, liftValue(SNATCH1_ACTUAL, snatch1ActualLift),
+                liftValue(SNATCH2_ACTUAL, snatch2ActualLift),
+                liftValue(SNATCH3_ACTUAL, snatch3ActualLift));
         return snatchTotal;
     }
 
@@ -2587,70 +2665,70 @@ public class Athlete {
         switch (attempt) {
         case 1:
             declaring =
-                    (zeroIfInvalid(snatch1Declaration) > 0) &&
-                    (zeroIfInvalid(snatch1Change1) == 0) &&
-                    (zeroIfInvalid(snatch1Change2) == 0) &&
-                    (zeroIfInvalid(snatch1ActualLift) == 0);
+                    (liftValue(SNATCH1_DECLARATION, snatch1Declaration) > 0) &&
+                    (liftValue(SNATCH1_CHANGE1, snatch1Change1) == 0) &&
+                    (liftValue(SNATCH1_CHANGE2, snatch1Change2) == 0) &&
+                    (liftValue(SNATCH1_ACTUAL, snatch1ActualLift) == 0);
             changing = false;
             break;
         case 2:
             {
                 int ap = zeroIfInvalid(getSnatch2AutomaticProgression());
-                int decl = zeroIfInvalid(snatch2Declaration);
+                int decl = liftValue(SNATCH2_DECLARATION, snatch2Declaration);
                 declaring =
                         (ap > 0) &&
                         (decl > 0) &&
-                        (zeroIfInvalid(snatch2Change1) == 0) &&
-                        (zeroIfInvalid(snatch2Change2) == 0) &&
-                        (zeroIfInvalid(snatch2ActualLift) == 0);
+                        (liftValue(SNATCH2_CHANGE1, snatch2Change1) == 0) &&
+                        (liftValue(SNATCH2_CHANGE2, snatch2Change2) == 0) &&
+                        (liftValue(SNATCH2_ACTUAL, snatch2ActualLift) == 0);
                 changing = ap != decl;
             }
             break;
         case 3:
             {
                 int ap = zeroIfInvalid(getSnatch3AutomaticProgression());
-                int decl = zeroIfInvalid(snatch3Declaration);
+                int decl = liftValue(SNATCH3_DECLARATION, snatch3Declaration);
                 declaring =
                         (ap > 0) &&
                         (decl > 0) &&
-                        (zeroIfInvalid(snatch3Change1) == 0) &&
-                        (zeroIfInvalid(snatch3Change2) == 0) &&
-                        (zeroIfInvalid(snatch3ActualLift) == 0);
+                        (liftValue(SNATCH3_CHANGE1, snatch3Change1) == 0) &&
+                        (liftValue(SNATCH3_CHANGE2, snatch3Change2) == 0) &&
+                        (liftValue(SNATCH3_ACTUAL, snatch3ActualLift) == 0);
                 changing = ap != decl;
 
             }
             break;
         case 4:
             declaring =
-                    (zeroIfInvalid(cleanJerk1Declaration) > 0) &&
-                    (zeroIfInvalid(cleanJerk1Change1) == 0) &&
-                    (zeroIfInvalid(cleanJerk1Change2) == 0) &&
-                    (zeroIfInvalid(cleanJerk1ActualLift) == 0);
+                    (liftValue(CJ1_DECLARATION, cleanJerk1Declaration) > 0) &&
+                    (liftValue(CJ1_CHANGE1, cleanJerk1Change1) == 0) &&
+                    (liftValue(CJ1_CHANGE2, cleanJerk1Change2) == 0) &&
+                    (liftValue(CJ1_ACTUAL, cleanJerk1ActualLift) == 0);
             changing = false;
             break;
         case 5:
             {
                 int ap = zeroIfInvalid(getCleanJerk2AutomaticProgression());
-                int decl = zeroIfInvalid(cleanJerk2Declaration);
+                int decl = liftValue(CJ2_DECLARATION, cleanJerk2Declaration);
                 declaring =
                         (ap > 0) &&
                         (decl > 0) &&
-                        (zeroIfInvalid(cleanJerk2Change1) == 0) &&
-                        (zeroIfInvalid(cleanJerk2Change2) == 0) &&
-                        (zeroIfInvalid(cleanJerk2ActualLift) == 0);
+                        (liftValue(CJ2_CHANGE1, cleanJerk2Change1) == 0) &&
+                        (liftValue(CJ2_CHANGE2, cleanJerk2Change2) == 0) &&
+                        (liftValue(CJ2_ACTUAL, cleanJerk2ActualLift) == 0);
                 changing = ap != decl;
             }
             break;
         case 6:
             {
                 int ap = zeroIfInvalid(getCleanJerk3AutomaticProgression());
-                int decl = zeroIfInvalid(cleanJerk3Declaration);
+                int decl = liftValue(CJ3_DECLARATION, cleanJerk3Declaration);
                 declaring =
                         (ap > 0) &&
                         (decl > 0) &&
-                        (zeroIfInvalid(cleanJerk3Change1) == 0) &&
-                        (zeroIfInvalid(cleanJerk3Change2) == 0) &&
-                        (zeroIfInvalid(cleanJerk3ActualLift) == 0);
+                        (liftValue(CJ3_CHANGE1, cleanJerk3Change1) == 0) &&
+                        (liftValue(CJ3_CHANGE2, cleanJerk3Change2) == 0) &&
+                        (liftValue(CJ3_ACTUAL, cleanJerk3ActualLift) == 0);
                 changing = ap != decl;
             }
             break;
@@ -2734,6 +2812,7 @@ public class Athlete {
     }
 
     public void removeEligibleCategory(Category category) {
+        mainRankings = null;
         for (Iterator<Participation> iterator = participations.iterator(); iterator.hasNext();) {
             Participation participation = iterator.next();
 
@@ -2827,6 +2906,7 @@ public class Athlete {
         // logger.trace("{}{} category {} {}", OwlcmsSession.getFopLoggingName(), System.identityHashCode(this),
         // category != null ? category.getParticipations() : null, LoggerUtils./**/stackTrace());
         this.category = category;
+        this.mainRankings = null;
     }
 
     public void setCatSinclairRank(int i) {
@@ -3348,6 +3428,7 @@ public class Athlete {
 
     public void setParticipations(List<Participation> participations) {
         this.participations = participations;
+        this.mainRankings = null;
     }
 
     public void setPresumedBodyWeight(Double presumedBodyWeight) {
@@ -4174,16 +4255,18 @@ public class Athlete {
         if (!enforce20kg || (entryTotal == 0)) {
             return true;
         }
-        int sn1Decl = zeroIfInvalid(snatch1Declaration);
-        int cj1Decl = zeroIfInvalid(cleanJerk1Declaration);
+        int sn1Decl = liftValue(SNATCH1_DECLARATION, snatch1Declaration);
+        int cj1Decl = liftValue(CJ1_DECLARATION, cleanJerk1Declaration);
         getLogger().trace("prior to checking {} {}", sn1Decl, cj1Decl);
         if (sn1Decl == 0 && cj1Decl == 0) {
             return true; // do not complain on registration form or empty weigh-in form.
         }
 
-        Integer snatch1Request = last(sn1Decl, zeroIfInvalid(snatch1Change1), zeroIfInvalid(snatch1Change2));
+        Integer snatch1Request = last(sn1Decl, liftValue(SNATCH1_CHANGE1, snatch1Change1),
+                liftValue(SNATCH1_CHANGE2, snatch1Change2));
 
-        Integer cleanJerk1Request = last(cj1Decl, zeroIfInvalid(cleanJerk1Change1), zeroIfInvalid(cleanJerk1Change2));
+        Integer cleanJerk1Request = last(cj1Decl, liftValue(CJ1_CHANGE1, cleanJerk1Change1),
+                liftValue(CJ1_CHANGE2, cleanJerk1Change2));
         return validateStartingTotalsRule(snatch1Request, cleanJerk1Request, entryTotal);
     }
 
@@ -4721,6 +4804,13 @@ public class Athlete {
 
     }
 
+    /**
+     * Integer value of a lift field, parsed only when the field has been assigned a new String since the last call.
+     */
+    private int liftValue(int field, String value) {
+        return liftValues.get(field, value);
+    }
+
     private Integer max(Integer... items) {
         List<Integer> itemList = Arrays.asList(items);
         final Integer max = Collections.max(itemList);
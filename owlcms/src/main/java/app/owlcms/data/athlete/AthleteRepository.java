@@ -18,10 +18,12 @@ import org.slf4j.LoggerFactory;
 
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.group.Group;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.data.jpa.JPAService;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -38,14 +40,13 @@ public class AthleteRepository {
 
     public static void assignCategoryRanks() {
         JPAService.runInTransaction(em -> {
-            // assign ranks to all groups.
-            List<Athlete> l = AthleteSorter.assignCategoryRanks(null);
-            for (Athlete a : l) {
-                em.merge(a);
-            }
+            // assign ranks to all groups. the athletes are managed by em, so only the participations whose ranks
+            // changed are written, in batched updates.
+            AthleteSorter.assignCategoryRanks(em, null);
             em.flush();
             return null;
         });
+        RankingIndex.getCurrent().invalidate();
     }
 
     public static void assignStartNumbers(Group group) {
@@ -95,6 +96,7 @@ public class AthleteRepository {
             Competition.getCurrent().setRankingsInvalid(true);
             return null;
         });
+        RankingIndex.getCurrent().invalidate();
     }
 
     public static Integer doCountFiltered(String lastName, Group group, Category category, AgeGroup ageGroup,
@@ -113,6 +115,34 @@ public class AthleteRepository {
         return em.createQuery("select distinct a from Athlete a").getResultList();
     }
 
+    /**
+     * Fetch all weighed-in athletes and their participations, for building the ranking index.
+     *
+     * @param em
+     * @return
+     */
+    public static List<Athlete> doFindAllForRankingIndex(EntityManager em) {
+        return em.createQuery(
+                "select distinct a from Athlete a left join fetch a.participations where a.bodyWeight > 0",
+                Athlete.class)
+                .getResultList();
+    }
+
+    /**
+     * Fetch athletes and their participations, for updating the ranking index.
+     *
+     * @param em
+     * @param ids the athletes to fetch
+     * @return
+     */
+    public static List<Athlete> doFindAllForRankingIndex(EntityManager em, List<Long> ids) {
+        return em.createQuery(
+                "select distinct a from Athlete a left join fetch a.participations where a.id in :ids",
+                Athlete.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public static List<Athlete> doFindAllByAgeroupGroupAndWeighIn(EntityManager em, AgeGroup ageGroup, Group group,
             Boolean weighedIn,
             Gender gender) {
@@ -135,7 +165,7 @@ public class AthleteRepository {
                 + filteringSelection(lastName, group, category, ageGroup, ageDivision, gender, weighedIn)
                 + " order by a.category";
         // logger.debug("find query = {}", qlString);
-        Query query = em.createQuery(qlString);
+        Query query = JPAService.cacheable(em.createQuery(qlString), CacheRegions.ATHLETE_QUERIES);
         setFilteringParameters(lastName, group, category, ageGroup, ageDivision, gender, query);
         if (offset >= 0) {
             query.setFirstResult(offset);
@@ -222,9 +252,9 @@ public class AthleteRepository {
 //                List<Category> q2Results = q2.getResultList();
 //                logger.debug("categories for currentGroup {}",q2Results);
         }
-        Query q = em.createQuery(
+        Query q = JPAService.cacheable(em.createQuery(
                 "select distinct a, p from Athlete a join fetch a.participations p"
-                        + onlyCategoriesFromCurrentGroup);
+                        + onlyCategoriesFromCurrentGroup), CacheRegions.ATHLETE_QUERIES);
         if (g != null) {
             q.setParameter("groupId", g.getId());
         }
@@ -315,11 +345,14 @@ public class AthleteRepository {
      * @return the athlete
      */
     public static Athlete save(Athlete athlete) {
-        return JPAService.runInTransaction((em) -> {
-            Competition.getCurrent().setRankingsInvalid(true);
+        Athlete saved = JPAService.runInTransaction((em) -> {
             Athlete merged = em.merge(athlete);
             return merged;
         });
+        // after the commit, so that reports computed from now on see the change
+        Competition.getCurrent().setRankingsInvalid(true);
+        RankingIndex.getCurrent().athleteModified(saved.getId());
+        return saved;
     }
 
     private static String filteringJoins(Group group, Category category, AgeGroup ageGroup, AgeDivision ageDivision) {
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.athlete;
+
+/**
+ * Integer values of the 24 declaration, change and actual lift fields of an {@link Athlete}.
+ *
+ * The fields are Strings, and they are read constantly by the comparators used for sorting. Each value is remembered
+ * along with the String instance it was parsed from. Setting a field (through a setter, a JPA load or a copy) stores a
+ * different instance, so the value is parsed again on the next read; no explicit invalidation is needed.
+ *
+ * Entries are immutable, so a reader on another thread sees either the old or the new pair, never a mix.
+ *
+ * @author owlcms
+ */
+final class LiftValues {
+
+    private static final class Entry {
+        private final String source;
+        private final int value;
+
+        private Entry(String source, int value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+
+    static final int SNATCH1_DECLARATION = 0;
+    static final int SNATCH1_CHANGE1 = 1;
+    static final int SNATCH1_CHANGE2 = 2;
+    static final int SNATCH1_ACTUAL = 3;
+    static final int SNATCH2_DECLARATION = 4;
+    static final int SNATCH2_CHANGE1 = 5;
+    static final int SNATCH2_CHANGE2 = 6;
+    static final int SNATCH2_ACTUAL = 7;
+    static final int SNATCH3_DECLARATION = 8;
+    static final int SNATCH3_CHANGE1 = 9;
+    static final int SNATCH3_CHANGE2 = 10;
+    static final int SNATCH3_ACTUAL = 11;
+    static final int CJ1_DECLARATION = 12;
+    static final int CJ1_CHANGE1 = 13;
+    static final int CJ1_CHANGE2 = 14;
+    static final int CJ1_ACTUAL = 15;
+    static final int CJ2_DECLARATION = 16;
+    static final int CJ2_CHANGE1 = 17;
+    static final int CJ2_CHANGE2 = 18;
+    static final int CJ2_ACTUAL = 19;
+    static final int CJ3_DECLARATION = 20;
+    static final int CJ3_CHANGE1 = 21;
+    static final int CJ3_CHANGE2 = 22;
+    static final int CJ3_ACTUAL = 23;
+
+    private static final int NB_FIELDS = 24;
+
+    /**
+     * Same result as {@link Integer#parseInt(String)}, but returns 0 instead of throwing when the value is null, empty,
+     * not a number or out of range.
+     *
+     * @param value
+     * @return the value, or 0
+     */
+    static int parseOrZero(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = value.length();
+        if (length == 0) {
+            return 0;
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (length == 1) {
+                return 0;
+            }
+        }
+        long result = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            result = result * 10 + (c - '0');
+            if (result > (long) Integer.MAX_VALUE + 1) {
+                return 0;
+            }
+        }
+        result = negative ? -result : result;
+        if (result > Integer.MAX_VALUE) {
+            return 0;
+        }
+        return (int) result;
+    }
+
+    private final Entry[] entries = new Entry[NB_FIELDS];
+
+    /**
+     * @param field  one of the field constants
+     * @param source the current content of the field
+     * @return the integer value of the field, 0 if empty or invalid
+     */
+    int get(int field, String source) {
+        if (source == null) {
+            return 0;
+        }
+        Entry e = entries[field];
+        if (e != null && e.source == source) {
+            return e.value;
+        }
+        int value = parseOrZero(source);
+        entries[field] = new Entry(source, value);
+        return value;
+    }
+}
@@ -100,6 +100,11 @@ public class XAthlete extends Athlete {
         return a.getActualLift(liftNo);
     }
 
+    @Override
+    public int getActualLiftValue(int liftNo) {
+        return a.getActualLiftValue(liftNo);
+    }
+
     @Override
     public Integer getAge() {
         return super.getAge();
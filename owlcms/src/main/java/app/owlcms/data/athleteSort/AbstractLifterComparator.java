@@ -500,8 +500,7 @@ public class AbstractLifterComparator {
             logger.trace("starting from {}, lifter1 {}, lifter2 {}", startingFrom, lifter1, lifter2);
         }
         if (startingFrom >= 6) {
-            compare = ((Integer) Math.abs(Athlete.zeroIfInvalid(lifter1.getCleanJerk3ActualLift())))
-                    .compareTo(Math.abs(Athlete.zeroIfInvalid(lifter2.getCleanJerk3ActualLift())));
+            compare = Integer.compare(Math.abs(lifter1.getActualLiftValue(6)), Math.abs(lifter2.getActualLiftValue(6)));
             if (trace) {
                 logger.trace("essai 6: {}", compare);
             }
@@ -510,8 +509,7 @@ public class AbstractLifterComparator {
             }
         }
         if (startingFrom >= 5) {
-            compare = ((Integer) Math.abs(Athlete.zeroIfInvalid(lifter1.getCleanJerk2ActualLift())))
-                    .compareTo(Math.abs(Athlete.zeroIfInvalid(lifter2.getCleanJerk2ActualLift())));
+            compare = Integer.compare(Math.abs(lifter1.getActualLiftValue(5)), Math.abs(lifter2.getActualLiftValue(5)));
             if (trace) {
                 logger.trace("essai 5: {}", compare);
             }
@@ -520,8 +518,7 @@ public class AbstractLifterComparator {
             }
         }
         if (startingFrom >= 4) {
-            compare = ((Integer) Math.abs(Athlete.zeroIfInvalid(lifter1.getCleanJerk1ActualLift())))
-                    .compareTo(Math.abs(Athlete.zeroIfInvalid(lifter2.getCleanJerk1ActualLift())));
+            compare = Integer.compare(Math.abs(lifter1.getActualLiftValue(4)), Math.abs(lifter2.getActualLiftValue(4)));
             if (trace) {
                 logger.trace("essai 4: {}", compare);
             }
@@ -533,8 +530,7 @@ public class AbstractLifterComparator {
             return 0;
         }
         if (startingFrom >= 3) {
-            compare = ((Integer) Math.abs(Athlete.zeroIfInvalid(lifter1.getSnatch3ActualLift())))
-                    .compareTo(Math.abs(Athlete.zeroIfInvalid(lifter2.getSnatch3ActualLift())));
+            compare = Integer.compare(Math.abs(lifter1.getActualLiftValue(3)), Math.abs(lifter2.getActualLiftValue(3)));
             if (trace) {
                 logger.trace("essai 3: {}", compare);
             }
@@ -543,8 +539,7 @@ public class AbstractLifterComparator {
             }
         }
         if (startingFrom >= 2) {
-            compare = ((Integer) Math.abs(Athlete.zeroIfInvalid(lifter1.getSnatch2ActualLift())))
-                    .compareTo(Math.abs(Athlete.zeroIfInvalid(lifter2.getSnatch2ActualLift())));
+            compare = Integer.compare(Math.abs(lifter1.getActualLiftValue(2)), Math.abs(lifter2.getActualLiftValue(2)));
             if (trace) {
                 logger.trace("essai 2: {}", compare);
             }
@@ -553,8 +548,7 @@ public class AbstractLifterComparator {
             }
         }
         if (startingFrom >= 1) {
-            compare = ((Integer) Math.abs(Athlete.zeroIfInvalid(lifter1.getSnatch1ActualLift())))
-                    .compareTo(Math.abs(Athlete.zeroIfInvalid(lifter2.getSnatch1ActualLift())));
+            compare = Integer.compare(Math.abs(lifter1.getActualLiftValue(1)), Math.abs(lifter2.getActualLiftValue(1)));
             if (trace) {
                 logger.trace("essai 1: {}", compare);
             }
@@ -642,9 +636,9 @@ public class AbstractLifterComparator {
             // clean and jerk
             if (currentTry == 6) {
                 // smaller 2nd attempt lifted first
-                Integer attemptedCJ2_1 = Math.abs(Athlete.zeroIfInvalid(lifter1.getCleanJerk2ActualLift()));
-                Integer attemptedCJ2_2 = Math.abs(Athlete.zeroIfInvalid(lifter2.getCleanJerk2ActualLift()));
-                compare = (attemptedCJ2_1.compareTo(attemptedCJ2_2));
+                int attemptedCJ2_1 = Math.abs(lifter1.getActualLiftValue(5));
+                int attemptedCJ2_2 = Math.abs(lifter2.getActualLiftValue(5));
+                compare = Integer.compare(attemptedCJ2_1, attemptedCJ2_2);
                 if (compare != 0) {
                     return compare;
                     // if 2nd attempts are same, go on and compare first attempts
@@ -652,9 +646,9 @@ public class AbstractLifterComparator {
             }
             if (currentTry >= 5) {
                 // smaller 1st attempt lifted first
-                Integer attemptedCJ1_1 = Math.abs(Athlete.zeroIfInvalid(lifter1.getCleanJerk1ActualLift()));
-                Integer attemptedCJ1_2 = Math.abs(Athlete.zeroIfInvalid(lifter2.getCleanJerk1ActualLift()));
-                compare = attemptedCJ1_1.compareTo(attemptedCJ1_2);
+                int attemptedCJ1_1 = Math.abs(lifter1.getActualLiftValue(4));
+                int attemptedCJ1_2 = Math.abs(lifter2.getActualLiftValue(4));
+                compare = Integer.compare(attemptedCJ1_1, attemptedCJ1_2);
                 if (compare != 0) {
                     return compare;
                     // if 1st attempts are same, can't determine who lifted first based on weights
@@ -665,9 +659,9 @@ public class AbstractLifterComparator {
             // snatch
             if (currentTry == 3) {
                 // smaller 2nd attempt lifted first
-                Integer attemptedSn2_1 = Math.abs(Athlete.zeroIfInvalid(lifter1.getSnatch2ActualLift()));
-                Integer attemptedSn2_2 = Math.abs(Athlete.zeroIfInvalid(lifter2.getSnatch2ActualLift()));
-                compare = (attemptedSn2_1.compareTo(attemptedSn2_2));
+                int attemptedSn2_1 = Math.abs(lifter1.getActualLiftValue(2));
+                int attemptedSn2_2 = Math.abs(lifter2.getActualLiftValue(2));
+                compare = Integer.compare(attemptedSn2_1, attemptedSn2_2);
                 if (compare != 0) {
                     return compare;
                     // if 2nd attempts are same, go on and compare first attempts
@@ -675,9 +669,9 @@ public class AbstractLifterComparator {
             }
             if (currentTry >= 2) {
                 // smaller 1st attempt lifted first
-                Integer attemptedSn1_1 = Math.abs(Athlete.zeroIfInvalid(lifter1.getSnatch1ActualLift()));
-                Integer attemptedSn1_2 = Math.abs(Athlete.zeroIfInvalid(lifter2.getSnatch1ActualLift()));
-                compare = attemptedSn1_1.compareTo(attemptedSn1_2);
+                int attemptedSn1_1 = Math.abs(lifter1.getActualLiftValue(1));
+                int attemptedSn1_2 = Math.abs(lifter2.getActualLiftValue(1));
+                compare = Integer.compare(attemptedSn1_1, attemptedSn1_2);
                 if (compare != 0) {
                     return compare;
                     // if 1st attempts are same, can't determine who lifted first based on weights
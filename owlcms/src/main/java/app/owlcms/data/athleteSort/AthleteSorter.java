@@ -12,6 +12,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Random;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.persistence.Entity;
@@ -491,6 +492,42 @@ public class AthleteSorter implements Serializable {
         return sorted;
     }
 
+    /**
+     * First athletes in winning order, without sorting the whole list.
+     *
+     * Same result as taking the first <code>limit</code> athletes accepted by the filter in
+     * {@link #resultsOrderCopy(List, Ranking)} for SNATCH, CLEANJERK, TOTAL or CUSTOM: athletes that compare equal keep
+     * their original order.
+     *
+     * @param athletes    the athletes to consider
+     * @param rankingType the ranking type
+     * @param filter      athletes not accepted are ignored
+     * @param limit       maximum number of athletes returned
+     * @return at most <code>limit</code> athletes, in winning order
+     */
+    static public List<Athlete> resultsOrderTop(List<? extends Athlete> athletes, Ranking rankingType,
+            Predicate<Athlete> filter, int limit) {
+        WinningOrderComparator comparator = new WinningOrderComparator(rankingType, false);
+        List<Athlete> top = new ArrayList<>(limit + 1);
+        for (Athlete a : athletes) {
+            if (!filter.test(a)) {
+                continue;
+            }
+            // insert after the athletes that are not worse
+            int i = top.size();
+            while (i > 0 && comparator.compare(top.get(i - 1), a) > 0) {
+                i--;
+            }
+            if (i < limit) {
+                top.add(i, a);
+                if (top.size() > limit) {
+                    top.remove(limit);
+                }
+            }
+        }
+        return top;
+    }
+
     /**
      * Sort athletes according to official rules (in place) for the start number <tableToolbar>
      * <li>by registration category</li>
@@ -607,7 +644,7 @@ public class AthleteSorter implements Serializable {
      * @param rankingType
      * @return
      */
-    private static double getRankingValue(Athlete curLifter, Ranking rankingType) {
+    static double getRankingValue(Athlete curLifter, Ranking rankingType) {
         switch (rankingType) {
         case SNATCH:
             return curLifter.getBestSnatch();
@@ -0,0 +1,533 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.athleteSort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.category.Participation;
+import app.owlcms.data.group.Group;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * In-memory ranking index for the whole competition.
+ *
+ * For every category, the participating athletes are kept in winning order for each category-based {@link Ranking};
+ * all weighed-in athletes are also kept in order for the overall rankings. When an athlete is saved, only that athlete
+ * is repositioned in the lists where it appears, and only the participations and athletes whose rank actually moved
+ * are written back to the database.
+ *
+ * The index is reloaded from the database after {@link #invalidate()}, which is used for changes that affect many
+ * athletes at once (group switch, category or competition settings, deletions).
+ *
+ * The athletes held by the index are detached, only modified under the index lock, and never handed out;
+ * {@link #findAthletesForGroup(EntityManager, Group)} and {@link #findOverallOrders(EntityManager)} return fresh
+ * instances.
+ *
+ * @author owlcms
+ */
+public class RankingIndex {
+
+    /**
+     * Participations and athletes whose ranks were changed by an index operation.
+     */
+    public static class RankChanges {
+        private Set<Athlete> athletes = Collections.newSetFromMap(new IdentityHashMap<>());
+        private Set<Participation> participations = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        public Set<Athlete> getAthletes() {
+            return athletes;
+        }
+
+        public Set<Participation> getParticipations() {
+            return participations;
+        }
+
+        public boolean isEmpty() {
+            return athletes.isEmpty() && participations.isEmpty();
+        }
+    }
+
+    static final List<Ranking> CATEGORY_RANKINGS = List.of(Ranking.SNATCH, Ranking.CLEANJERK, Ranking.TOTAL,
+            Ranking.CUSTOM);
+    static final List<Ranking> OVERALL_RANKINGS = List.of(Ranking.BW_SINCLAIR, Ranking.SMM);
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(RankingIndex.class);
+
+    private static RankingIndex current = new RankingIndex();
+
+    public static RankingIndex getCurrent() {
+        return current;
+    }
+
+    private static int getCategoryRank(Participation p, Ranking r) {
+        switch (r) {
+        case SNATCH:
+            return p.getSnatchRank();
+        case CLEANJERK:
+            return p.getCleanJerkRank();
+        case TOTAL:
+            return p.getTotalRank();
+        case CUSTOM:
+            return p.getCustomRank();
+        default:
+            throw new IllegalArgumentException(r + " is not a category ranking");
+        }
+    }
+
+    private static boolean isRanked(Athlete a) {
+        Double bw = a.getBodyWeight();
+        return bw != null && bw >= 0.01;
+    }
+
+    private static void setCategoryRank(Participation p, Ranking r, int rank) {
+        switch (r) {
+        case SNATCH:
+            p.setSnatchRank(rank);
+            break;
+        case CLEANJERK:
+            p.setCleanJerkRank(rank);
+            break;
+        case TOTAL:
+            p.setTotalRank(rank);
+            break;
+        case CUSTOM:
+            p.setCustomRank(rank);
+            break;
+        default:
+            throw new IllegalArgumentException(r + " is not a category ranking");
+        }
+    }
+
+    private static void setOverallRank(Athlete a, Ranking r, Integer rank) {
+        switch (r) {
+        case BW_SINCLAIR:
+            a.setSinclairRank(rank);
+            break;
+        case SMM:
+            a.setSmmRank(rank != null ? rank : 0);
+            break;
+        default:
+            throw new IllegalArgumentException(r + " is not an overall ranking");
+        }
+    }
+
+    /**
+     * categories of each athlete, as they were when the athlete was inserted
+     */
+    private Map<Long, List<String>> athleteCategories = new HashMap<>();
+
+    private Map<Long, Athlete> athletes = new HashMap<>();
+
+    private Map<String, Map<Ranking, List<Athlete>>> categoryOrders = new HashMap<>();
+
+    private Map<Ranking, WinningOrderComparator> comparators = new EnumMap<>(Ranking.class);
+
+    private volatile boolean invalid = true;
+
+    private Set<Long> modifiedAthletes = ConcurrentHashMap.newKeySet();
+
+    private Map<Ranking, List<Athlete>> overallOrders = new EnumMap<>(Ranking.class);
+
+    public RankingIndex() {
+        for (Ranking r : CATEGORY_RANKINGS) {
+            comparators.put(r, new WinningOrderComparator(r, true));
+        }
+        for (Ranking r : OVERALL_RANKINGS) {
+            comparators.put(r, new WinningOrderComparator(r, true));
+        }
+    }
+
+    /**
+     * Record that an athlete has been saved; it will be repositioned on the next {@link #refresh(EntityManager)}.
+     *
+     * @param athleteId
+     */
+    public void athleteModified(Long athleteId) {
+        if (athleteId != null) {
+            modifiedAthletes.add(athleteId);
+        }
+    }
+
+    /**
+     * Athletes that take part in at least one of the categories present in the group, in total ranking order. The
+     * athletes are loaded through em, so each caller gets its own instances with the ranks written by the last
+     * {@link #refresh(EntityManager)}.
+     *
+     * @param em
+     * @param g  the group, null for all athletes that have a category
+     * @return a new list of athletes
+     */
+    public List<Athlete> findAthletesForGroup(EntityManager em, Group g) {
+        List<Long> ids = findIdsForGroup(g);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return inOrder(ids, AthleteRepository.doFindAllForRankingIndex(em, ids));
+    }
+
+    /**
+     * Weighed-in athletes in winning order for each of the {@link #OVERALL_RANKINGS}, with the ranks written by the
+     * last {@link #refresh(EntityManager)}. The athletes are loaded through em and detached, so they are shared
+     * neither with the index nor with later users of em.
+     *
+     * @param em
+     * @return a new list of athletes for each overall ranking
+     */
+    public Map<Ranking, List<Athlete>> findOverallOrders(EntityManager em) {
+        Map<Ranking, List<Long>> ids = findOverallIds();
+        Set<Long> allIds = new LinkedHashSet<>();
+        for (List<Long> order : ids.values()) {
+            allIds.addAll(order);
+        }
+        List<Athlete> loaded = allIds.isEmpty() ? new ArrayList<>()
+                : AthleteRepository.doFindAllForRankingIndex(em, new ArrayList<>(allIds));
+        detach(em, loaded);
+        Map<Ranking, List<Athlete>> orders = new EnumMap<>(Ranking.class);
+        for (Map.Entry<Ranking, List<Long>> e : ids.entrySet()) {
+            orders.put(e.getKey(), inOrder(e.getValue(), loaded));
+        }
+        return orders;
+    }
+
+    /**
+     * Force a reload from the database on the next {@link #refresh(EntityManager)}.
+     */
+    public void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Reload everything from a list of athletes and assign all ranks.
+     *
+     * @param all the athletes; those without a body weight are ignored
+     * @return the participations and athletes whose ranks changed
+     */
+    public synchronized RankChanges rebuild(List<Athlete> all) {
+        athletes.clear();
+        athleteCategories.clear();
+        categoryOrders.clear();
+        overallOrders.clear();
+        for (Ranking r : OVERALL_RANKINGS) {
+            overallOrders.put(r, new ArrayList<>(all.size()));
+        }
+
+        for (Athlete a : all) {
+            if (!isRanked(a)) {
+                continue;
+            }
+            athletes.put(a.getId(), a);
+            List<String> codes = categoryCodes(a);
+            athleteCategories.put(a.getId(), codes);
+            for (String code : codes) {
+                for (List<Athlete> order : getCategoryOrders(code).values()) {
+                    order.add(a);
+                }
+            }
+            for (List<Athlete> order : overallOrders.values()) {
+                order.add(a);
+            }
+        }
+
+        RankChanges changes = new RankChanges();
+        for (Map.Entry<String, Map<Ranking, List<Athlete>>> e : categoryOrders.entrySet()) {
+            for (Map.Entry<Ranking, List<Athlete>> o : e.getValue().entrySet()) {
+                o.getValue().sort(comparators.get(o.getKey()));
+                rankCategory(e.getKey(), o.getKey(), o.getValue(), changes);
+            }
+        }
+        for (Map.Entry<Ranking, List<Athlete>> o : overallOrders.entrySet()) {
+            o.getValue().sort(comparators.get(o.getKey()));
+            rankOverall(o.getKey(), o.getValue(), changes);
+        }
+        logger.debug("rebuilt ranking index: {} athletes, {} categories", athletes.size(), categoryOrders.size());
+        return changes;
+    }
+
+    /**
+     * Bring the index up to date. After {@link #invalidate()}, all weighed-in athletes are reloaded. Otherwise only
+     * the athletes saved since the last refresh are reloaded and repositioned. Ranks that changed are written through
+     * the entity manager; the caller is expected to commit.
+     *
+     * @param em
+     * @return false if nothing had changed since the last refresh
+     */
+    public synchronized boolean refresh(EntityManager em) {
+        if (invalid) {
+            // clear before loading, so that saves that happen during the load are seen on the next refresh
+            invalid = false;
+            modifiedAthletes.clear();
+            // athletes are managed by em, changed ranks are written by the flush.
+            List<Athlete> all = AthleteRepository.doFindAllForRankingIndex(em);
+            rebuild(all);
+            detach(em, all);
+            return true;
+        }
+        if (modifiedAthletes.isEmpty()) {
+            return false;
+        }
+        List<Long> ids = new ArrayList<>(modifiedAthletes);
+        modifiedAthletes.removeAll(ids);
+        List<Athlete> reloaded = AthleteRepository.doFindAllForRankingIndex(em, ids);
+        writeChanges(em, update(ids, reloaded));
+        detach(em, reloaded);
+        return true;
+    }
+
+    /**
+     * Reposition athletes whose data has changed.
+     *
+     * @param ids     the athletes that changed; those that are absent from updated are removed from the index
+     * @param updated the current version of the athletes
+     * @return the participations and athletes whose ranks changed
+     */
+    public synchronized RankChanges update(Collection<Long> ids, List<Athlete> updated) {
+        Set<String> touched = new LinkedHashSet<>();
+
+        // remove all previous versions first: they may have been modified in place and no longer be where the
+        // comparator expects them
+        for (Long id : ids) {
+            Athlete previous = athletes.remove(id);
+            List<String> previousCodes = athleteCategories.remove(id);
+            if (previous == null) {
+                continue;
+            }
+            for (String code : previousCodes) {
+                for (List<Athlete> order : getCategoryOrders(code).values()) {
+                    order.removeIf(a -> a == previous);
+                }
+                touched.add(code);
+            }
+            for (List<Athlete> order : overallOrders.values()) {
+                order.removeIf(a -> a == previous);
+            }
+        }
+
+        for (Athlete a : updated) {
+            if (!isRanked(a)) {
+                continue;
+            }
+            athletes.put(a.getId(), a);
+            List<String> codes = categoryCodes(a);
+            athleteCategories.put(a.getId(), codes);
+            for (String code : codes) {
+                for (Map.Entry<Ranking, List<Athlete>> o : getCategoryOrders(code).entrySet()) {
+                    insert(o.getValue(), a, comparators.get(o.getKey()));
+                }
+                touched.add(code);
+            }
+            for (Map.Entry<Ranking, List<Athlete>> o : overallOrders.entrySet()) {
+                insert(o.getValue(), a, comparators.get(o.getKey()));
+            }
+        }
+
+        RankChanges changes = new RankChanges();
+        for (String code : touched) {
+            Map<Ranking, List<Athlete>> orders = categoryOrders.get(code);
+            for (Map.Entry<Ranking, List<Athlete>> o : orders.entrySet()) {
+                rankCategory(code, o.getKey(), o.getValue(), changes);
+            }
+            if (orders.get(Ranking.TOTAL).isEmpty()) {
+                categoryOrders.remove(code);
+            }
+        }
+        for (Map.Entry<Ranking, List<Athlete>> o : overallOrders.entrySet()) {
+            rankOverall(o.getKey(), o.getValue(), changes);
+        }
+        logger.debug("repositioned {} athletes in {} categories, {} participations and {} athletes changed rank",
+                ids.size(), touched.size(), changes.getParticipations().size(), changes.getAthletes().size());
+        return changes;
+    }
+
+    private List<String> categoryCodes(Athlete a) {
+        List<String> codes = new ArrayList<>();
+        List<Participation> participations = a.getParticipations();
+        if (participations == null) {
+            return codes;
+        }
+        for (Participation p : participations) {
+            Category c = p.getCategory();
+            if (c != null) {
+                codes.add(c.getComputedCode());
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Write the pending rank changes and detach the athletes (and, by cascade, their participations), so that the
+     * instances kept by the index are not shared with other users of em.
+     */
+    private void detach(EntityManager em, List<Athlete> loaded) {
+        em.flush();
+        for (Athlete a : loaded) {
+            em.detach(a);
+        }
+    }
+
+    private synchronized Map<Ranking, List<Long>> findOverallIds() {
+        Map<Ranking, List<Long>> ids = new EnumMap<>(Ranking.class);
+        for (Ranking r : OVERALL_RANKINGS) {
+            List<Athlete> order = overallOrders.get(r);
+            List<Long> orderIds = new ArrayList<>(order != null ? order.size() : 0);
+            if (order != null) {
+                for (Athlete a : order) {
+                    orderIds.add(a.getId());
+                }
+            }
+            ids.put(r, orderIds);
+        }
+        return ids;
+    }
+
+    private synchronized List<Long> findIdsForGroup(Group g) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (Athlete a : athletes.values()) {
+            if (g == null || g.equals(a.getGroup())) {
+                codes.addAll(athleteCategories.get(a.getId()));
+            }
+        }
+        Set<Long> found = new LinkedHashSet<>();
+        for (String code : codes) {
+            Map<Ranking, List<Athlete>> orders = categoryOrders.get(code);
+            if (orders == null) {
+                continue;
+            }
+            for (Athlete a : orders.get(Ranking.TOTAL)) {
+                found.add(a.getId());
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    private Map<Ranking, List<Athlete>> getCategoryOrders(String code) {
+        return categoryOrders.computeIfAbsent(code, (c) -> {
+            Map<Ranking, List<Athlete>> orders = new EnumMap<>(Ranking.class);
+            for (Ranking r : CATEGORY_RANKINGS) {
+                orders.put(r, new ArrayList<>());
+            }
+            return orders;
+        });
+    }
+
+    /**
+     * @return the loaded athletes in the order of ids; ids that were not loaded (deleted since) are skipped
+     */
+    private List<Athlete> inOrder(List<Long> ids, List<Athlete> loaded) {
+        Map<Long, Athlete> byId = new HashMap<>();
+        for (Athlete a : loaded) {
+            byId.put(a.getId(), a);
+        }
+        List<Athlete> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Athlete a = byId.get(id);
+            if (a != null) {
+                result.add(a);
+            }
+        }
+        return result;
+    }
+
+    private void insert(List<Athlete> order, Athlete a, WinningOrderComparator comparator) {
+        int pos = Collections.binarySearch(order, a, comparator);
+        order.add(pos >= 0 ? pos : -pos - 1, a);
+    }
+
+    private Participation participation(Athlete a, String code) {
+        for (Participation p : a.getParticipations()) {
+            Category c = p.getCategory();
+            if (c != null && code.equals(c.getComputedCode())) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same rules as {@link MultiCategoryRankSetter}: ineligible athletes are skipped, athletes with no result get 0.
+     */
+    private void rankCategory(String code, Ranking r, List<Athlete> order, RankChanges changes) {
+        int rank = 0;
+        for (Athlete a : order) {
+            if (!a.isEligibleForIndividualRanking()) {
+                continue;
+            }
+            Participation p = participation(a, code);
+            if (p == null) {
+                continue;
+            }
+            int newRank = AthleteSorter.getRankingValue(a, r) > 0 ? ++rank : 0;
+            if (getCategoryRank(p, r) != newRank) {
+                setCategoryRank(p, r, newRank);
+                changes.getParticipations().add(p);
+            }
+        }
+    }
+
+    private void rankOverall(Ranking r, List<Athlete> order, RankChanges changes) {
+        List<Integer> previous = new ArrayList<>(order.size());
+        for (Athlete a : order) {
+            previous.add(AthleteSorter.getRank(a, r));
+        }
+        AthleteSorter.assignOverallRanksAndPoints(order, r);
+        for (int i = 0; i < order.size(); i++) {
+            Athlete a = order.get(i);
+            if (!Objects.equals(previous.get(i), AthleteSorter.getRank(a, r))) {
+                changes.getAthletes().add(a);
+            }
+        }
+    }
+
+    /**
+     * Copy the changed ranks to the database rows. Objects loaded through em are already managed and are flushed
+     * by dirty checking; the others are detached copies from a previous refresh. The index assigns the snatch, clean
+     * and jerk, total and custom ranks of the participations, and the {@link #OVERALL_RANKINGS} ranks of the
+     * athletes; these are all copied.
+     */
+    private void writeChanges(EntityManager em, RankChanges changes) {
+        for (Participation p : changes.getParticipations()) {
+            if (em.contains(p)) {
+                continue;
+            }
+            Participation mp = em.find(Participation.class, p.getId());
+            if (mp != null) {
+                for (Ranking r : CATEGORY_RANKINGS) {
+                    setCategoryRank(mp, r, getCategoryRank(p, r));
+                }
+            }
+        }
+        for (Athlete a : changes.getAthletes()) {
+            if (em.contains(a)) {
+                continue;
+            }
+            Athlete ma = em.find(Athlete.class, a.getId());
+            if (ma != null) {
+                for (Ranking r : OVERALL_RANKINGS) {
+                    setOverallRank(ma, r, AthleteSorter.getRank(a, r));
+                }
+            }
+        }
+    }
+
+}
@@ -27,6 +27,8 @@ import javax.persistence.OneToMany;
 import javax.persistence.Transient;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
@@ -37,6 +39,7 @@ import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.i18n.Translator;
 import app.owlcms.utils.IdUtils;
 import ch.qos.logback.classic.Logger;
@@ -61,10 +64,45 @@ import ch.qos.logback.classic.Logger;
 //must be listed in app.owlcms.data.jpa.JPAService.entityClassNames()
 @Entity
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.CATEGORY)
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @JsonIgnoreProperties(ignoreUnknown = true, value = { "hibernateLazyInitializer", "logger" })
 public class Category implements Serializable, Comparable<Category>, Cloneable {
 
+    /**
+     * The values from which the computed code was derived, so that it is only rebuilt when one of them changes.
+     */
+    private static final class ComputedCode {
+        private final String agCode;
+        private final AgeGroup ageGroup;
+        private final String agName;
+        private final String code;
+        private final Gender gender;
+        private final Long id;
+        private final Double maximumWeight;
+        private final Double minimumWeight;
+
+        private ComputedCode(Category c, String code) {
+            this.ageGroup = c.ageGroup;
+            this.agCode = c.ageGroup != null ? c.ageGroup.getCode() : null;
+            this.agName = c.ageGroup != null ? c.ageGroup.getName() : null;
+            this.gender = c.gender;
+            this.id = c.id;
+            this.maximumWeight = c.maximumWeight;
+            this.minimumWeight = c.minimumWeight;
+            this.code = code;
+        }
+
+        private boolean isCurrent(Category c) {
+            // age group strings are compared by reference: a new value is a new string.
+            return ageGroup == c.ageGroup
+                    && (ageGroup == null || (agCode == ageGroup.getCode() && agName == ageGroup.getName()))
+                    && gender == c.gender && Objects.equals(id, c.id)
+                    && Objects.equals(maximumWeight, c.maximumWeight)
+                    && Objects.equals(minimumWeight, c.minimumWeight);
+        }
+    }
+
     public final static Double ROBI_B = 3.321928095;
 
     @Transient
@@ -87,6 +125,10 @@ public class Category implements Serializable, Comparable<Category>, Cloneable {
     // combines age group and bw category (which includes gender).
     private String code;
 
+    @Transient
+    @JsonIgnore
+    private transient ComputedCode computedCode;
+
     @Enumerated(EnumType.STRING)
     private Gender gender;
 
@@ -264,17 +306,29 @@ public class Category implements Serializable, Comparable<Category>, Cloneable {
         }
     }
 
+    /**
+     * The code is computed once and interned; as long as the category is not changed, the same String instance is
+     * returned, and two categories with the same code return the same instance.
+     *
+     * @return the code derived from the age group, gender and upper limit
+     */
     @JsonIgnore
     @Transient
     public String getComputedCode() {
+        ComputedCode cc = computedCode;
+        if (cc != null && cc.isCurrent(this)) {
+            return cc.code;
+        }
         String agName = (ageGroup != null ? ageGroup.getName() : "");
-
+        String code;
         if (agName == null || agName.isEmpty()) {
-            String catName = gender + getCodeLimitString();
-            return catName;
+            code = gender + getCodeLimitString();
         } else {
-            return ageGroup.getCode() + "_" + gender + getCodeLimitString();
+            code = ageGroup.getCode() + "_" + gender + getCodeLimitString();
         }
+        code = code.intern();
+        computedCode = new ComputedCode(this, code);
+        return code;
     }
 
     @JsonIgnore
@@ -17,6 +17,9 @@ import org.slf4j.LoggerFactory;
 
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.RankingIndex;
+import app.owlcms.data.competition.ReportingService;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.data.jpa.JPAService;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -105,7 +108,7 @@ public class CategoryRepository {
                 + " order by c.ageGroup.ageDivision, c.gender, c.ageGroup.minAge, c.ageGroup.maxAge, c.ageGroup, c.maximumWeight";
         logger.trace("query = {}", qlString);
 
-        Query query = em.createQuery(qlString);
+        Query query = JPAService.cacheable(em.createQuery(qlString), CacheRegions.REFERENCE_QUERIES);
         setFilteringParameters(name, gender, ageDivision, ageGroup, age, bodyWeight, active, query);
         if (offset >= 0) {
             query.setFirstResult(offset);
@@ -264,11 +267,14 @@ public class CategoryRepository {
      * @return the category
      */
     public static Category save(Category category) {
-        return JPAService.runInTransaction(em -> {
+        Category saved = JPAService.runInTransaction(em -> {
             // code must match inside info for string-based matches in db.
             category.setCode(category.getComputedCode());
             return em.merge(category);
         });
+        RankingIndex.getCurrent().invalidate();
+        ReportingService.getCurrent().dataChanged();
+        return saved;
     }
 
     private static String filteringJoins(AgeGroup ag, Integer age) {
@@ -17,11 +17,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.persistence.Cacheable;
@@ -34,6 +36,8 @@ import javax.persistence.Id;
 import javax.persistence.Transient;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -45,6 +49,7 @@ import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.athlete.Gender;
 import app.owlcms.data.athleteSort.AthleteSorter;
 import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.athleteSort.WinningOrderComparator;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
@@ -52,6 +57,7 @@ import app.owlcms.data.category.Participation;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.spreadsheet.PAthlete;
@@ -63,6 +69,7 @@ import ch.qos.logback.classic.Logger;
  * Class Competition.
  */
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.COMPETITION)
 
 //must be listed in app.owlcms.data.jpa.JPAService.entityClassNames()
 @Entity
@@ -186,7 +193,16 @@ public class Competition {
     private int refereeWakeUpDelay = 1500;
 
     @Transient
-    private HashMap<String, Object> reportingBeans = new HashMap<>();
+    private volatile HashMap<String, Object> reportingBeans = new HashMap<>();
+
+    /**
+     * guards the replacement of {@link #reportingBeans}; never held while calling other objects, so that the
+     * reporting service can publish while the competition is locked.
+     */
+    @Transient
+    @JsonIgnore
+    private final transient Object reportingBeansLock = new Object();
+
     /**
      * All first lifts, then all second lifts, then all third lifts, etc. Can be combined with genderOrder as well.
      */
@@ -287,39 +303,45 @@ public class Competition {
         // logger.debug("medalCategories: all {} notDone {}", medalCategories, notDone);
         medalCategories.removeAll(notDone);
 
+        // index the participations once; categories are compared as in Category.sameAs()
+        TreeMap<Category, List<Athlete>> categoryAthletes = new TreeMap<>();
+        for (Category category : medalCategories) {
+            categoryAthletes.putIfAbsent(category, new ArrayList<>());
+        }
+        for (Athlete a : rankedAthletes) {
+            List<Category> seen = new ArrayList<>(2);
+            for (Participation p : a.getParticipations()) {
+                Category pCat = p.getCategory();
+                if (pCat == null) {
+                    continue;
+                }
+                List<Athlete> currentCategoryAthletes = categoryAthletes.get(pCat);
+                // only the first matching participation counts
+                if (currentCategoryAthletes != null && seen.stream().noneMatch(c -> c.sameAs(pCat))) {
+                    seen.add(pCat);
+                    // get a PAthlete proxy wrapper that has the rankings for that participation
+                    currentCategoryAthletes.add(new PAthlete(p));
+                }
+            }
+        }
+
         TreeMap<Category, TreeSet<Athlete>> medals = new TreeMap<>();
 
         // iterate over the remaining categories
         for (Category category : medalCategories) {
-
-            List<Athlete> currentCategoryAthletes = new ArrayList<>();
-            for (Athlete a : rankedAthletes) {
-                // fetch the participation that matches the current athlete registration category
-                Optional<Participation> matchingParticipation = a.getParticipations().stream()
-                        .filter(p -> p.getCategory().sameAs(category)).findFirst();
-                // get a PAthlete proxy wrapper that has the rankings for that participation
-                if (matchingParticipation.isPresent()) {
-                    currentCategoryAthletes.add(new PAthlete(matchingParticipation.get()));
-                }
-            }
+            List<Athlete> currentCategoryAthletes = categoryAthletes.get(category);
 
             // all rankings are from a PAthlete, i.e., for the current medal category
             List<Athlete> snatchLeaders = null;
             List<Athlete> cjLeaders = null;
             if (isSnatchCJTotalMedals()) {
-                snatchLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.SNATCH)
-                        .stream().filter(a -> a.getBestSnatch() > 0 && a.isEligibleForIndividualRanking())
-                        .limit(3)
-                        .collect(Collectors.toList());
-                cjLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.CLEANJERK)
-                        .stream().filter(a -> a.getBestCleanJerk() > 0 && a.isEligibleForIndividualRanking())
-                        .limit(3)
-                        .collect(Collectors.toList());
+                snatchLeaders = AthleteSorter.resultsOrderTop(currentCategoryAthletes, Ranking.SNATCH,
+                        a -> a.getBestSnatch() > 0 && a.isEligibleForIndividualRanking(), 3);
+                cjLeaders = AthleteSorter.resultsOrderTop(currentCategoryAthletes, Ranking.CLEANJERK,
+                        a -> a.getBestCleanJerk() > 0 && a.isEligibleForIndividualRanking(), 3);
             }
-            List<Athlete> totalLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.TOTAL)
-                    .stream().filter(a -> a.getTotal() > 0 && a.isEligibleForIndividualRanking())
-                    .limit(3)
-                    .collect(Collectors.toList());
+            List<Athlete> totalLeaders = AthleteSorter.resultsOrderTop(currentCategoryAthletes, Ranking.TOTAL,
+                    a -> a.getTotal() > 0 && a.isEligibleForIndividualRanking(), 3);
 
             // Athletes excluded from Total due to bombing out can still win medals, so we add them
             TreeSet<Athlete> medalists = new TreeSet<>(new WinningOrderComparator(Ranking.TOTAL, false));
@@ -340,16 +362,22 @@ public class Competition {
         return medals;
     }
 
-    synchronized public HashMap<String, Object> computeReportingInfo() {
-        List<PAthlete> athletes = AgeGroupRepository.allPAthletesForAgeGroupAgeDivision(null, null);
-        doComputeReportingInfo(true, athletes, (String) null, null);
-        return reportingBeans;
+    /**
+     * @return the reporting beans for all athletes, from the cache if the data has not changed
+     * @see ReportingService
+     */
+    public HashMap<String, Object> computeReportingInfo() {
+        return ReportingService.getCurrent().getReportingInfo(null, null);
     }
 
-    synchronized public HashMap<String, Object> computeReportingInfo(String ageGroupPrefix, AgeDivision ad) {
-        List<PAthlete> athletes = AgeGroupRepository.allPAthletesForAgeGroupAgeDivision(ageGroupPrefix, ad);
-        doComputeReportingInfo(true, athletes, ageGroupPrefix, ad);
-        return reportingBeans;
+    /**
+     * @param ageGroupPrefix
+     * @param ad
+     * @return the reporting beans for the selected athletes, from the cache if the data has not changed
+     * @see ReportingService
+     */
+    public HashMap<String, Object> computeReportingInfo(String ageGroupPrefix, AgeDivision ad) {
+        return ReportingService.getCurrent().getReportingInfo(ageGroupPrefix, ad);
     }
 
     @Override
@@ -557,7 +585,7 @@ public class Competition {
 
     @Transient
     @JsonIgnore
-    synchronized public List<Athlete> getGlobalSinclairRanking(Gender gender) {
+    public List<Athlete> getGlobalSinclairRanking(Gender gender) {
         return getListOrElseRecompute(gender == Gender.F ? "wSinclair" : "mSinclair");
     }
 
@@ -589,25 +617,15 @@ public class Competition {
     @SuppressWarnings("unchecked")
     @Transient
     @JsonIgnore
-    synchronized public List<Athlete> getListOrElseRecompute(String listName) {
-        List<Athlete> athletes = (List<Athlete>) reportingBeans.get(listName);
-        if (isRankingsInvalid() || athletes == null) {
-            setRankingsInvalid(true);
-            while (isRankingsInvalid()) { // could be made invalid again while we compute
-                setRankingsInvalid(false);
-                // recompute because an athlete has been saved (new weight requested, good/bad lift, etc.)
-                computeReportingInfo();
-                athletes = (List<Athlete>) reportingBeans.get(listName);
-                if (athletes == null) {
-                    String error = MessageFormat.format("list {0} not found", listName);
-                    logger./**/warn(error);
-                    athletes = Collections.emptyList();
-                }
-            }
-            logger.debug("recomputed {} size {} from {}", listName, athletes != null ? athletes.size() : null);
-        } else {
-            logger.debug("found {} size {} from {}", listName, athletes != null ? athletes.size() : null);
+    public List<Athlete> getListOrElseRecompute(String listName) {
+        // the reporting service recomputes when an athlete has been saved (new weight requested, good/bad lift, etc.)
+        List<Athlete> athletes = (List<Athlete>) computeReportingInfo().get(listName);
+        if (athletes == null) {
+            String error = MessageFormat.format("list {0} not found", listName);
+            logger./**/warn(error);
+            athletes = Collections.emptyList();
         }
+        logger.debug("found {} size {}", listName, athletes.size());
         return athletes;
     }
 
@@ -999,8 +1017,14 @@ public class Competition {
         this.protocolTemplateFileName = protocolFileName;
     }
 
-    synchronized public void setRankingsInvalid(boolean invalid) {
-        this.rankingsInvalid = invalid;
+    public void setRankingsInvalid(boolean invalid) {
+        synchronized (this) {
+            this.rankingsInvalid = invalid;
+        }
+        // outside of our lock: never hold both this lock and the reporting service's (see publishReportingBeans)
+        if (invalid) {
+            ReportingService.getCurrent().dataChanged();
+        }
     }
 
     public void setRefereeWakeUpDelay(int refereeWakeUpDelay) {
@@ -1065,35 +1089,35 @@ public class Competition {
                 + useRegistrationCategory + ", reportingBeans=" + reportingBeans + "]";
     }
 
-    private void addToReportingBean(String string, List<Athlete> sorted) {
-        List<Athlete> athletes = getOrCreateBean(string);
+    private void addToReportingBean(HashMap<String, Object> beans, String string, List<Athlete> sorted) {
+        List<Athlete> athletes = getOrCreateBean(beans, string);
         athletes.addAll(sorted);
     }
 
-    private void categoryRankings(List<PAthlete> athletes) {
+    private void categoryRankings(HashMap<String, Object> beans, List<PAthlete> athletes) {
         List<Athlete> sortedAthletes;
         List<Athlete> sortedMen = null;
         List<Athlete> sortedWomen = null;
 
-        reportingBeans.clear();
+        beans.clear();
 
-        reportingBeans.put("competition", Competition.getCurrent());
-        reportingBeans.put("groups", GroupRepository.findAll().stream().sorted((a, b) -> {
+        beans.put("competition", Competition.getCurrent());
+        beans.put("groups", GroupRepository.findAll().stream().sorted((a, b) -> {
             int compare = ObjectUtils.compare(a.getWeighInTime(), b.getWeighInTime(), true);
             if (compare != 0) {
                 return compare;
             }
             return compare = ObjectUtils.compare(a.getPlatform(), b.getPlatform(), true);
         }).collect(Collectors.toList()));
-        reportingBeans.put("t", Translator.getMap());
+        beans.put("t", Translator.getMap());
 
         // sort only, use ranks stored in database
         sortedAthletes = AthleteSorter.resultsOrderCopy(athletes, Ranking.SNATCH, false);
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mSn", sortedMen);
-        reportingBeans.put("wSn", sortedWomen);
+        beans.put("mSn", sortedMen);
+        beans.put("wSn", sortedWomen);
 
         // sort only, use ranks stored in database
         sortedAthletes = AthleteSorter.resultsOrderCopy(athletes, Ranking.CLEANJERK, false);
@@ -1101,17 +1125,17 @@ public class Competition {
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mCJ", sortedMen);
-        reportingBeans.put("wCJ", sortedWomen);
+        beans.put("mCJ", sortedMen);
+        beans.put("wCJ", sortedWomen);
 
         // sort only, use ranks stored in database
         sortedAthletes = AthleteSorter.resultsOrderCopy(athletes, Ranking.TOTAL, false);
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mTot", sortedMen);
-        reportingBeans.put("wTot", sortedWomen);
-        reportingBeans.put("mwTot", sortedAthletes);
+        beans.put("mTot", sortedMen);
+        beans.put("wTot", sortedWomen);
+        beans.put("mwTot", sortedAthletes);
         logger.debug("mTot {}", sortedMen);
         logger.debug("wTot {}", sortedWomen);
 //        for (Athlete a : sortedMen) {
@@ -1123,8 +1147,8 @@ public class Competition {
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mCus", sortedMen);
-        reportingBeans.put("wCus", sortedWomen);
+        beans.put("mCus", sortedMen);
+        beans.put("wCus", sortedWomen);
         logger.debug("mCus {}", sortedMen);
         logger.debug("wCus {}", sortedWomen);
 
@@ -1133,8 +1157,8 @@ public class Competition {
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mCatSinclair", sortedMen);
-        reportingBeans.put("wCatSinclair", sortedWomen);
+        beans.put("mCatSinclair", sortedMen);
+        beans.put("wCatSinclair", sortedWomen);
         logger.debug("mCatSinclair {}", sortedMen);
         logger.debug("wCatSinclair {}", sortedWomen);
 
@@ -1143,52 +1167,80 @@ public class Competition {
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mRobi", sortedMen);
-        reportingBeans.put("wRobi", sortedWomen);
-        reportingBeans.put("mwRobi", sortedAthletes);
-    }
-
-    private void clearTeamReportingBeans(String suffix) {
-        getOrCreateBean("mCombined" + suffix).clear();
-        getOrCreateBean("wCombined" + suffix).clear();
-        getOrCreateBean("mwCombined" + suffix).clear();
-        getOrCreateBean("mTeam" + suffix).clear();
-        getOrCreateBean("wTeam" + suffix).clear();
-        getOrCreateBean("mwTeam" + suffix).clear();
-        getOrCreateBean("mCustom" + suffix).clear();
-        getOrCreateBean("wCustom" + suffix).clear();
-        getOrCreateBean("mwCustom" + suffix).clear();
-    }
-
-    private void doComputeReportingInfo(boolean full, List<PAthlete> athletes, String ageGroupPrefix,
-            AgeDivision ad) {
-        // reporting does many database queries. fork a low-priority thread.
-        runInThread(() -> {
-            if (athletes.isEmpty()) {
-                // prevent outputting silliness.
-                logger./**/warn("no athletes");
-                reportingBeans.clear();
-                return;
-            }
+        beans.put("mRobi", sortedMen);
+        beans.put("wRobi", sortedWomen);
+        beans.put("mwRobi", sortedAthletes);
+    }
 
-            // the ranks within a category are stored in the database and
-            // not recomputed
-            categoryRankings(athletes);
-
-            // splitResultsByGroups(athletes);
-            if (full) {
-                reportingBeans.put("athletes", athletes);
-                // logger.debug("ad={} ageGroupPrefix={}", ad, ageGroupPrefix);
-                if (ad != null && (ageGroupPrefix == null || ageGroupPrefix.isBlank())) {
-                    // iterate over all age groups present in age division ad
-                    teamRankingsForAgeDivision(ad);
-                } else {
-                    teamRankings(athletes, ageGroupPrefix);
-                }
-            }
+    private void clearTeamReportingBeans(HashMap<String, Object> beans, String suffix) {
+        getOrCreateBean(beans, "mCombined" + suffix).clear();
+        getOrCreateBean(beans, "wCombined" + suffix).clear();
+        getOrCreateBean(beans, "mwCombined" + suffix).clear();
+        getOrCreateBean(beans, "mTeam" + suffix).clear();
+        getOrCreateBean(beans, "wTeam" + suffix).clear();
+        getOrCreateBean(beans, "mwTeam" + suffix).clear();
+        getOrCreateBean(beans, "mCustom" + suffix).clear();
+        getOrCreateBean(beans, "wCustom" + suffix).clear();
+        getOrCreateBean(beans, "mwCustom" + suffix).clear();
+    }
 
-            globalRankings();
-        }, Thread.MIN_PRIORITY);
+    /**
+     * Compute the beans used by the result documents, in a new map.
+     *
+     * Called by {@link ReportingService} on its own thread; the computation stops with a
+     * {@link CancellationException} between steps once <code>cancelled</code> returns true.
+     *
+     * @param athletes       one PAthlete per participation
+     * @param ageGroupPrefix
+     * @param ad
+     * @param cancelled      true if the result is no longer wanted
+     * @return the reporting beans
+     */
+    HashMap<String, Object> buildReportingInfo(List<PAthlete> athletes, String ageGroupPrefix, AgeDivision ad,
+            BooleanSupplier cancelled) {
+        HashMap<String, Object> beans = new HashMap<>();
+        if (athletes.isEmpty()) {
+            // prevent outputting silliness.
+            logger./**/warn("no athletes");
+            return beans;
+        }
+
+        // the ranks within a category are stored in the database and
+        // not recomputed
+        categoryRankings(beans, athletes);
+        checkCancelled(cancelled);
+
+        // splitResultsByGroups(beans, athletes);
+        beans.put("athletes", athletes);
+        // logger.debug("ad={} ageGroupPrefix={}", ad, ageGroupPrefix);
+        if (ad != null && (ageGroupPrefix == null || ageGroupPrefix.isBlank())) {
+            // iterate over all age groups present in age division ad
+            teamRankingsForAgeDivision(beans, ad);
+        } else {
+            teamRankings(beans, athletes, ageGroupPrefix);
+        }
+        checkCancelled(cancelled);
+
+        List<Athlete> rankedAthletes = AthleteRepository.findAllByGroupAndWeighIn(null, true);
+        doGlobalRankings(beans, rankedAthletes);
+        return beans;
+    }
+
+    /**
+     * Make the result of a completed computation visible through {@link #getReportingBeans()}.
+     *
+     * @param beans
+     */
+    void publishReportingBeans(HashMap<String, Object> beans) {
+        synchronized (reportingBeansLock) {
+            this.reportingBeans = beans;
+        }
+    }
+
+    private void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
     }
 
     /**
@@ -1203,7 +1255,8 @@ public class Competition {
      * @param singleAgeGroup true if not called in a loop, can compute team stats.
      * @param ageGroupPrefix
      */
-    private void doTeamRankings(List<PAthlete> athletes, String suffix, boolean singleAgeGroup) {
+    private void doTeamRankings(HashMap<String, Object> beans, List<PAthlete> athletes, String suffix,
+            boolean singleAgeGroup) {
         // team-oriented rankings. These rankings put all the athletes from the same team
         // together, sorted according to their points, so the top n can be kept if needed.
         // substitutes are not included -- they should be marked as !isEligibleForTeamRanking
@@ -1216,35 +1269,35 @@ public class Competition {
         sortedAthletes = AthleteSorter.teamPointsOrderCopy(athletes, Ranking.TOTAL);
         sortedMen = AthleteSorter.teamPointsOrderCopy(sortedMen, Ranking.TOTAL);
         sortedWomen = AthleteSorter.teamPointsOrderCopy(sortedWomen, Ranking.TOTAL);
-        addToReportingBean("mTeam" + suffix, sortedMen);
-        addToReportingBean("wTeam" + suffix, sortedWomen);
-        addToReportingBean("mwTeam" + suffix, sortedAthletes);
+        addToReportingBean(beans, "mTeam" + suffix, sortedMen);
+        addToReportingBean(beans, "wTeam" + suffix, sortedWomen);
+        addToReportingBean(beans, "mwTeam" + suffix, sortedAthletes);
         if (singleAgeGroup) {
-            reportTeams(sortedAthletes, sortedMen, sortedWomen);
+            reportTeams(beans, sortedAthletes, sortedMen, sortedWomen);
         }
 
         sortedAthletes = AthleteSorter.teamPointsOrderCopy(athletes, Ranking.SNATCH_CJ_TOTAL);
         sortedMen = AthleteSorter.teamPointsOrderCopy(sortedMen, Ranking.SNATCH_CJ_TOTAL);
         sortedWomen = AthleteSorter.teamPointsOrderCopy(sortedWomen, Ranking.SNATCH_CJ_TOTAL);
-        addToReportingBean("mCombined" + suffix, sortedMen);
-        addToReportingBean("wCombined" + suffix, sortedWomen);
-        addToReportingBean("mwCombined" + suffix, sortedAthletes);
+        addToReportingBean(beans, "mCombined" + suffix, sortedMen);
+        addToReportingBean(beans, "wCombined" + suffix, sortedWomen);
+        addToReportingBean(beans, "mwCombined" + suffix, sortedAthletes);
         if (singleAgeGroup) {
-            reportCombined(sortedAthletes, sortedMen, sortedWomen);
+            reportCombined(beans, sortedAthletes, sortedMen, sortedWomen);
         }
 
         sortedAthletes = AthleteSorter.teamPointsOrderCopy(athletes, Ranking.CUSTOM);
         sortedMen = AthleteSorter.teamPointsOrderCopy(sortedMen, Ranking.CUSTOM);
         sortedWomen = AthleteSorter.teamPointsOrderCopy(sortedWomen, Ranking.CUSTOM);
-        addToReportingBean("mCustom" + suffix, sortedMen);
-        addToReportingBean("wCustom" + suffix, sortedWomen);
-        addToReportingBean("mwCustom" + suffix, sortedAthletes);
+        addToReportingBean(beans, "mCustom" + suffix, sortedMen);
+        addToReportingBean(beans, "wCustom" + suffix, sortedWomen);
+        addToReportingBean(beans, "mwCustom" + suffix, sortedAthletes);
         if (singleAgeGroup) {
-            reportCustom(sortedAthletes, sortedMen, sortedWomen);
+            reportCustom(beans, sortedAthletes, sortedMen, sortedWomen);
         }
 
-        sortedMen = getOrCreateBean("mTeamSinclair" + suffix);
-        sortedWomen = getOrCreateBean("wTeamSinclair" + suffix);
+        sortedMen = getOrCreateBean(beans, "mTeamSinclair" + suffix);
+        sortedWomen = getOrCreateBean(beans, "wTeamSinclair" + suffix);
         AthleteSorter.teamPointsOrder(sortedMen, Ranking.BW_SINCLAIR);
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.BW_SINCLAIR);
     }
@@ -1254,89 +1307,112 @@ public class Competition {
     }
 
     @SuppressWarnings("unchecked")
-    private List<Athlete> getOrCreateBean(String string) {
-        List<Athlete> list = (List<Athlete>) reportingBeans.get(string);
+    private List<Athlete> getOrCreateBean(HashMap<String, Object> beans, String string) {
+        List<Athlete> list = (List<Athlete>) beans.get(string);
         if (list == null) {
             list = new ArrayList<>();
-            reportingBeans.put(string, list);
+            beans.put(string, list);
         }
         return list;
     }
 
     public void globalRankings() {
         List<Athlete> athletes = AthleteRepository.findAllByGroupAndWeighIn(null, true);
-        doGlobalRankings(athletes);
+        updateReportingBeans(beans -> doGlobalRankings(beans, athletes));
     }
     
     public void globalRankings(EntityManager em) {
         List<Athlete> athletes = AthleteRepository.doFindAllByGroupAndWeighIn(em, null, true, null);
-        doGlobalRankings(athletes);
+        updateReportingBeans(beans -> doGlobalRankings(beans, athletes));
     }
 
-    private void doGlobalRankings(List<Athlete> athletes) {
+    /**
+     * Publish the overall rankings maintained by the ranking index, without sorting. The reports get their own
+     * detached copies of the athletes.
+     *
+     * @param em    the transaction in which the index was refreshed
+     * @param index an up-to-date index
+     */
+    public void globalRankings(EntityManager em, RankingIndex index) {
+        Map<Ranking, List<Athlete>> orders = index.findOverallOrders(em);
+        List<Athlete> sinclairOrder = orders.get(Ranking.BW_SINCLAIR);
+        List<Athlete> smmOrder = orders.get(Ranking.SMM);
+        updateReportingBeans(beans -> publishGlobalRankings(beans, sinclairOrder, smmOrder));
+    }
+
+    private void doGlobalRankings(HashMap<String, Object> beans, List<Athlete> athletes) {
+        List<Athlete> sinclairOrder = AthleteSorter.resultsOrderCopy(athletes, Ranking.BW_SINCLAIR);
+        AthleteSorter.assignOverallRanksAndPoints(sinclairOrder, Ranking.BW_SINCLAIR);
+        List<Athlete> smmOrder = AthleteSorter.resultsOrderCopy(athletes, Ranking.SMM);
+        AthleteSorter.assignOverallRanksAndPoints(smmOrder, Ranking.SMM);
+        publishGlobalRankings(beans, sinclairOrder, smmOrder);
+    }
+
+    private void publishGlobalRankings(HashMap<String, Object> beans, List<Athlete> sinclairOrder,
+            List<Athlete> smmOrder) {
         List<Athlete> sortedAthletes;
         List<Athlete> sortedMen;
         List<Athlete> sortedWomen;
 
-        sortedAthletes = AthleteSorter.resultsOrderCopy(athletes, Ranking.BW_SINCLAIR);
-        AthleteSorter.assignOverallRanksAndPoints(sortedAthletes, Ranking.BW_SINCLAIR);
+        sortedAthletes = sinclairOrder;
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mSinclair", sortedMen);
-        reportingBeans.put("wSinclair", sortedWomen);
+        beans.put("mSinclair", sortedMen);
+        beans.put("wSinclair", sortedWomen);
         logger.debug("mSinclair {}", sortedMen);
         logger.debug("wSinclair {}", sortedWomen);
 
-        sortedAthletes = AthleteSorter.resultsOrderCopy(athletes, Ranking.SMM);
-        AthleteSorter.assignOverallRanksAndPoints(sortedAthletes, Ranking.SMM);
+        sortedAthletes = smmOrder;
         sortedMen = new ArrayList<>(sortedAthletes.size());
         sortedWomen = new ArrayList<>(sortedAthletes.size());
         splitByGender(sortedAthletes, sortedMen, sortedWomen);
-        reportingBeans.put("mSmm", sortedMen);
-        reportingBeans.put("wSmm", sortedWomen);
+        beans.put("mSmm", sortedMen);
+        beans.put("wSmm", sortedWomen);
         logger.debug("mSmm {}", sortedMen);
         logger.debug("wSmm {}", sortedWomen);
     }
 
-    private void reportCombined(List<Athlete> sortedAthletes, List<Athlete> sortedMen, List<Athlete> sortedWomen) {
-        getOrCreateBean("mCombined");
-        reportingBeans.put("mCombined", sortedMen);
-        getOrCreateBean("wCombined");
-        reportingBeans.put("wCombined", sortedWomen);
-        getOrCreateBean("mwCombined");
-        reportingBeans.put("mwCombined", sortedAthletes);
+    private void reportCombined(HashMap<String, Object> beans, List<Athlete> sortedAthletes, List<Athlete> sortedMen,
+            List<Athlete> sortedWomen) {
+        getOrCreateBean(beans, "mCombined");
+        beans.put("mCombined", sortedMen);
+        getOrCreateBean(beans, "wCombined");
+        beans.put("wCombined", sortedWomen);
+        getOrCreateBean(beans, "mwCombined");
+        beans.put("mwCombined", sortedAthletes);
     }
 
-    private void reportCustom(List<Athlete> sortedAthletes, List<Athlete> sortedMen, List<Athlete> sortedWomen) {
-        getOrCreateBean("mCustom");
-        reportingBeans.put("mCustom", sortedMen);
-        getOrCreateBean("wCustom");
-        reportingBeans.put("wCustom", sortedWomen);
-        getOrCreateBean("mwCustom");
-        reportingBeans.put("mwCustom", sortedAthletes);
+    private void reportCustom(HashMap<String, Object> beans, List<Athlete> sortedAthletes, List<Athlete> sortedMen,
+            List<Athlete> sortedWomen) {
+        getOrCreateBean(beans, "mCustom");
+        beans.put("mCustom", sortedMen);
+        getOrCreateBean(beans, "wCustom");
+        beans.put("wCustom", sortedWomen);
+        getOrCreateBean(beans, "mwCustom");
+        beans.put("mwCustom", sortedAthletes);
     }
 
-    private void reportSinclair(List<Athlete> sortedMen, List<Athlete> sortedWomen) {
-        getOrCreateBean("mSinclair");
-        reportingBeans.put("mSinclair", sortedMen);
-        getOrCreateBean("wSinclair");
-        reportingBeans.put("wSinclair", sortedWomen);
+    private void reportSinclair(HashMap<String, Object> beans, List<Athlete> sortedMen, List<Athlete> sortedWomen) {
+        getOrCreateBean(beans, "mSinclair");
+        beans.put("mSinclair", sortedMen);
+        getOrCreateBean(beans, "wSinclair");
+        beans.put("wSinclair", sortedWomen);
     }
 
-    private void reportSMF(List<Athlete> sortedMen, List<Athlete> sortedWomen) {
-        getOrCreateBean("mSMF");
-        reportingBeans.put("mSMF", sortedMen);
-        getOrCreateBean("wSMF");
-        reportingBeans.put("wSMF", sortedWomen);
+    private void reportSMF(HashMap<String, Object> beans, List<Athlete> sortedMen, List<Athlete> sortedWomen) {
+        getOrCreateBean(beans, "mSMF");
+        beans.put("mSMF", sortedMen);
+        getOrCreateBean(beans, "wSMF");
+        beans.put("wSMF", sortedWomen);
     }
 
-    private void reportTeams(List<Athlete> sortedAthletes, List<Athlete> sortedMen,
+    private void reportTeams(HashMap<String, Object> beans, List<Athlete> sortedAthletes, List<Athlete> sortedMen,
             List<Athlete> sortedWomen) {
         // only needed once
-        reportingBeans.put("nbMen", sortedMen.size());
-        reportingBeans.put("nbWomen", sortedWomen.size());
-        reportingBeans.put("nbAthletes", sortedMen.size() + sortedWomen.size());
+        beans.put("nbMen", sortedMen.size());
+        beans.put("nbWomen", sortedWomen.size());
+        beans.put("nbAthletes", sortedMen.size() + sortedWomen.size());
         // extract club lists
         TreeSet<String> teams = new TreeSet<>();
         for (Athlete curAthlete : sortedAthletes) {
@@ -1345,54 +1421,35 @@ public class Competition {
             }
         }
 
-        getOrCreateBean("mTeam");
-        reportingBeans.put("mTeam", sortedMen);
-        getOrCreateBean("wTeam");
-        reportingBeans.put("wTeam", sortedWomen);
-        getOrCreateBean("mwTeam");
-        reportingBeans.put("mwTeam", sortedAthletes);
+        getOrCreateBean(beans, "mTeam");
+        beans.put("mTeam", sortedMen);
+        getOrCreateBean(beans, "wTeam");
+        beans.put("wTeam", sortedWomen);
+        getOrCreateBean(beans, "mwTeam");
+        beans.put("mwTeam", sortedAthletes);
 
-        reportingBeans.put("clubs", teams);
-        reportingBeans.put("nbClubs", teams.size());
+        beans.put("clubs", teams);
+        beans.put("nbClubs", teams.size());
         if (sortedMen.size() > 0) {
-            reportingBeans.put("mClubs", teams);
+            beans.put("mClubs", teams);
         } else {
-            reportingBeans.put("mClubs", new ArrayList<String>());
+            beans.put("mClubs", new ArrayList<String>());
         }
         if (sortedWomen.size() > 0) {
-            reportingBeans.put("wClubs", teams);
+            beans.put("wClubs", teams);
         } else {
-            reportingBeans.put("wClubs", new ArrayList<String>());
-        }
-    }
-
-    private void runInThread(Runnable runnable, int priority) {
-        Thread t = new Thread(runnable);
-        AtomicReference<Throwable> errorReference = new AtomicReference<>();
-        t.setUncaughtExceptionHandler((th, ex) -> {
-            errorReference.set(ex);
-        });
-        t.setPriority(priority);
-        try {
-            t.start();
-            t.join();
-            Throwable throwable = errorReference.get();
-            if (throwable != null) {
-                throw new RuntimeException(throwable);
-            }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            beans.put("wClubs", new ArrayList<String>());
         }
     }
 
     @SuppressWarnings({ "unchecked", "unused" })
-    private void splitResultsByGroups(List<PAthlete> athletes) {
+    private void splitResultsByGroups(HashMap<String, Object> beans, List<PAthlete> athletes) {
         // create one list per competition group
         for (Group g : GroupRepository.findAll()) {
             String name = g.getName();
             if (name != null) {
-                reportingBeans.remove(name);
-                reportingBeans.put(name, new ArrayList<Athlete>());
+                beans.remove(name);
+                beans.put(name, new ArrayList<Athlete>());
             }
         }
 
@@ -1400,7 +1457,7 @@ public class Competition {
         for (Athlete a : athletes) {
             Group group = a.getGroup();
             if (group != null && group.getName() != null) {
-                List<Athlete> list = (List<Athlete>) reportingBeans.get(group.getName());
+                List<Athlete> list = (List<Athlete>) beans.get(group.getName());
                 // logger.trace("adding {} to {}", a.getShortName(), group.getName());
                 list.add(a);
             }
@@ -1408,9 +1465,9 @@ public class Competition {
         logger.debug("updated reporting data");
     }
 
-    private void teamRankings(List<PAthlete> athletes, String ageGroupPrefix) {
-        clearTeamReportingBeans(ageGroupPrefix);
-        doTeamRankings(athletes, ageGroupPrefix, true);
+    private void teamRankings(HashMap<String, Object> beans, List<PAthlete> athletes, String ageGroupPrefix) {
+        clearTeamReportingBeans(beans, ageGroupPrefix);
+        doTeamRankings(beans, athletes, ageGroupPrefix, true);
     }
 
     /**
@@ -1419,7 +1476,7 @@ public class Competition {
      * @param athletes
      * @param ageGroupPrefix
      */
-    private void teamRankingsForAgeDivision(AgeDivision ad) {
+    private void teamRankingsForAgeDivision(HashMap<String, Object> beans, AgeDivision ad) {
         if (ad == null) {
             return;
         }
@@ -1427,53 +1484,65 @@ public class Competition {
 
         for (String curAGPrefix : agePrefixes) {
             List<PAthlete> athletes = AgeGroupRepository.allPAthletesForAgeGroup(curAGPrefix);
-            doTeamRankings(athletes, ad.name(), false);
+            doTeamRankings(beans, athletes, ad.name(), false);
         }
 
         List<Athlete> sortedAthletes;
         List<Athlete> sortedMen;
         List<Athlete> sortedWomen;
 
-        sortedMen = getOrCreateBean("mTeam" + ad.name());
-        sortedWomen = getOrCreateBean("wTeam" + ad.name());
-        sortedAthletes = getOrCreateBean("mwTeam" + ad.name());
+        sortedMen = getOrCreateBean(beans, "mTeam" + ad.name());
+        sortedWomen = getOrCreateBean(beans, "wTeam" + ad.name());
+        sortedAthletes = getOrCreateBean(beans, "mwTeam" + ad.name());
         AthleteSorter.teamPointsOrder(sortedMen, Ranking.TOTAL);
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.TOTAL);
         AthleteSorter.teamPointsOrder(sortedAthletes, Ranking.TOTAL);
 
-        reportTeams(sortedAthletes, sortedMen, sortedWomen);
+        reportTeams(beans, sortedAthletes, sortedMen, sortedWomen);
 
-        sortedMen = getOrCreateBean("mCombined" + ad.name());
-        sortedWomen = getOrCreateBean("wCombined" + ad.name());
-        sortedAthletes = getOrCreateBean("mwCombined" + ad.name());
+        sortedMen = getOrCreateBean(beans, "mCombined" + ad.name());
+        sortedWomen = getOrCreateBean(beans, "wCombined" + ad.name());
+        sortedAthletes = getOrCreateBean(beans, "mwCombined" + ad.name());
         AthleteSorter.teamPointsOrder(sortedMen, Ranking.SNATCH_CJ_TOTAL);
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.SNATCH_CJ_TOTAL);
         AthleteSorter.teamPointsOrder(sortedAthletes, Ranking.SNATCH_CJ_TOTAL);
 
-        reportCombined(sortedAthletes, sortedMen, sortedWomen);
+        reportCombined(beans, sortedAthletes, sortedMen, sortedWomen);
 
-        sortedMen = getOrCreateBean("mCustom" + ad.name());
-        sortedWomen = getOrCreateBean("wCustom" + ad.name());
-        sortedAthletes = getOrCreateBean("mwCustom" + ad.name());
+        sortedMen = getOrCreateBean(beans, "mCustom" + ad.name());
+        sortedWomen = getOrCreateBean(beans, "wCustom" + ad.name());
+        sortedAthletes = getOrCreateBean(beans, "mwCustom" + ad.name());
         AthleteSorter.teamPointsOrder(sortedMen, Ranking.CUSTOM);
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.CUSTOM);
         AthleteSorter.teamPointsOrder(sortedAthletes, Ranking.CUSTOM);
 
-        reportCustom(sortedAthletes, sortedMen, sortedWomen);
+        reportCustom(beans, sortedAthletes, sortedMen, sortedWomen);
 
-        sortedMen = getOrCreateBean("mTeamSinclair" + ad.name());
-        sortedWomen = getOrCreateBean("wTeamSinclair" + ad.name());
+        sortedMen = getOrCreateBean(beans, "mTeamSinclair" + ad.name());
+        sortedWomen = getOrCreateBean(beans, "wTeamSinclair" + ad.name());
         AthleteSorter.teamPointsOrder(sortedMen, Ranking.BW_SINCLAIR);
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.BW_SINCLAIR);
 
-        reportSinclair(sortedMen, sortedWomen);
+        reportSinclair(beans, sortedMen, sortedWomen);
 
-        sortedMen = getOrCreateBean("mTeamSMF" + ad.name());
-        sortedWomen = getOrCreateBean("wTeamSMF" + ad.name());
+        sortedMen = getOrCreateBean(beans, "mTeamSMF" + ad.name());
+        sortedWomen = getOrCreateBean(beans, "wTeamSMF" + ad.name());
         AthleteSorter.teamPointsOrder(sortedMen, Ranking.SMM);
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.SMM);
 
-        reportSMF(sortedMen, sortedWomen);
+        reportSMF(beans, sortedMen, sortedWomen);
+    }
+
+    /**
+     * The published map may be shared with the reporting cache and read by other threads, so it is never modified: a
+     * modified copy replaces it.
+     */
+    private void updateReportingBeans(Consumer<HashMap<String, Object>> update) {
+        synchronized (reportingBeansLock) {
+            HashMap<String, Object> beans = new HashMap<>(reportingBeans);
+            update.accept(beans);
+            reportingBeans = beans;
+        }
     }
 
     public boolean isSinclair() {
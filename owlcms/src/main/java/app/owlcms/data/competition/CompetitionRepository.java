@@ -13,7 +13,9 @@ import javax.persistence.Query;
 
 import org.slf4j.LoggerFactory;
 
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.records.RecordIndex;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -94,6 +96,8 @@ public class CompetitionRepository {
             doRemoveAll(em);
             return null;
         });
+        RecordIndex.getCurrent().invalidate();
+        ReportingService.getCurrent().dataChanged();
     }
 
     /**
@@ -110,6 +114,10 @@ public class CompetitionRepository {
             return nc;
         });
 
+        // tie-break rules may have changed
+        RankingIndex.getCurrent().invalidate();
+        ReportingService.getCurrent().dataChanged();
+
         Competition current = Competition.getCurrent();
         return current;
     }
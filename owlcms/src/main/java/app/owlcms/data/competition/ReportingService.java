@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.competition;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.agegroup.AgeGroupRepository;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.spreadsheet.PAthlete;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Computes the reporting beans used by result documents, on a single low-priority background thread.
+ *
+ * Results are cached by age group prefix, age division and data version; the data version changes whenever
+ * {@link #dataChanged()} is called (athlete saved, categories or competition settings changed). Requests for a
+ * computation that is already running wait for it instead of starting another one. A computation that becomes out of
+ * date is cancelled between steps, and waiting callers start over with the new data; after a few such restarts the
+ * computation is allowed to finish so that a busy competition cannot prevent a download.
+ *
+ * @author owlcms
+ */
+public class ReportingService {
+
+    private class Computation implements Runnable {
+        private volatile boolean cancellable = true;
+        private volatile boolean cancelled;
+        private final CompletableFuture<HashMap<String, Object>> future = new CompletableFuture<>();
+        private final Key key;
+
+        private Computation(Key key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                long start = System.currentTimeMillis();
+                List<PAthlete> athletes = AgeGroupRepository.allPAthletesForAgeGroupAgeDivision(key.ageGroupPrefix,
+                        key.ageDivision);
+                HashMap<String, Object> beans = Competition.getCurrent().buildReportingInfo(athletes,
+                        key.ageGroupPrefix, key.ageDivision, this::isCancelled);
+                logger.debug("computed reporting info {} in {}ms", key, System.currentTimeMillis() - start);
+                completed(this, beans);
+                future.complete(beans);
+            } catch (CancellationException e) {
+                logger.debug("cancelled reporting info {}", key);
+                removeComputation(this);
+                future.completeExceptionally(e);
+            } catch (Throwable t) {
+                removeComputation(this);
+                future.completeExceptionally(t);
+            }
+        }
+
+        private boolean isCancelled() {
+            return cancelled && cancellable;
+        }
+    }
+
+    private static final class Key {
+        private final AgeDivision ageDivision;
+        private final String ageGroupPrefix;
+        private final long version;
+
+        private Key(String ageGroupPrefix, AgeDivision ageDivision, long version) {
+            this.ageGroupPrefix = (ageGroupPrefix == null || ageGroupPrefix.isBlank()) ? null : ageGroupPrefix;
+            this.ageDivision = ageDivision;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key o = (Key) obj;
+            return version == o.version && ageDivision == o.ageDivision
+                    && Objects.equals(ageGroupPrefix, o.ageGroupPrefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ageGroupPrefix, ageDivision, version);
+        }
+
+        @Override
+        public String toString() {
+            return ageGroupPrefix + "/" + ageDivision + "@" + version;
+        }
+    }
+
+    /**
+     * number of times a waiting caller accepts that its computation is cancelled by newer data.
+     */
+    private static final int MAX_RESTARTS = 3;
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(ReportingService.class);
+
+    private static ReportingService current = new ReportingService();
+
+    public static ReportingService getCurrent() {
+        return current;
+    }
+
+    private final Map<Key, HashMap<String, Object>> cache = new HashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "reporting");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Map<Key, Computation> running = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * The data used for reporting has changed. Cached results are dropped and computations in progress are
+     * cancelled.
+     */
+    public synchronized void dataChanged() {
+        long v = version.incrementAndGet();
+        cache.keySet().removeIf(k -> k.version < v);
+        for (Iterator<Computation> iterator = running.values().iterator(); iterator.hasNext();) {
+            Computation c = iterator.next();
+            if (c.key.version < v && c.cancellable) {
+                c.cancelled = true;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return current data version
+     */
+    public long getDataVersion() {
+        return version.get();
+    }
+
+    /**
+     * Get the reporting beans, waiting for them to be computed if needed.
+     *
+     * @param ageGroupPrefix null or blank for all age groups
+     * @param ageDivision    null for all age divisions
+     * @return a copy of the reporting beans; the lists inside are shared and must not be modified.
+     */
+    public HashMap<String, Object> getReportingInfo(String ageGroupPrefix, AgeDivision ageDivision) {
+        int restarts = 0;
+        while (true) {
+            CompletableFuture<HashMap<String, Object>> future = submit(ageGroupPrefix, ageDivision,
+                    restarts < MAX_RESTARTS);
+            try {
+                return new HashMap<>(future.get());
+            } catch (CancellationException e) {
+                // newer data, start over
+                restarts++;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Start computing the reporting beans in the background, unless they are available or being computed.
+     *
+     * The future completes with a {@link CancellationException} if the data changes before the computation is over.
+     *
+     * @param ageGroupPrefix null or blank for all age groups
+     * @param ageDivision    null for all age divisions
+     * @return the reporting beans, shared with other callers; must not be modified.
+     */
+    public CompletableFuture<HashMap<String, Object>> submit(String ageGroupPrefix, AgeDivision ageDivision) {
+        return submit(ageGroupPrefix, ageDivision, true);
+    }
+
+    private void completed(Computation c, HashMap<String, Object> beans) {
+        boolean current;
+        synchronized (this) {
+            running.remove(c.key, c);
+            current = c.key.version == version.get();
+            if (current) {
+                cache.put(c.key, beans);
+            }
+        }
+        // outside of our lock: Competition calls dataChanged() and must not wait for us while we wait for it
+        if (current) {
+            Competition.getCurrent().publishReportingBeans(beans);
+        }
+    }
+
+    private synchronized void removeComputation(Computation c) {
+        running.remove(c.key, c);
+    }
+
+    private synchronized CompletableFuture<HashMap<String, Object>> submit(String ageGroupPrefix,
+            AgeDivision ageDivision, boolean cancellable) {
+        Key key = new Key(ageGroupPrefix, ageDivision, version.get());
+        HashMap<String, Object> beans = cache.get(key);
+        if (beans != null) {
+            return CompletableFuture.completedFuture(beans);
+        }
+        Computation c = running.get(key);
+        if (c == null) {
+            c = new Computation(key);
+            running.put(key, c);
+            executor.execute(c);
+        }
+        if (!cancellable) {
+            c.cancellable = false;
+        }
+        return c.future;
+    }
+}
@@ -23,6 +23,8 @@ import javax.persistence.Id;
 import javax.persistence.Lob;
 import javax.persistence.Transient;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.engine.jdbc.BlobProxy;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +32,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import app.owlcms.apputils.AccessUtils;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.data.jpa.LocaleAttributeConverter;
 import app.owlcms.servlet.FileServlet;
@@ -40,6 +43,7 @@ import ch.qos.logback.classic.Logger;
  * Class Config.
  */
 @Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.CONFIG)
 
 //must be listed in app.owlcms.data.jpa.JPAService.entityClassNames()
 @Entity
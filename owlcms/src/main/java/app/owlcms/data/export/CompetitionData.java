@@ -6,74 +6,252 @@
  *******************************************************************************/
 package app.owlcms.data.export;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.EntityManager;
 
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.agegroup.AgeGroupRepository;
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.competition.CompetitionRepository;
+import app.owlcms.data.competition.ReportingService;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.data.platform.Platform;
 import app.owlcms.data.platform.PlatformRepository;
+import app.owlcms.data.records.RecordIndex;
 import app.owlcms.i18n.Translator;
+import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.ResourceWalker;
+import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Logger;
 
+/**
+ * Export and import of the whole database as JSON.
+ *
+ * The export is written section by section, in the same order and format as a serialization of this class, but the
+ * athletes are read and written a page at a time. The import reads the sections in that order; the reference data
+ * (age groups, categories, groups) is persisted in one transaction, and athletes are persisted in batches as they are
+ * parsed. Backups can be gzip-compressed (exportGzip parameter, OWLCMS_EXPORTGZIP); compressed files are recognized
+ * on import.
+ *
+ * @author owlcms
+ */
 public class CompetitionData {
 
+    /**
+     * Reads the sections in file order, sharing one deserialization context so that references to groups and
+     * categories inside athletes are resolved, and hands athletes over in batches.
+     */
+    private class StreamingDeserializer extends StdDeserializer<CompetitionData> {
+
+        private static final long serialVersionUID = 1L;
+
+        private StreamingDeserializer() {
+            super(CompetitionData.class);
+        }
+
+        @Override
+        public CompetitionData deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                return (CompetitionData) ctxt.handleUnexpectedToken(CompetitionData.class, p);
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                switch (name) {
+                case "config":
+                    setConfig(ctxt.readValue(p, Config.class));
+                    break;
+                case "competition":
+                    setCompetition(ctxt.readValue(p, Competition.class));
+                    break;
+                case "platforms":
+                    setPlatforms(ctxt.readValue(p, listOf(ctxt, Platform.class)));
+                    break;
+                case "groups":
+                    setGroups(ctxt.readValue(p, listOf(ctxt, Group.class)));
+                    break;
+                case "ageGroups":
+                    setAgeGroups(ctxt.readValue(p, listOf(ctxt, AgeGroup.class)));
+                    break;
+                case "athletes":
+                    readAthletes(p, ctxt);
+                    break;
+                default:
+                    p.skipChildren();
+                }
+            }
+            return CompetitionData.this;
+        }
+
+        private JavaType listOf(DeserializationContext ctxt, Class<?> elementClass) {
+            return ctxt.getTypeFactory().constructCollectionType(List.class, elementClass);
+        }
+
+        private void readAthletes(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                return;
+            }
+            List<Athlete> batch = new ArrayList<>(PAGE_SIZE);
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                Athlete a = ctxt.readValue(p, Athlete.class);
+                if (a != null) {
+                    batch.add(a);
+                }
+                if (batch.size() >= PAGE_SIZE) {
+                    persistAthletes(batch);
+                    batch.clear();
+                }
+            }
+            persistAthletes(batch);
+        }
+    }
+
     final static Logger logger = (Logger) LoggerFactory.getLogger(CompetitionData.class);
 
+    /**
+     * athletes read from the database or persisted per transaction.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    private static final ExecutorService exportExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "json-export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @return true if the backups are gzip-compressed.
+     */
+    public static boolean isExportCompressed() {
+        return StartupUtils.getBooleanParam("exportGzip");
+    }
+
+    private static InputStream decompressIfNeeded(InputStream inputStream) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(inputStream);
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xFF) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return new GZIPInputStream(in);
+        }
+        return in;
+    }
+
+    private static ObjectMapper getMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper;
+    }
+
     private List<AgeGroup> ageGroups;
     private List<Athlete> athletes;
     private Competition competition;
     private Config config;
     private List<Group> groups;
     private List<Platform> platforms;
+    private boolean referenceDataPersisted;
 
     public CompetitionData() {
     }
 
+    /**
+     * The database as JSON, gzip-compressed if {@link #isExportCompressed()}.
+     *
+     * @return a stream written to by a background thread
+     */
     public InputStream exportData() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
+        boolean compressed = isExportCompressed();
         try {
-            ObjectWriter writerWithDefaultPrettyPrinter = mapper.writerWithDefaultPrettyPrinter();
-
             PipedOutputStream out = new PipedOutputStream();
-            PipedInputStream in = new PipedInputStream(out);
-            new Thread(() -> {
-                try {
-                    writerWithDefaultPrettyPrinter.writeValue(out, this.fromDatabase());
-                    out.flush();
-                    out.close();
+            PipedInputStream in = new PipedInputStream(out, 64 * 1024);
+            exportExecutor.execute(() -> {
+                try (OutputStream os = compressed ? new GZIPOutputStream(out) : out) {
+                    exportData(os);
                 } catch (Throwable e) {
-                    e.printStackTrace();
+                    logger.error("export failed {}", LoggerUtils.stackTrace(e));
                 }
-            }).start();
+            });
             return in;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Write the database as JSON. Athletes are read and written a page at a time, so the whole database is never in
+     * memory.
+     *
+     * @param out not closed
+     * @throws IOException
+     */
+    public void exportData(OutputStream out) throws IOException {
+        ObjectMapper mapper = getMapper();
+        mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartObject();
+            gen.writeFieldName("config");
+            mapper.writeValue(gen, Config.getCurrent());
+            gen.writeFieldName("competition");
+            mapper.writeValue(gen, Competition.getCurrent());
+            gen.writeFieldName("platforms");
+            mapper.writeValue(gen, PlatformRepository.findAll());
+            gen.writeFieldName("groups");
+            mapper.writeValue(gen, GroupRepository.findAll());
+            gen.writeFieldName("ageGroups");
+            mapper.writeValue(gen, AgeGroupRepository.findAll());
+            gen.writeFieldName("athletes");
+            gen.writeStartArray();
+            JPAService.runInTransaction(em -> {
+                writeAthletes(em, mapper, gen);
+                return null;
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
     /**
      * For debugging
      *
@@ -140,11 +318,10 @@ public class CompetitionData {
     }
 
     public CompetitionData importData(InputStream serialized) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
+        ObjectMapper mapper = getMapper();
         CompetitionData newData;
         try {
-            newData = mapper.readValue(serialized, CompetitionData.class);
+            newData = mapper.readValue(decompressIfNeeded(serialized), CompetitionData.class);
             logger.debug("after unmarshall {}", newData.getPlatforms());
             return newData;
         } catch (Exception e) {
@@ -162,50 +339,33 @@ public class CompetitionData {
         return newData;
     }
 
+    /**
+     * Replace the database with the content of a JSON export, possibly gzip-compressed.
+     *
+     * Athletes are persisted in batches as they are read, after the reference data they point to.
+     *
+     * @param inputStream
+     */
     public void restore(InputStream inputStream) {
         this.removeAll();
-        JPAService.runInTransaction(em -> {
-            try {
-                Athlete.setSkipValidationsDuringImport(true);
-
-                CompetitionData updated = this.importData(inputStream);
-                Config config = updated.getConfig();
-                ResourceWalker.initLocalDir();
-                
-                Locale defaultLocale = config.getDefaultLocale();
-                Translator.reset();
-                Translator.setForcedLocale(defaultLocale);
-
-                Competition competition = updated.getCompetition();
-
-                for (AgeGroup ag : updated.getAgeGroups()) {
-                    em.persist(ag);
-                }
-
-                for (Athlete a : updated.getAthletes()) {
-                    // defensive programming if import file is corrupt
-                    // a.checkParticipations();
-                    em.persist(a);
-                }
-
-                for (Group g : updated.getGroups()) {
-                    em.merge(g);
-                }
-//
-//                for (Platform p : updated.getPlatforms()) {
-//                    em.merge(p);
-//                }
-//
-                em.merge(competition);
-
-                em.flush();
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                Athlete.setSkipValidationsDuringImport(false);
+        ObjectMapper mapper = getMapper();
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(CompetitionData.class, new StreamingDeserializer());
+        mapper.registerModule(module);
+        try {
+            Athlete.setSkipValidationsDuringImport(true);
+            try (JsonParser p = mapper.getFactory().createParser(decompressIfNeeded(inputStream))) {
+                mapper.readValue(p, CompetitionData.class);
             }
-            return null;
-        });
+            // file without athletes
+            persistReferenceData();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            Athlete.setSkipValidationsDuringImport(false);
+            RankingIndex.getCurrent().invalidate();
+            ReportingService.getCurrent().dataChanged();
+        }
     }
 
     public void setAgeGroups(List<AgeGroup> ageGroups) {
@@ -249,42 +409,75 @@ public class CompetitionData {
         this.platforms = platforms;
     }
 
-    private void removeAll() {
+    /**
+     * Persist the athletes read so far. The groups are replaced by the instances from the current transaction, since
+     * the ones read from the file were persisted in an earlier transaction.
+     *
+     * @param athletes
+     */
+    private void persistAthletes(List<Athlete> athletes) {
+        persistReferenceData();
+        if (athletes.isEmpty()) {
+            return;
+        }
         JPAService.runInTransaction(em -> {
-            CompetitionRepository.doRemoveAll(em);
-            try {
-                this.fromDatabase();
-                for (Athlete a : this.getAthletes()) {
-                    Athlete aX = em.find(Athlete.class, a.getId());
-                    if (aX != null) {
-                        em.remove(aX);
-                    }
-                }
-                for (Group g : this.getGroups()) {
-                    Group gX = em.find(Group.class, g.getId());
-                    if (gX != null) {
-                        em.remove(gX);
-                    }
+            Map<Long, Group> groupsById = new HashMap<>();
+            for (Athlete a : athletes) {
+                Group g = a.getGroup();
+                if (g != null) {
+                    a.setGroup(groupsById.computeIfAbsent(g.getId(), (id) -> em.find(Group.class, id)));
                 }
-                for (AgeGroup ag : this.getAgeGroups()) {
-                    AgeGroup agX = em.find(AgeGroup.class, ag.getId());
-                    if (agX != null) {
-                        em.remove(agX);
-                    }
+                em.persist(a);
+            }
+            em.flush();
+            return null;
+        });
+        logger.debug("imported {} athletes", athletes.size());
+    }
+
+    /**
+     * Persist everything athletes refer to, once, before the first athletes.
+     */
+    private void persistReferenceData() {
+        if (referenceDataPersisted) {
+            return;
+        }
+        referenceDataPersisted = true;
+
+        ResourceWalker.initLocalDir();
+        if (getConfig() != null) {
+            Locale defaultLocale = getConfig().getDefaultLocale();
+            Translator.reset();
+            Translator.setForcedLocale(defaultLocale);
+        }
+
+        JPAService.runInTransaction(em -> {
+            if (getAgeGroups() != null) {
+                for (AgeGroup ag : getAgeGroups()) {
+                    em.persist(ag);
                 }
-                for (Platform p : this.getPlatforms()) {
-                    Platform pX = em.find(Platform.class, p.getId());
-                    if (pX != null) {
-                        em.remove(pX);
-                    }
+            }
+            if (getGroups() != null) {
+                for (Group g : getGroups()) {
+                    em.merge(g);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
+            if (getCompetition() != null) {
+                em.merge(getCompetition());
+            }
+            em.flush();
             return null;
         });
     }
 
+    private void removeAll() {
+        JPAService.runInTransaction(em -> {
+            CompetitionRepository.doRemoveAll(em);
+            return null;
+        });
+        RecordIndex.getCurrent().invalidate();
+    }
+
     /**
      * @param competition the competition to set
      */
@@ -299,4 +492,32 @@ public class CompetitionData {
     private void setConfigForExport(Config config) {
         this.config = config;
     }
+
+    private void writeAthletes(EntityManager em, ObjectMapper mapper, JsonGenerator gen) {
+        long last = Long.MIN_VALUE;
+        while (true) {
+            List<Long> ids = em
+                    .createQuery("select a.id from Athlete a where a.id > :last order by a.id", Long.class)
+                    .setParameter("last", last)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            if (ids.isEmpty()) {
+                return;
+            }
+            List<Athlete> page = em
+                    .createQuery("select distinct a from Athlete a left join fetch a.participations "
+                            + "where a.id in :ids order by a.id", Athlete.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            try {
+                for (Athlete a : page) {
+                    mapper.writeValue(gen, a);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            last = ids.get(ids.size() - 1);
+            em.clear();
+        }
+    }
 }
@@ -16,6 +16,8 @@ import org.slf4j.LoggerFactory;
 
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.category.Category;
+import app.owlcms.data.competition.ReportingService;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Logger;
@@ -74,7 +76,8 @@ public class GroupRepository {
 
     @SuppressWarnings("unchecked")
     public static List<Group> doFindAll(EntityManager em) {
-        return em.createQuery("select c from CompetitionGroup c order by c.name").getResultList();
+        return JPAService.cacheable(em.createQuery("select c from CompetitionGroup c order by c.name"),
+                CacheRegions.REFERENCE_QUERIES).getResultList();
     }
 
     @SuppressWarnings("unchecked")
@@ -91,8 +94,7 @@ public class GroupRepository {
      */
     @SuppressWarnings("unchecked")
     public static List<Group> findAll() {
-        return JPAService.runInTransaction(
-                em -> em.createQuery("select c from CompetitionGroup c order by c.name").getResultList());
+        return JPAService.runInTransaction(em -> doFindAll(em));
     }
 
     public static Group findByName(String name) {
@@ -122,7 +124,10 @@ public class GroupRepository {
      * @return the group
      */
     public static Group save(Group Group) {
-        return JPAService.runInTransaction(em -> em.merge(Group));
+        Group saved = JPAService.runInTransaction(em -> em.merge(Group));
+        // group information appears on start lists and protocols
+        ReportingService.getCurrent().dataChanged();
+        return saved;
     }
 
     public List<Category> allCategories(Group g) {
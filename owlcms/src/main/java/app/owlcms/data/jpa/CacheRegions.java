@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.jpa;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Second-level cache regions and their sizes.
+ *
+ * Entity regions are sized to hold a large competition (the defaults can be multiplied with the dbCacheScale
+ * parameter, OWLCMS_DBCACHESCALE). Query result regions are used by the queries run on every decision and on every
+ * refresh of the lifting order; Hibernate discards their results as soon as one of the tables they read is written.
+ *
+ * @author owlcms
+ */
+public class CacheRegions {
+
+    public static final String AGEGROUP = "agegroup";
+    public static final String AGEGROUP_CATEGORIES = "agegroup.categories";
+    public static final String ATHLETE = "athlete";
+    public static final String ATHLETE_PARTICIPATIONS = "athlete.participations";
+    public static final String CATEGORY = "category";
+    public static final String COMPETITION = "competition";
+    public static final String CONFIG = "config";
+    public static final String GROUP = "group";
+    public static final String PARTICIPATION = "participation";
+    public static final String PLATFORM = "platform";
+    public static final String RECORD = "record";
+
+    /**
+     * results of queries on athletes and participations
+     */
+    public static final String ATHLETE_QUERIES = "query.athletes";
+    /**
+     * results of queries on categories, groups and records
+     */
+    public static final String REFERENCE_QUERIES = "query.reference";
+
+    /**
+     * Hibernate's default regions; the timestamps must never be evicted, or cached query results would be discarded.
+     */
+    static final String QUERY_RESULTS = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    static final List<String> ENTITY_REGIONS = ImmutableList.of(ATHLETE, PARTICIPATION, ATHLETE_PARTICIPATIONS,
+            CATEGORY, AGEGROUP, AGEGROUP_CATEGORIES, GROUP, PLATFORM, RECORD, COMPETITION, CONFIG);
+    static final List<String> QUERY_REGIONS = ImmutableList.of(ATHLETE_QUERIES, REFERENCE_QUERIES, QUERY_RESULTS);
+
+    private static AtomicInteger managerCount = new AtomicInteger();
+
+    /**
+     * A new cache manager is needed every time the entity manager factory is created, since Hibernate closes it when
+     * the factory is closed.
+     *
+     * @param scale multiplier for the number of entries
+     * @return a cache manager with all the regions created
+     */
+    static CacheManager createCacheManager(int scale) {
+        int s = Math.max(1, scale);
+        ConfigurationBuilder config = ConfigurationBuilder.newConfigurationBuilder()
+                .addCache(ATHLETE, heap(2000 * s))
+                .addCache(PARTICIPATION, heap(8000 * s))
+                .addCache(ATHLETE_PARTICIPATIONS, heap(2000 * s))
+                .addCache(CATEGORY, heap(1000 * s))
+                .addCache(AGEGROUP, heap(200 * s))
+                .addCache(AGEGROUP_CATEGORIES, heap(200 * s))
+                .addCache(GROUP, heap(200 * s))
+                .addCache(PLATFORM, heap(20 * s))
+                .addCache(RECORD, heap(10000 * s))
+                .addCache(COMPETITION, heap(10))
+                .addCache(CONFIG, heap(10))
+                .addCache(ATHLETE_QUERIES, heap(500 * s))
+                .addCache(REFERENCE_QUERIES, heap(500 * s))
+                .addCache(QUERY_RESULTS, heap(200 * s))
+                // one entry per table, must not be evicted
+                .addCache(UPDATE_TIMESTAMPS, heap(1000));
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching
+                .getCachingProvider(EhcacheCachingProvider.class.getName());
+        URI uri = URI.create("owlcms:hibernate:" + managerCount.incrementAndGet());
+        return provider.getCacheManager(uri, config.build());
+    }
+
+    private static CacheConfiguration<Object, Object> heap(long entries) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(entries)).build();
+    }
+}
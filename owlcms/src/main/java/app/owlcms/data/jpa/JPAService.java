@@ -6,6 +6,8 @@
  *******************************************************************************/
 package app.owlcms.data.jpa;
 
+import static org.hibernate.cfg.AvailableSettings.AUTO_EVICT_COLLECTION_CACHE;
+import static org.hibernate.cfg.AvailableSettings.BATCH_VERSIONED_DATA;
 import static org.hibernate.cfg.AvailableSettings.CACHE_REGION_FACTORY;
 import static org.hibernate.cfg.AvailableSettings.DIALECT;
 import static org.hibernate.cfg.AvailableSettings.GENERATE_STATISTICS;
@@ -14,6 +16,8 @@ import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_DRIVER;
 import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_PASSWORD;
 import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_URL;
 import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_USER;
+import static org.hibernate.cfg.AvailableSettings.ORDER_INSERTS;
+import static org.hibernate.cfg.AvailableSettings.ORDER_UPDATES;
 import static org.hibernate.cfg.AvailableSettings.QUERY_STARTUP_CHECKING;
 import static org.hibernate.cfg.AvailableSettings.SHOW_SQL;
 import static org.hibernate.cfg.AvailableSettings.STATEMENT_BATCH_SIZE;
@@ -28,17 +32,26 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
 import javax.persistence.spi.PersistenceUnitInfo;
 
 import org.h2.tools.Server;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
 import org.hibernate.dialect.H2Dialect;
 import org.hibernate.hikaricp.internal.HikariCPConnectionProvider;
+import org.hibernate.jpa.QueryHints;
 import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
 import org.hibernate.jpa.boot.internal.PersistenceUnitInfoDescriptor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
@@ -47,13 +60,16 @@ import com.google.common.collect.ImmutableMap;
 import app.owlcms.Main;
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.category.Participation;
 import app.owlcms.data.competition.Competition;
+import app.owlcms.data.competition.ReportingService;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.platform.Platform;
 import app.owlcms.data.records.RecordEvent;
+import app.owlcms.data.records.RecordIndex;
 import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
@@ -69,10 +85,27 @@ public class JPAService {
     private static final Logger logger = (Logger) LoggerFactory.getLogger(JPAService.class);
     private static final Logger startLogger = (Logger) LoggerFactory.getLogger(Main.class);
 
+    private static ScheduledExecutorService statisticsLogger;
+
     static {
         logger.setLevel(Level.INFO);
     }
 
+    /**
+     * Cache the results of a query that is run often. Hibernate discards the cached results whenever one of the tables
+     * read by the query is written.
+     *
+     * @param <Q>    the query type
+     * @param query  the query
+     * @param region one of the query regions in {@link CacheRegions}
+     * @return the query
+     */
+    public static <Q extends Query> Q cacheable(Q query, String region) {
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        query.setHint(QueryHints.HINT_CACHE_REGION, region);
+        return query;
+    }
+
     /**
      * Close.
      */
@@ -83,6 +116,33 @@ public class JPAService {
         setFactory(null);
     }
 
+    /**
+     * Statistics for the second-level cache regions and the number of statements sent to the database.
+     *
+     * @return a readable summary, empty if statistics are not enabled (dbStatistics parameter, OWLCMS_DBSTATISTICS)
+     */
+    public static String getCacheStatistics() {
+        if (getFactory() == null) {
+            return "";
+        }
+        Statistics stats = getFactory().unwrap(SessionFactory.class).getStatistics();
+        if (!stats.isStatisticsEnabled()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("statements=").append(stats.getPrepareStatementCount());
+        sb.append(" queries=").append(stats.getQueryExecutionCount());
+        sb.append(" queryCache(hit/miss/put)=").append(stats.getQueryCacheHitCount()).append("/")
+                .append(stats.getQueryCacheMissCount()).append("/").append(stats.getQueryCachePutCount());
+        for (String region : CacheRegions.ENTITY_REGIONS) {
+            appendRegion(sb, region, stats.getDomainDataRegionStatistics(region));
+        }
+        for (String region : CacheRegions.QUERY_REGIONS) {
+            appendRegion(sb, region, stats.getQueryRegionStatistics(region));
+        }
+        return sb.toString();
+    }
+
     /**
      * @return the factory
      */
@@ -117,6 +177,12 @@ public class JPAService {
                 hibernateLogger.setLevel(prevHibernateLevel);
             }
             setFactory(factory2);
+            if (isStatisticsEnabled()) {
+                startStatisticsLogging();
+            }
+            RankingIndex.getCurrent().invalidate();
+            RecordIndex.getCurrent().invalidate();
+            ReportingService.getCurrent().dataChanged();
         }
     }
 
@@ -343,6 +409,31 @@ public class JPAService {
         return props;
     }
 
+    private static void appendRegion(StringBuilder sb, String region, CacheRegionStatistics rs) {
+        if (rs == null) {
+            return;
+        }
+        sb.append(" ").append(region).append("(hit/miss/put)=").append(rs.getHitCount()).append("/")
+                .append(rs.getMissCount()).append("/").append(rs.getPutCount());
+    }
+
+    private static boolean isStatisticsEnabled() {
+        return StartupUtils.getBooleanParam("dbStatistics");
+    }
+
+    private static synchronized void startStatisticsLogging() {
+        if (statisticsLogger != null) {
+            return;
+        }
+        statisticsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-statistics");
+            t.setDaemon(true);
+            return t;
+        });
+        statisticsLogger.scheduleWithFixedDelay(() -> logger.info("cache statistics {}", getCacheStatistics()), 1, 1,
+                TimeUnit.MINUTES);
+    }
+
     /**
      * @param factory the factory to set
      */
@@ -362,6 +453,8 @@ public class JPAService {
         PersistenceUnitInfo persistenceUnitInfo = new PersistenceUnitInfoImpl(JPAService.class.getSimpleName(),
                 entityClassNames(), properties);
         Map<String, Object> configuration = new HashMap<>();
+        configuration.put(ConfigSettings.CACHE_MANAGER,
+                CacheRegions.createCacheManager(StartupUtils.getIntegerParam("dbCacheScale", 1)));
 
         factory = new EntityManagerFactoryBuilderImpl(new PersistenceUnitInfoDescriptor(persistenceUnitInfo),
                 configuration).build();
@@ -423,9 +516,13 @@ public class JPAService {
         ImmutableMap<String, Object> vals = new ImmutableMap.Builder<String, Object>()
                 .put(HBM2DDL_AUTO, "update")
                 .put(SHOW_SQL, false)
-                .put(QUERY_STARTUP_CHECKING, false).put(GENERATE_STATISTICS, false)
-                .put(USE_REFLECTION_OPTIMIZER, false).put(USE_SECOND_LEVEL_CACHE, true).put(USE_QUERY_CACHE, false)
+                .put(QUERY_STARTUP_CHECKING, false).put(GENERATE_STATISTICS, isStatisticsEnabled())
+                .put(USE_REFLECTION_OPTIMIZER, false).put(USE_SECOND_LEVEL_CACHE, true).put(USE_QUERY_CACHE, true)
                 .put(USE_STRUCTURED_CACHE, false).put(STATEMENT_BATCH_SIZE, 20)
+                // group the statements by table and primary key so that rank updates are sent as JDBC batches
+                .put(ORDER_UPDATES, true).put(ORDER_INSERTS, true).put(BATCH_VERSIONED_DATA, true)
+                // participations are added and removed through the owning side
+                .put(AUTO_EVICT_COLLECTION_CACHE, true)
                 .put(CACHE_REGION_FACTORY, "org.hibernate.cache.jcache.JCacheRegionFactory")
                 .put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider")
                 .put("hibernate.javax.cache.missing_cache_strategy", "create")
@@ -49,7 +49,7 @@ public class RecordDefinitionReader {
 
     public static int createRecords(Workbook workbook, String name, String baseName) {
 
-        return JPAService.runInTransaction(em -> {
+        int created = JPAService.runInTransaction(em -> {
             int iRecord = 0;
 
             for (Sheet sheet : workbook) {
@@ -230,6 +230,8 @@ public class RecordDefinitionReader {
             logger.info("inserted {} record entries.", iRecord);
             return iRecord;
         });
+        RecordIndex.getCurrent().invalidate();
+        return created;
     }
 
     private static boolean isEmptyRow(RecordEvent rec) {
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.records;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.jpa.JPAService;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * In-memory index of the records, so that finding the records for the current athlete does not query the database
+ * after every lift.
+ *
+ * Records are grouped by gender, age group interval and body weight interval; within an interval only the largest
+ * record of each kind is kept. The result for a given gender, age and body weight is cached.
+ *
+ * The index is reloaded from the database on first use after {@link #invalidate()}, which must be called whenever
+ * records are loaded, established, cancelled or deleted.
+ *
+ * @author owlcms
+ */
+public class RecordIndex {
+
+    private static final class Interval {
+        private final int ageLower;
+        private final int ageUpper;
+        private final int bwLower;
+        private final Integer bwUpper;
+        private final Gender gender;
+
+        private Interval(RecordEvent rec) {
+            this.gender = rec.getGender();
+            this.ageLower = rec.getAgeGrpLower();
+            this.ageUpper = rec.getAgeGrpUpper();
+            this.bwLower = rec.getBwCatLower();
+            this.bwUpper = rec.getBwCatUpper();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Interval)) {
+                return false;
+            }
+            Interval o = (Interval) obj;
+            return ageLower == o.ageLower && ageUpper == o.ageUpper && bwLower == o.bwLower
+                    && Objects.equals(bwUpper, o.bwUpper) && gender == o.gender;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gender, ageLower, ageUpper, bwLower, bwUpper);
+        }
+
+        /**
+         * Same conditions as the query previously used: null means no filtering.
+         */
+        private boolean matches(Gender g, Integer age, Double bw) {
+            if (g != null && g != gender) {
+                return false;
+            }
+            if (age != null && (ageLower > age || ageUpper < age)) {
+                return false;
+            }
+            if (bw != null && (bwUpper == null || bwLower >= bw || bwUpper < bw)) {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Immutable once built; replaced as a whole when the records change.
+     */
+    private static final class Snapshot {
+        private final Map<String, List<RecordEvent>> cache = new ConcurrentHashMap<>();
+        private final Map<Interval, List<RecordEvent>> intervals;
+
+        private Snapshot(Map<Interval, List<RecordEvent>> intervals) {
+            this.intervals = intervals;
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(RecordIndex.class);
+
+    private static RecordIndex current = new RecordIndex();
+
+    public static RecordIndex getCurrent() {
+        return current;
+    }
+
+    private static boolean larger(RecordEvent r1, RecordEvent r2) {
+        Double v1 = r1.getRecordValue();
+        Double v2 = r2.getRecordValue();
+        return v2 == null || (v1 != null && v1 > v2);
+    }
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param gender null for all genders
+     * @param age    null for all ages
+     * @param bw     null for all body weights
+     * @return the largest record of each kind (federation, lift, age group and body weight category) that applies.
+     *         The list must not be modified.
+     */
+    public List<RecordEvent> findBest(Gender gender, Integer age, Double bw) {
+        Snapshot s = getSnapshot();
+        String key = gender + "_" + age + "_" + bw;
+        return s.cache.computeIfAbsent(key, (k) -> {
+            List<RecordEvent> found = new ArrayList<>();
+            for (Map.Entry<Interval, List<RecordEvent>> e : s.intervals.entrySet()) {
+                if (e.getKey().matches(gender, age, bw)) {
+                    found.addAll(e.getValue());
+                }
+            }
+            return Collections.unmodifiableList(found);
+        });
+    }
+
+    /**
+     * Force a reload from the database on next use.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() {
+        List<RecordEvent> all = JPAService.runInTransaction(
+                em -> em.createQuery("select rec from RecordEvent rec", RecordEvent.class).getResultList());
+
+        // within an interval, keep the largest record for each record name and lift
+        Map<Interval, Map<String, RecordEvent>> best = new HashMap<>();
+        for (RecordEvent rec : all) {
+            Map<String, RecordEvent> kinds = best.computeIfAbsent(new Interval(rec), (i) -> new LinkedHashMap<>());
+            kinds.merge(rec.getKey(), rec, (r1, r2) -> larger(r1, r2) ? r1 : r2);
+        }
+
+        Map<Interval, List<RecordEvent>> intervals = new HashMap<>();
+        for (Map.Entry<Interval, Map<String, RecordEvent>> e : best.entrySet()) {
+            intervals.put(e.getKey(), new ArrayList<>(e.getValue().values()));
+        }
+        logger.debug("indexed {} records in {} intervals", all.size(), intervals.size());
+        return new Snapshot(intervals);
+    }
+}
@@ -9,26 +9,21 @@ package app.owlcms.data.records;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.athlete.Gender;
 import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.jpa.CacheRegions;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.i18n.Translator;
 import app.owlcms.utils.LoggerUtils;
@@ -47,6 +42,8 @@ public class RecordRepository {
 
     static Logger logger = (Logger) LoggerFactory.getLogger(RecordRepository.class);
 
+    private static final RecordEvent[] NO_RECORDS = new RecordEvent[0];
+
     public static JsonValue buildRecordJson(List<RecordEvent> records, Integer snatchRequest, Integer cjRequest,
             Integer totalRequest) {
 
@@ -54,47 +51,23 @@ public class RecordRepository {
             return Json.createNull();
         }
 
-        Multimap<Integer, RecordEvent> recordsByAgeWeight = ArrayListMultimap.create();
+        // single pass: for each column, the largest record of each lift for each record name
         TreeMap<String, String> rowOrder = new TreeMap<>();
+        TreeMap<Integer, Map<String, RecordEvent[]>> recordsByAgeWeight = new TreeMap<>();
         for (RecordEvent re : records) {
             // rows are ordered according to file name.
             rowOrder.put(re.getFileName(), re.getRecordName());
-            // synthetic key to arrange records in correct column.
-            recordsByAgeWeight.put(re.getAgeGrpLower() * 1000000 + re.getAgeGrpUpper() * 1000 + re.getBwCatUpper(), re);
-        }
-
-        // order columns in ascending age groups;
-        List<Integer> columnOrder = recordsByAgeWeight.keySet().stream().sorted((e1, e2) -> Integer.compare(e1, e2))
-                .collect(Collectors.toList());
-
-        @SuppressWarnings("unchecked")
-        List<RecordEvent>[][] recordTable = new ArrayList[rowOrder.size()][columnOrder.size()];
-        ArrayList<String> rowRecordNames = new ArrayList<>(rowOrder.values());
-
-        for (int j1 = 0; j1 < columnOrder.size(); j1++) {
-            Collection<RecordEvent> recordsForCurrentCategory = recordsByAgeWeight.get(columnOrder.get(j1));
-            for (int i1 = 0; i1 < rowOrder.size(); i1++) {
-                String curRowRecordName = rowRecordNames.get(i1);
-
-                List<RecordEvent> recordFound = recordsForCurrentCategory.stream()
-                        .filter(r -> r.getRecordName().contentEquals(curRowRecordName)).collect(Collectors.toList());
-
-                // put them in snatch/cj/total order (not needed really), then largest record first in case of multiple
-                // records
-                recordFound.sort(Comparator.comparing(RecordEvent::getRecordLift)
-                        .thenComparing(Comparator.comparing(RecordEvent::getRecordValue).reversed()));
-
+            // synthetic key to arrange records in correct column; columns in ascending age groups.
+            int column = re.getAgeGrpLower() * 1000000 + re.getAgeGrpUpper() * 1000 + re.getBwCatUpper();
+            int lift = liftIndex(re.getRecordLift());
+            RecordEvent[] cell = recordsByAgeWeight.computeIfAbsent(column, (c) -> new HashMap<>())
+                    .computeIfAbsent(re.getRecordName(), (n) -> new RecordEvent[3]);
+            if (lift >= 0 && (cell[lift] == null || isLarger(re, cell[lift]))) {
                 // keep the largest record
-                List<RecordEvent> maxRecordFound = new ArrayList<>();
-                recordFound.stream().filter(r -> r.getRecordLift() == Ranking.SNATCH).findFirst()
-                        .ifPresent(r -> maxRecordFound.add(r));
-                recordFound.stream().filter(r -> r.getRecordLift() == Ranking.CLEANJERK).findFirst()
-                        .ifPresent(r -> maxRecordFound.add(r));
-                recordFound.stream().filter(r -> r.getRecordLift() == Ranking.TOTAL).findFirst()
-                        .ifPresent(r -> maxRecordFound.add(r));
-                recordTable[i1][j1] = maxRecordFound;
+                cell[lift] = re;
             }
         }
+        ArrayList<String> rowRecordNames = new ArrayList<>(rowOrder.values());
 
         JsonObject recordInfo = Json.createObject();
         JsonArray recordFederations = Json.createArray();
@@ -106,15 +79,20 @@ public class RecordRepository {
         }
 
         JsonArray columns = Json.createArray();
-        for (int j = 0; j < recordTable[0].length; j++) {
+        int j = 0;
+        for (Map<String, RecordEvent[]> recordsForCurrentCategory : recordsByAgeWeight.values()) {
             JsonObject column = Json.createObject();
             JsonArray columnCells = Json.createArray();
-            for (int i = 0; i < recordTable.length; i++) {
+            for (int i = 0; i < rowRecordNames.size(); i++) {
                 JsonObject cell = Json.createObject();
                 cell.put(Ranking.SNATCH.name(), "\u00a0");
                 cell.put(Ranking.CLEANJERK.name(), "\u00a0");
                 cell.put(Ranking.TOTAL.name(), "\u00a0");
-                for (RecordEvent rec : recordTable[i][j]) {
+                RecordEvent[] found = recordsForCurrentCategory.get(rowRecordNames.get(i));
+                for (RecordEvent rec : found != null ? found : NO_RECORDS) {
+                    if (rec == null) {
+                        continue;
+                    }
                     if (recordCategories.length() <= j || recordCategories.get(j) == null) {
                         String string = Translator.translate("Record.CategoryTitle", rec.getAgeGrp(),
                                 rec.getBwCatString());
@@ -139,12 +117,13 @@ public class RecordRepository {
             }
             column.put("records", columnCells);
             columns.set(j, column);
+            j++;
         }
 
         recordInfo.put("recordNames", recordFederations);
         recordInfo.put("recordCategories", recordCategories);
         recordInfo.put("recordTable", columns);
-        recordInfo.put("nbRecords", Json.create(recordTable[0].length + 1));
+        recordInfo.put("nbRecords", Json.create(recordsByAgeWeight.size() + 1));
 
         return recordInfo;
     }
@@ -167,6 +146,7 @@ public class RecordRepository {
             }
             return null;
         });
+        RecordIndex.getCurrent().invalidate();
     }
 
     /**
@@ -187,27 +167,23 @@ public class RecordRepository {
             }
             return null;
         });
+        RecordIndex.getCurrent().invalidate();
     }
 
     public static JsonValue computeRecords(Gender gender, Integer age, Double bw, Integer snatchRequest,
             Integer cjRequest, Integer totalRequest) {
-        List<RecordEvent> records = findFiltered(gender, age, bw, null, null);
+        List<RecordEvent> records = RecordIndex.getCurrent().findBest(gender, age, bw);
         return buildRecordJson(records, snatchRequest, cjRequest, totalRequest);
     }
 
+    /**
+     * @param curAthlete
+     * @return the largest record of each kind applicable to the athlete, from the in-memory index. The list must not
+     *         be modified.
+     */
     public static List<RecordEvent> computeRecordsForAthlete(Athlete curAthlete) {
-        List<RecordEvent> records = RecordRepository.findFiltered(curAthlete.getGender(), curAthlete.getAge(),
-                curAthlete.getBodyWeight(), null, null);
-
-        // remove duplicates for each kind of record, keep largest
-        Map<String, RecordEvent> cleanMap = records.stream().collect(
-                Collectors.toMap(
-                        RecordEvent::getKey,
-                        Function.identity(),
-                        (r1, r2) -> r1.getRecordValue() > r2.getRecordValue() ? r1 : r2));
-
-        records = cleanMap.values().stream().collect(Collectors.toList());
-        return records;
+        return RecordIndex.getCurrent().findBest(curAthlete.getGender(), curAthlete.getAge(),
+                curAthlete.getBodyWeight());
     }
 
     /**
@@ -230,6 +206,7 @@ public class RecordRepository {
             }
             return null;
         });
+        RecordIndex.getCurrent().invalidate();
     }
 
     @SuppressWarnings("unchecked")
@@ -262,7 +239,7 @@ public class RecordRepository {
                     + " order by rec.gender, rec.ageGrpLower, rec.ageGrpUpper, rec.bwCatUpper, rec.recordValue desc";
             logger.debug("query = {}", qlString);
 
-            Query query = em.createQuery(qlString);
+            Query query = JPAService.cacheable(em.createQuery(qlString), CacheRegions.REFERENCE_QUERIES);
             setFilteringParameters(gender, age, bw, groupName, newRecords, query);
             @SuppressWarnings("unchecked")
             List<RecordEvent> resultList = query.getResultList();
@@ -311,6 +288,7 @@ public class RecordRepository {
             }
             return null;
         });
+        RecordIndex.getCurrent().invalidate();
 
         return nRecord;
     }
@@ -354,6 +332,28 @@ public class RecordRepository {
         }
     }
 
+    private static boolean isLarger(RecordEvent r1, RecordEvent r2) {
+        Double v1 = r1.getRecordValue();
+        Double v2 = r2.getRecordValue();
+        return v1 != null && (v2 == null || v1 > v2);
+    }
+
+    private static int liftIndex(Ranking lift) {
+        if (lift == null) {
+            return -1;
+        }
+        switch (lift) {
+        case SNATCH:
+            return 0;
+        case CLEANJERK:
+            return 1;
+        case TOTAL:
+            return 2;
+        default:
+            return -1;
+        }
+    }
+
     private static void setFilteringParameters(Gender gender, Integer age, Double bw, String groupName,
             Boolean newRecords, Query query) {
         if (age != null) {
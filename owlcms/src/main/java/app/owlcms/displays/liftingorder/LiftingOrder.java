@@ -7,7 +7,6 @@
 package app.owlcms.displays.liftingorder;
 
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.Timer;
 
@@ -414,15 +413,7 @@ public class LiftingOrder extends PolymerTemplate<LiftingOrder.LiftingOrderModel
     }
 
     protected void setTranslationMap() {
-        JsonObject translations = Json.createObject();
-        Enumeration<String> keys = Translator.getKeys();
-        while (keys.hasMoreElements()) {
-            String curKey = keys.nextElement();
-            if (curKey.startsWith("Scoreboard.")) {
-                translations.put(curKey.replace("Scoreboard.", ""), Translator.translate(curKey));
-            }
-        }
-        this.getElement().setPropertyJson("t", translations);
+        this.getElement().setPropertyJson("t", Translator.getTranslationMap(Translator.SCOREBOARD_PREFIX));
     }
 
     private String computeLiftType(Athlete a) {
@@ -7,7 +7,6 @@
 package app.owlcms.displays.scoreboard;
 
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.Timer;
 
@@ -469,15 +468,7 @@ public class CurrentAthlete extends PolymerTemplate<TemplateModel>
     }
 
     protected void setTranslationMap() {
-        JsonObject translations = Json.createObject();
-        Enumeration<String> keys = Translator.getKeys();
-        while (keys.hasMoreElements()) {
-            String curKey = keys.nextElement();
-            if (curKey.startsWith("Scoreboard.")) {
-                translations.put(curKey.replace("Scoreboard.", ""), Translator.translate(curKey));
-            }
-        }
-        this.getElement().setPropertyJson("t", translations);
+        this.getElement().setPropertyJson("t", Translator.getTranslationMap(Translator.SCOREBOARD_PREFIX));
     }
 
     private String computeLiftType(Athlete a) {
@@ -732,8 +723,12 @@ public class CurrentAthlete extends PolymerTemplate<TemplateModel>
             getElement().setProperty("liftsDone", "Y");
             this.getElement().callJsFunction("groupDone");
         }
-        this.getElement().setPropertyJson("athletes",
-                getAthletesJson(order, fop.getLiftingOrder(), fop));
+        ScoreboardSnapshot snapshot = ScoreboardSnapshot.get(fop, getClass().getName(), order,
+                () -> getAthletesJson(order, fop.getLiftingOrder(), fop));
+        if (snapshot.isWideTeamNames()) {
+            setWideTeamNames(true);
+        }
+        this.getElement().setPropertyJson("athletes", snapshot.getAthletes());
     }
 
 }
\ No newline at end of file
@@ -9,7 +9,6 @@ package app.owlcms.displays.scoreboard;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -566,15 +565,7 @@ public class Medals extends PolymerTemplate<Medals.MedalsTemplate>
     }
 
     protected void setTranslationMap() {
-        JsonObject translations = Json.createObject();
-        Enumeration<String> keys = Translator.getKeys();
-        while (keys.hasMoreElements()) {
-            String curKey = keys.nextElement();
-            if (curKey.startsWith("Scoreboard.")) {
-                translations.put(curKey.replace("Scoreboard.", ""), Translator.translate(curKey));
-            }
-        }
-        this.getElement().setPropertyJson("t", translations);
+        this.getElement().setPropertyJson("t", Translator.getTranslationMap(Translator.SCOREBOARD_PREFIX));
     }
 
     private void computeCategoryMedalsJson() {
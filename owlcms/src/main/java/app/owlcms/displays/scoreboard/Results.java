@@ -8,7 +8,6 @@ package app.owlcms.displays.scoreboard;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -887,15 +886,7 @@ public class Results extends PolymerTemplate<TemplateModel>
     }
 
     protected void setTranslationMap() {
-        JsonObject translations = Json.createObject();
-        Enumeration<String> keys = Translator.getKeys();
-        while (keys.hasMoreElements()) {
-            String curKey = keys.nextElement();
-            if (curKey.startsWith("Scoreboard.")) {
-                translations.put(curKey.replace("Scoreboard.", ""), Translator.translate(curKey));
-            }
-        }
-        this.getElement().setPropertyJson("t", translations);
+        this.getElement().setPropertyJson("t", Translator.getTranslationMap(Translator.SCOREBOARD_PREFIX));
     }
 
     protected void uiLog(UIEvent e) {
@@ -923,8 +914,12 @@ public class Results extends PolymerTemplate<TemplateModel>
             this.getElement().callJsFunction("groupDone");
         }
         this.getElement().setPropertyJson("ageGroups", getAgeGroupNamesJson(fop.getAgeGroupMap()));
-        this.getElement().setPropertyJson("athletes",
-                getAthletesJson(displayOrder, fop.getLiftingOrder(), fop));
+        ScoreboardSnapshot snapshot = ScoreboardSnapshot.get(fop, getClass().getName(), displayOrder,
+                () -> getAthletesJson(displayOrder, fop.getLiftingOrder(), fop));
+        if (snapshot.isWideTeamNames()) {
+            setWideTeamNames(true);
+        }
+        this.getElement().setPropertyJson("athletes", snapshot.getAthletes());
 
         List<Athlete> order = getOrder(OwlcmsSession.getFop());
         int resultLines = (order != null ? order.size() : 0) + countSubsets(order);
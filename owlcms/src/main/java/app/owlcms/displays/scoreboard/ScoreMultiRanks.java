@@ -7,7 +7,6 @@
 package app.owlcms.displays.scoreboard;
 
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -554,15 +553,7 @@ public class ScoreMultiRanks extends PolymerTemplate<ScoreMultiRanks.ScoreboardM
     }
 
     protected void setTranslationMap() {
-        JsonObject translations = Json.createObject();
-        Enumeration<String> keys = Translator.getKeys();
-        while (keys.hasMoreElements()) {
-            String curKey = keys.nextElement();
-            if (curKey.startsWith("Scoreboard.")) {
-                translations.put(curKey.replace("Scoreboard.", ""), Translator.translate(curKey));
-            }
-        }
-        this.getElement().setPropertyJson("t", translations);
+        this.getElement().setPropertyJson("t", Translator.getTranslationMap(Translator.SCOREBOARD_PREFIX));
     }
 
     private void computeLeaders() {
@@ -921,8 +912,12 @@ public class ScoreMultiRanks extends PolymerTemplate<ScoreMultiRanks.ScoreboardM
             this.getElement().callJsFunction("groupDone");
         }
         this.getElement().setPropertyJson("ageGroups", getAgeGroupNamesJson(fop.getAgeGroupMap()));
-        this.getElement().setPropertyJson("athletes",
-                getAthletesJson(displayOrder, fop.getLiftingOrder(), fop));
+        ScoreboardSnapshot snapshot = ScoreboardSnapshot.get(fop, getClass().getName(), displayOrder,
+                () -> getAthletesJson(displayOrder, fop.getLiftingOrder(), fop));
+        if (snapshot.isWideTeamNames()) {
+            setWideTeamNames(true);
+        }
+        this.getElement().setPropertyJson("athletes", snapshot.getAthletes());
         computeLeaders();
     }
 
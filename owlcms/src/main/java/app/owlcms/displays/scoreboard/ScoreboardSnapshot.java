@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.displays.scoreboard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.fieldofplay.FieldOfPlay;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import elemental.json.JsonValue;
+
+/**
+ * Athletes JSON shared by all the displays of the same kind attached to a field of play.
+ *
+ * Every scoreboard reacts to the same lifting order updates and used to rebuild the same JSON from the same athletes.
+ * The first display to ask computes it; the others get the same value until the field of play's display version
+ * changes or they ask for a different list of athletes. The JSON is never modified after it has been built.
+ *
+ * @author owlcms
+ */
+public final class ScoreboardSnapshot {
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(ScoreboardSnapshot.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static final Map<String, ScoreboardSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Get the athletes JSON for a kind of display, computing it if the current snapshot is stale.
+     *
+     * @param fop     the field of play
+     * @param kind    what distinguishes the JSON content (normally the display class)
+     * @param source  the athletes being shown
+     * @param builder computes the JSON from source
+     * @return a snapshot that must be treated as read-only
+     */
+    public static ScoreboardSnapshot get(FieldOfPlay fop, String kind, List<Athlete> source,
+            Supplier<JsonValue> builder) {
+        // read the version before building, so a change that happens during the build makes the result stale
+        long version = fop.getDisplayVersion();
+        String key = fop.getName() + "/" + kind;
+        ScoreboardSnapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.fop == fop && snapshot.version == version && snapshot.source == source) {
+            logger.trace("{}reusing {} version {}", fop.getLoggingName(), kind, version);
+            return snapshot;
+        }
+        snapshot = new ScoreboardSnapshot(fop, version, source, builder.get());
+        snapshots.put(key, snapshot);
+        logger.debug("{}computed {} version {}", fop.getLoggingName(), kind, version);
+        return snapshot;
+    }
+
+    private final JsonValue athletes;
+    private final FieldOfPlay fop;
+    private final List<Athlete> source;
+    private final long version;
+    private final boolean wideTeamNames;
+
+    private ScoreboardSnapshot(FieldOfPlay fop, long version, List<Athlete> source, JsonValue athletes) {
+        this.fop = fop;
+        this.version = version;
+        this.source = source;
+        this.athletes = athletes;
+        boolean wide = false;
+        if (source != null) {
+            for (Athlete a : source) {
+                String team = a.getTeam();
+                if (team != null && team.trim().length() > Competition.SHORT_TEAM_LENGTH) {
+                    wide = true;
+                    break;
+                }
+            }
+        }
+        this.wideTeamNames = wide;
+    }
+
+    /**
+     * @return the athletes JSON, not to be modified
+     */
+    public JsonValue getAthletes() {
+        return athletes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if a team name is too long for the narrow team column
+     */
+    public boolean isWideTeamNames() {
+        return wideTeamNames;
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import app.owlcms.utils.StartupUtils;
+
+/**
+ * The last events received by a field of play, for post-mortem dumps.
+ *
+ * Fixed-size ring; recording an event is a counter increment and an array store. The events are kept as received,
+ * and only formatted when dumped.
+ *
+ * The size is set with the eventHistorySize parameter (OWLCMS_EVENTHISTORYSIZE).
+ *
+ * @author owlcms
+ */
+public class EventHistory {
+
+    private static final class Entry {
+        private final FOPEvent event;
+        private final FOPState state;
+
+        private Entry(FOPEvent event, FOPState state) {
+            this.event = event;
+            this.state = state;
+        }
+    }
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicReferenceArray<Entry> entries;
+
+    public EventHistory() {
+        this(StartupUtils.getIntegerParam("eventHistorySize", 64));
+    }
+
+    public EventHistory(int size) {
+        this.entries = new AtomicReferenceArray<>(Math.max(1, size));
+    }
+
+    /**
+     * @param e     event received
+     * @param state state of the field of play when the event was received
+     */
+    public void add(FOPEvent e, FOPState state) {
+        long n = count.getAndIncrement();
+        entries.set((int) (n % entries.length()), new Entry(e, state));
+    }
+
+    /**
+     * @return one line per event, oldest first
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        long last = count.get();
+        int size = entries.length();
+        for (long n = Math.max(0, last - size); n < last; n++) {
+            Entry entry = entries.get((int) (n % size));
+            if (entry == null) {
+                continue;
+            }
+            FOPEvent e = entry.event;
+            sb.append('\t')
+                    .append(LocalTime.ofInstant(Instant.ofEpochMilli(e.getTimestamp()), ZoneId.systemDefault()))
+                    .append(' ').append(entry.state)
+                    .append(' ').append(e)
+                    .append(" from ").append(e.getWhereFrom())
+                    .append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
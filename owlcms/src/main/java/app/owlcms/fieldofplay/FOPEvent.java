@@ -6,8 +6,10 @@
  *******************************************************************************/
 package app.owlcms.fieldofplay;
 
+import java.lang.StackWalker.StackFrame;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +21,7 @@ import app.owlcms.ui.shared.BreakManagement.CountdownType;
 import app.owlcms.uievents.BreakType;
 import app.owlcms.uievents.CeremonyType;
 import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Logger;
 
 /**
@@ -666,8 +669,24 @@ public class FOPEvent {
 
     final Logger logger = (Logger) LoggerFactory.getLogger(FOPEvent.class);
 
+    /**
+     * one event out of this many keeps a full stack trace (eventTraceSampling parameter, OWLCMS_EVENTTRACESAMPLING);
+     * 0 means only when the logger is at trace level.
+     */
+    private static final int TRACE_SAMPLING = StartupUtils.getIntegerParam("eventTraceSampling", 0);
+    private static final AtomicLong eventCount = new AtomicLong();
+    private static final StackWalker walker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /**
+     * first frame outside the event constructors.
+     */
+    private StackFrame caller;
+
     private FieldOfPlay fop;
 
+    /**
+     * null unless sampled.
+     */
     private String stackTrace;
 
     private long timestamp;
@@ -677,7 +696,11 @@ public class FOPEvent {
 //        if (this.fop == null) {
 //            logger.error("no fop  {}",LoggerUtils.stackTrace());
 //        }
-        this.stackTrace = LoggerUtils.stackTrace();
+        this.caller = walker.walk(s -> s.dropWhile(f -> FOPEvent.class.isAssignableFrom(f.getDeclaringClass()))
+                .findFirst().orElse(null));
+        if (isTraceSampled()) {
+            this.stackTrace = LoggerUtils.stackTrace();
+        }
         this.athlete = athlete;
         this.origin = origin;
         this.timestamp = System.currentTimeMillis();
@@ -714,8 +737,22 @@ public class FOPEvent {
         return origin;
     }
 
+    /**
+     * @return the full stack trace if this event was sampled, else the caller frame.
+     */
     public String getStackTrace() {
-        return stackTrace;
+        return stackTrace != null ? stackTrace : getWhereFrom();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the code that created the event, e.g. AnnouncerContent.lambda$1(AnnouncerContent.java:123)
+     */
+    public String getWhereFrom() {
+        return LoggerUtils.compactFrame(caller);
     }
 
     @Override
@@ -734,4 +771,10 @@ public class FOPEvent {
         this.fop = fieldOfPlay;
     }
 
+    private boolean isTraceSampled() {
+        if (logger.isTraceEnabled()) {
+            return true;
+        }
+        return TRACE_SAMPLING > 0 && eventCount.incrementAndGet() % TRACE_SAMPLING == 0;
+    }
 }
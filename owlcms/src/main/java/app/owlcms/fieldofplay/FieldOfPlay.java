@@ -20,23 +20,20 @@ import static app.owlcms.uievents.BreakType.FIRST_SNATCH;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
-import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.codehaus.plexus.util.FileUtils;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 
@@ -47,14 +44,17 @@ import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.athlete.LiftDefinition;
 import app.owlcms.data.athleteSort.AthleteSorter;
 import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.category.Participation;
 import app.owlcms.data.competition.Competition;
+import app.owlcms.data.competition.ReportingService;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.data.platform.Platform;
 import app.owlcms.data.records.RecordEvent;
+import app.owlcms.data.records.RecordIndex;
 import app.owlcms.data.records.RecordRepository;
 import app.owlcms.fieldofplay.FOPEvent.BarbellOrPlatesChanged;
 import app.owlcms.fieldofplay.FOPEvent.CeremonyDone;
@@ -75,8 +75,9 @@ import app.owlcms.fieldofplay.FOPEvent.TimeStopped;
 import app.owlcms.fieldofplay.FOPEvent.WeightChange;
 import app.owlcms.i18n.Translator;
 import app.owlcms.sound.Sound;
-import app.owlcms.sound.Tone;
+import app.owlcms.sound.SoundPlayer;
 import app.owlcms.spreadsheet.PAthlete;
+import app.owlcms.spreadsheet.ReportCache;
 import app.owlcms.ui.shared.BreakManagement.CountdownType;
 import app.owlcms.uievents.BreakType;
 import app.owlcms.uievents.CeremonyType;
@@ -84,9 +85,11 @@ import app.owlcms.uievents.EventForwarder;
 import app.owlcms.uievents.JuryDeliberationEventType;
 import app.owlcms.uievents.UIEvent;
 import app.owlcms.uievents.UIEvent.JuryNotification;
-import app.owlcms.utils.DelayTimer;
 import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.Scheduler;
+import app.owlcms.utils.SharedScheduler;
 import app.owlcms.utils.StartupUtils;
+import app.owlcms.utils.VirtualScheduler;
 import ch.qos.logback.classic.Logger;
 import elemental.json.Json;
 import elemental.json.JsonValue;
@@ -155,9 +158,13 @@ public class FieldOfPlay {
     private boolean decisionDisplayScheduled = false;
     private FOPEvent deferredBreak;
     private List<Athlete> displayOrder;
+    private volatile long displayVersion;
     private boolean downEmitted;
-    @SuppressWarnings("unused")
-    private Tone downSignal;
+    private final EventHistory eventHistory = new EventHistory();
+    /**
+     * null when testing: events are then handled on the posting thread.
+     */
+    private FopEventLoop eventLoop;
     private boolean finalWarningEmitted;
     private EventBus fopEventBus = null;
     private boolean forcedTime = false;
@@ -181,6 +188,8 @@ public class FieldOfPlay {
 
     private EventBus postBus = null;
 
+    private FopDispatcher postDispatcher;
+
     private Integer prevHash;
 
     private Athlete previousAthlete;
@@ -197,11 +206,17 @@ public class FieldOfPlay {
 
     private boolean timeoutEmitted;
     final private Logger timingLogger = (Logger) LoggerFactory.getLogger(logger.getName() + "_Timing");
+    private FopDispatcher uiDispatcher;
     private EventBus uiEventBus = null;
 
     final private Logger uiEventLogger = (Logger) LoggerFactory.getLogger(logger.getName() + "_UI");
 
-    private Thread wakeUpRef;
+    private Scheduler scheduler = SharedScheduler.getCurrent();
+    private Scheduler.Handle wakeUpRef;
+    /**
+     * referee being reminded, -1 if none
+     */
+    private int wakeUpLastRef = -1;
 
     private Integer weightAtLastStart;
 
@@ -257,9 +272,19 @@ public class FieldOfPlay {
         return liftsDone;
     }
 
+    /**
+     * Handle an event on the thread of this field of play; the caller waits for it to be handled (see
+     * {@link FopEventLoop}).
+     *
+     * @param e
+     */
     public void fopEventPost(FOPEvent e) {
         e.setFop(this);
-        handleFOPEvent(e);
+        if (eventLoop == null) {
+            handleFOPEvent(e);
+        } else {
+            eventLoop.submit(() -> handleFOPEvent(e), true);
+        }
     }
 
     public LinkedHashMap<String, Participation> getAgeGroupMap() {
@@ -340,6 +365,16 @@ public class FieldOfPlay {
         return displayOrder;
     }
 
+    /**
+     * Incremented whenever the display order, the lifting order or the state changes, so that displays can tell
+     * whether what they computed from them is still current.
+     *
+     * @return the display version
+     */
+    public long getDisplayVersion() {
+        return displayVersion;
+    }
+
     /**
      * @return the fopEventBus
      */
@@ -426,6 +461,13 @@ public class FieldOfPlay {
         return platform;
     }
 
+    /**
+     * @return queue depth and delivery latency for the post bus; null in testing mode.
+     */
+    public FopDispatcher getPostDispatcher() {
+        return postDispatcher;
+    }
+
     public EventBus getPostEventBus() {
         return postBus;
     }
@@ -451,6 +493,22 @@ public class FieldOfPlay {
         return state;
     }
 
+    /**
+     * @return the scheduler for delayed actions (decision display, decision reset, referee reminders)
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Stop handling events; used when the platform is removed.
+     */
+    public void stopEventLoop() {
+        if (eventLoop != null) {
+            eventLoop.shutdown();
+        }
+    }
+
     /**
      * @return the time allowed for the next athlete.
      */
@@ -496,6 +554,13 @@ public class FieldOfPlay {
         return timeAllowed;
     }
 
+    /**
+     * @return queue depth and delivery latency for the UI bus; null in testing mode.
+     */
+    public FopDispatcher getUiDispatcher() {
+        return uiDispatcher;
+    }
+
     /**
      * @return the bus on which we post commands for the listening browser pages.
      */
@@ -526,26 +591,43 @@ public class FieldOfPlay {
      */
     @Subscribe
     public void handleFOPEvent(FOPEvent e) {
+        try {
+            doHandleFOPEvent(e);
+        } catch (RuntimeException ex) {
+            logger./**/error("{}exception while handling {}, recent events:\n{}", getLoggingName(), e,
+                    eventHistory.dump());
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the last events received, oldest first, one per line
+     */
+    public String dumpEventHistory() {
+        return eventHistory.dump();
+    }
+
+    private void doHandleFOPEvent(FOPEvent e) {
         Runtime runtime = Runtime.getRuntime();
         final int mb = FileUtils.ONE_MB;
         if (Config.getCurrent().isTraceMemory()) {
             LoggerFactory.getLogger("memory").debug("free mem {} totalmem {} maxMem {}", runtime.freeMemory() / mb,
                     runtime.totalMemory() / mb, runtime.maxMemory() / mb);
         }
-        String stackTrace = e.getStackTrace();
         if (e.getFop() != this) {
-            logger./**/error("wrong event subscription {} {}\n{}", e, e.getFop(), this, stackTrace);
+            logger./**/error("wrong event subscription {} {}\n{}", e, e.getFop(), this, e.getStackTrace());
             return;
             // throw new RuntimeException("wrong event subscription");
         }
+        eventHistory.add(e, state);
         int newHash = e.hashCode();
         if (prevHash != null && newHash == prevHash) {
-            logger.debug("{}state {}, DUPLICATE event received {} {} {}", getLoggingName(), stateName(this.getState()),
-                    e, getWhereFrom(stackTrace));
+            logger.debug("{}state {}, DUPLICATE event received {} {}", getLoggingName(), stateName(this.getState()),
+                    e, e.getWhereFrom());
             return;
         } else {
             logger.info("{}state {}, event received {} from {}", getLoggingName(), stateName(this.getState()),
-                    e, getWhereFrom(stackTrace));
+                    e, e.getWhereFrom());
             prevHash = newHash;
         }
 
@@ -859,12 +941,16 @@ public class FieldOfPlay {
     }
 
     public void initEventBuses() {
-        // we listen on this bus, and sometimes post to change our own state
-        this.fopEventBus = new EventBus("FOP-" + name);
+        // we listen on this bus, and sometimes post to change our own state; events are handled on our own thread.
+        this.eventLoop = new FopEventLoop("FOP-" + name);
+        this.fopEventBus = new OrderedEventBus("FOP-" + name, eventLoop);
 
-        // we post on these buses
-        this.uiEventBus = new AsyncEventBus("UI-" + name, Executors.newCachedThreadPool());
-        this.postBus = new AsyncEventBus("POST-" + name, Executors.newCachedThreadPool());
+        // we post on these buses; each subscriber gets its events in order, on a bounded number of threads.
+        int threads = FopDispatcher.getConfiguredThreads();
+        this.uiDispatcher = new FopDispatcher("UI-" + name, threads);
+        this.uiEventBus = new OrderedEventBus("UI-" + name, uiDispatcher);
+        this.postDispatcher = new FopDispatcher("POST-" + name, threads);
+        this.postBus = new OrderedEventBus("POST-" + name, postDispatcher);
     }
 
     public boolean isCjStarted() {
@@ -905,6 +991,8 @@ public class FieldOfPlay {
         }
         this.setGroup(group);
         this.setCjStarted(false);
+        // athletes may have been edited outside the field of play since the index was built
+        RankingIndex.getCurrent().invalidate();
 
         if (group != null) {
             // protect against possible UI bug where switching group triggers a dropdown selection
@@ -984,28 +1072,24 @@ public class FieldOfPlay {
         long endLeaders = 0;
 
         if (recomputeRanks) {
-            // we update the ranks of affected athletes in the database
+            // only the athletes saved since the last computation are repositioned, and only the ranks that moved are
+            // written to the database
+            AtomicBoolean changed = new AtomicBoolean();
             athletes = JPAService.runInTransaction(em -> {
-                List<Athlete> l = AthleteSorter.assignCategoryRanks(em, g);
-                List<Athlete> nl = new LinkedList<>();
-                Competition.getCurrent().globalRankings(em);
-                for (Athlete a : l) {
-                    nl.add(em.merge(a));
+                RankingIndex rankingIndex = RankingIndex.getCurrent();
+                if (rankingIndex.refresh(em)) {
+                    changed.set(true);
+                    Competition.getCurrent().globalRankings(em, rankingIndex);
                 }
-                em.flush();
-                return nl;
+                return rankingIndex.findAthletesForGroup(em, g);
             });
+            if (changed.get()) {
+                // ranks written by the index are now committed
+                ReportingService.getCurrent().dataChanged();
+            }
         } else {
-            athletes = JPAService.runInTransaction(em -> {
-                List<Athlete> l = AthleteRepository.findAthletesForGlobalRanking(em, g);
-                List<Athlete> nl = new LinkedList<>();
-                Competition.getCurrent().globalRankings(em);
-                for (Athlete a : l) {
-                    nl.add(em.merge(a));
-                }
-                em.flush();
-                return nl;
-            });
+            // ranks are unchanged; pending saves are repositioned by the next refresh
+            athletes = JPAService.runInTransaction(em -> AthleteRepository.findAthletesForGlobalRanking(em, g));
         }
         endAssignRanks = System.nanoTime();
 
@@ -1194,10 +1278,19 @@ public class FieldOfPlay {
     }
 
     /**
-     * @param testingMode true if we don't want wait delays during testing.
+     * @param scheduler a {@link VirtualScheduler} for tests that control time
+     */
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param testingMode true if we don't want wait delays during testing. Delayed actions take place right away, in
+     *                    order, on a virtual clock; use {@link #setScheduler(Scheduler)} to control the clock.
      */
     public void setTestingMode(boolean testingMode) {
         this.testingMode = testingMode;
+        this.scheduler = testingMode ? new VirtualScheduler(true) : SharedScheduler.getCurrent();
     }
 
     public void setWeightAtLastStart(Integer nextAttemptRequestedWeight) {
@@ -1275,8 +1368,8 @@ public class FieldOfPlay {
     void emitFinalWarning() {
         if (!isFinalWarningEmitted()) {
             logger.info("{}Final Warning", getLoggingName());
-            if (isEmitSoundsOnServer()) {
-                new Sound(getSoundMixer(), "finalWarning.wav").emit();
+            if (isEmitSoundsOnServer() && !new Sound(getSoundMixer(), "finalWarning.wav").emit()) {
+                broadcast("SoundSystemProblem");
             }
             setFinalWarningEmitted(true);
         }
@@ -1285,8 +1378,8 @@ public class FieldOfPlay {
     void emitInitialWarning() {
         if (!isInitialWarningEmitted()) {
             logger.info("{}Initial Warning", getLoggingName());
-            if (isEmitSoundsOnServer()) {
-                new Sound(getSoundMixer(), "initialWarning.wav").emit();
+            if (isEmitSoundsOnServer() && !new Sound(getSoundMixer(), "initialWarning.wav").emit()) {
+                broadcast("SoundSystemProblem");
             }
             setInitialWarningEmitted(true);
         }
@@ -1295,8 +1388,8 @@ public class FieldOfPlay {
     void emitTimeOver() {
         if (!isTimeoutEmitted()) {
             logger.info("{}Time Over", getLoggingName());
-            if (isEmitSoundsOnServer()) {
-                new Sound(getSoundMixer(), "timeOver.wav").emit();
+            if (isEmitSoundsOnServer() && !new Sound(getSoundMixer(), "timeOver.wav").emit()) {
+                broadcast("SoundSystemProblem");
             }
             setTimeoutEmitted(true);
         }
@@ -1322,11 +1415,16 @@ public class FieldOfPlay {
         doSetState(state);
     }
 
-    private void cancelWakeUpRef() {
+    private synchronized void cancelWakeUpRef() {
         if (wakeUpRef != null) {
-            wakeUpRef.interrupt();
+            wakeUpRef.cancel();
         }
         wakeUpRef = null;
+        // if a reminder is showing, turn it off
+        if (wakeUpLastRef != -1) {
+            uiEventBus.post(new UIEvent.WakeUpRef(wakeUpLastRef + 1, false, this));
+            wakeUpLastRef = -1;
+        }
     }
 
     private void createNewRecordEvent(Athlete a, List<RecordEvent> newRecords, RecordEvent rec, Double value) {
@@ -1399,7 +1497,7 @@ public class FieldOfPlay {
             recomputeLiftingOrder(true, true);
 
             // tell ourself to reset after 3 secs.
-            new DelayTimer(isTestingMode()).schedule(() -> {
+            scheduleOnLoop(() -> {
                 // fopEventPost(new DecisionReset(this));
                 if (reversalToGood) {
                     notifyRecords(newRecords, true);
@@ -1426,6 +1524,9 @@ public class FieldOfPlay {
         } else if (state == BREAK && getGroup() != null) {
             getGroup().doDone(breakType == BreakType.GROUP_DONE);
         }
+        if (this.state != state) {
+            displayVersion++;
+        }
         this.state = state;
     }
 
@@ -1556,18 +1657,6 @@ public class FieldOfPlay {
         return platform2 == null ? null : platform2.getMixer();
     }
 
-    private String getWhereFrom(String stackTrace) {
-        if (stackTrace != null) {
-            String sep = System.lineSeparator();
-            int start = stackTrace.indexOf(sep);
-            start = stackTrace.indexOf(sep, start + 1);
-            start = stackTrace.indexOf(sep, start + 1);
-            return stackTrace.substring(start + 3, stackTrace.indexOf(sep, start + 1));
-        } else {
-            return "?";
-        }
-    }
-
     public boolean isAnnouncerDecisionImmediate() {
         return announcerDecisionImmediate;
     }
@@ -1614,10 +1703,8 @@ public class FieldOfPlay {
 
     private void prepareDownSignal() {
         if (isEmitSoundsOnServer()) {
-            try {
-                downSignal = new Tone(getSoundMixer(), 1100, 1200, 1.0);
-            } catch (IllegalArgumentException | LineUnavailableException e) {
-                logger.error("{}\n{}", e.getCause(), LoggerUtils./**/stackTrace(e));
+            // opens the output line and decodes the sounds the first time, not when the down signal is given
+            if (!SoundPlayer.forMixer(getSoundMixer()).isLineOpen()) {
                 broadcast("SoundSystemProblem");
             }
         }
@@ -1650,36 +1737,11 @@ public class FieldOfPlay {
         }
         if (nbDecisions == 2) {
             // 2 decisions, reminder for last referee
-            wakeUpRef = new Thread(() -> {
-                int lastRef = -1;
-                try {
-                    // wait a bit. If the decison comes in while waiting, this thread will be cancelled anyway
-                    Thread.sleep(Competition.getCurrent().getRefereeWakeUpDelay());
-                    lastRef = ArrayUtils.indexOf(refereeDecision, null);
-                    if (lastRef != -1 && !Thread.currentThread().isInterrupted()) {
-                        // logger.debug("posting");
-                        uiEventBus.post(new UIEvent.WakeUpRef(lastRef + 1, true, this));
-                    } else {
-                        // logger.debug("not posting");
-                    }
-                    Thread.sleep(WAKEUP_DURATION_MS);
-                } catch (InterruptedException e1) {
-                    // ignore interruption, finally handles clean up
-                } finally {
-                    // if we are here, either the last ref has entered a decision, or we've exhausted the reminder
-                    // duration
-                    // in either case, we turn the reminder off.
-                    if (lastRef != -1) {
-                        uiEventBus.post(new UIEvent.WakeUpRef(lastRef + 1, false, this));
-                    }
-                }
-            });
-            wakeUpRef.start();
+            // wait a bit. If the decision comes in while waiting, the reminder is cancelled
+            scheduleWakeUpRef(Competition.getCurrent().getRefereeWakeUpDelay());
         }
         if (nbDecisions == 3) {
-            if (wakeUpRef != null) {
-                cancelWakeUpRef();
-            }
+            cancelWakeUpRef();
             setGoodLift(nbWhite >= 2);
             //logger.debug("*** 3 decisions");
             if (!isDecisionDisplayScheduled()) {
@@ -1710,6 +1772,10 @@ public class FieldOfPlay {
         this.getBreakTimer().setIndefinite();
         this.setState(BREAK);
         pushOutUIEvent(event);
+        if (!testingMode) {
+            // results documents for the group are likely to be requested now
+            ReportCache.getCurrent().warm(getGroup());
+        }
     }
 
     private void pushOutStartLifting(Group group2, Object origin) {
@@ -1871,6 +1937,7 @@ public class FieldOfPlay {
      */
     private void setDisplayOrder(List<Athlete> displayOrder) {
         this.displayOrder = displayOrder;
+        displayVersion++;
     }
 
     private synchronized void setDownEmitted(boolean downEmitted) {
@@ -1911,6 +1978,7 @@ public class FieldOfPlay {
 
     private void setLiftingOrder(List<Athlete> liftingOrder) {
         this.liftingOrder = liftingOrder;
+        displayVersion++;
     }
 
     private void setPreviousAthlete(Athlete athlete) {
@@ -1958,6 +2026,40 @@ public class FieldOfPlay {
         }
     }
 
+    /**
+     * Delayed action, run on the thread of this field of play like events are.
+     */
+    private Scheduler.Handle scheduleOnLoop(Runnable action, long delay) {
+        return scheduler.schedule(() -> {
+            if (eventLoop == null) {
+                action.run();
+            } else {
+                eventLoop.submit(action, false);
+            }
+        }, delay);
+    }
+
+    /**
+     * Remind the last referee after a delay, and turn the reminder off after {@link #WAKEUP_DURATION_MS}.
+     *
+     * @param delay
+     */
+    private synchronized void scheduleWakeUpRef(int delay) {
+        cancelWakeUpRef();
+        wakeUpRef = scheduleOnLoop(() -> {
+            synchronized (this) {
+                int lastRef = ArrayUtils.indexOf(refereeDecision, null);
+                if (lastRef == -1) {
+                    wakeUpRef = null;
+                    return;
+                }
+                uiEventBus.post(new UIEvent.WakeUpRef(lastRef + 1, true, this));
+                wakeUpLastRef = lastRef;
+                wakeUpRef = scheduleOnLoop(this::cancelWakeUpRef, WAKEUP_DURATION_MS);
+            }
+        }, delay);
+    }
+
     private synchronized void setTimeoutEmitted(boolean timeoutEmitted) {
         logger.trace("timeoutEmitted {}", timeoutEmitted);
         this.timeoutEmitted = timeoutEmitted;
@@ -1971,7 +2073,7 @@ public class FieldOfPlay {
         //logger.debug("{}scheduling decision display in {}ms", getLoggingName(), reversalDelay);
         assert !isDecisionDisplayScheduled(); // caller checks.
         setDecisionDisplayScheduled(true); // so there are never two scheduled...
-        new DelayTimer(isTestingMode()).schedule(() -> showDecisionNow(origin2), reversalDelay);
+        scheduleOnLoop(() -> showDecisionNow(origin2), reversalDelay);
 
     }
 
@@ -2013,13 +2115,13 @@ public class FieldOfPlay {
         recomputeLiftingOrder(true, true);
 
         // control timing of notifications
-        new DelayTimer(isTestingMode()).schedule(
+        scheduleOnLoop(
                 () -> {
                     notifyRecords(getNewRecords(), true);
                 }, 500);
         // tell ourself to reset after 3 secs.
         // Decision reset will handle end of group.
-        new DelayTimer(isTestingMode()).schedule(
+        scheduleOnLoop(
                 () -> {
                     fopEventPost(new DecisionReset(this));
                 }, DECISION_VISIBLE_DURATION);
@@ -2102,7 +2204,7 @@ public class FieldOfPlay {
                     setBreakType(newBreak);
                     getBreakTimer().start();
                     pushOutUIEvent(new UIEvent.BreakStarted(breakTimer.liveTimeRemaining(), this, false, newBreak,
-                            CountdownType.DURATION, LoggerUtils.stackTrace(), getBreakTimer().isIndefinite()));
+                            CountdownType.DURATION, LoggerUtils.whereFrom(), getBreakTimer().isIndefinite()));
                     return;
                 } else {
                     logger.debug("{}break switch: from {} to {}", getBreakType(), newBreak);
@@ -2193,15 +2295,10 @@ public class FieldOfPlay {
         boolean downEmitted2 = isDownEmitted();
         uiEventLogger.debug("showDownSignalOnSlaveDisplays server={} emitted={}", emitSoundsOnServer2, downEmitted2);
         if (emitSoundsOnServer2 && !downEmitted2) {
-            // sound is synchronous, we don't want to wait.
-            new Thread(() -> {
-                try {
-                    new Sound(getSoundMixer(), "down.wav").emit();
-                    // downSignal.emit();
-                } catch (IllegalArgumentException /* | LineUnavailableException */ e) {
-                    broadcast("SoundSystemProblem");
-                }
-            }).start();
+            // queued to the playback thread, does not wait.
+            if (!new Sound(getSoundMixer(), "down.wav").emit()) {
+                broadcast("SoundSystemProblem");
+            }
             setDownEmitted(true);
         }
         pushOutUIEvent(new UIEvent.DownSignal(origin2));
@@ -2292,6 +2389,9 @@ public class FieldOfPlay {
                 }
                 return null;
             });
+            if (!newRecords.isEmpty()) {
+                RecordIndex.getCurrent().invalidate();
+            }
             return newRecords;
         } else {
             // remove records just established as they are invalid.
@@ -2303,6 +2403,7 @@ public class FieldOfPlay {
                     }
                     return null;
                 });
+                RecordIndex.getCurrent().invalidate();
             }
             return new ArrayList<>();
         }
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.StartupUtils;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Delivers the events of a field of play bus on a bounded number of threads.
+ *
+ * Each subscriber has its own lane: its events are delivered one at a time, in the order they were posted. Lanes
+ * share the worker threads, and a lane gives up its thread after a few events so that a subscriber that is slow (for
+ * example a display in a browser tab that does not keep up) does not hold up the others.
+ *
+ * Queue depth and waiting time are measured; a warning is logged when events wait too long.
+ *
+ * The number of threads is set with the fopDispatchThreads parameter (OWLCMS_FOPDISPATCHTHREADS).
+ *
+ * @author owlcms
+ */
+public class FopDispatcher implements OrderedEventBus.LaneExecutor {
+
+    private static class Delivery {
+        private final long queuedNanos;
+        private final Runnable task;
+
+        private Delivery(Runnable task) {
+            this.task = task;
+            this.queuedNanos = System.nanoTime();
+        }
+    }
+
+    private class Lane implements Runnable {
+        private final String description;
+        private final Object key;
+        private final ArrayDeque<Delivery> pending = new ArrayDeque<>();
+
+        private Lane(Object key, String description) {
+            this.key = key;
+            this.description = description;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH; i++) {
+                Delivery d;
+                synchronized (lanes) {
+                    d = pending.poll();
+                    if (d == null) {
+                        lanes.remove(key);
+                        return;
+                    }
+                }
+                queueDepth.decrementAndGet();
+                recordWait(this, System.nanoTime() - d.queuedNanos);
+                try {
+                    d.task.run();
+                } catch (Throwable t) {
+                    logger.error("{} {} {}", name, description, LoggerUtils.stackTrace(t));
+                }
+            }
+            synchronized (lanes) {
+                if (pending.isEmpty()) {
+                    lanes.remove(key);
+                    return;
+                }
+            }
+            // let the other lanes have a turn
+            executor.execute(this);
+        }
+    }
+
+    private static final int BATCH = 8;
+    private static final long SLOW_MILLIS = 1000;
+    private static final long WARNING_INTERVAL_MILLIS = 10000;
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(FopDispatcher.class);
+
+    /**
+     * @return the configured number of threads for each bus of each field of play
+     */
+    public static int getConfiguredThreads() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = StartupUtils.getIntegerParam("fopDispatchThreads", Math.max(2, Math.min(8, cores)));
+        return Math.max(1, threads);
+    }
+
+    private long delivered;
+    private final ThreadPoolExecutor executor;
+    private long lastWarningMillis;
+    private final Map<Object, Lane> lanes = new IdentityHashMap<>();
+    private long maxQueueDepth;
+    private long maxWaitNanos;
+    private final String name;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private long totalWaitNanos;
+
+    /**
+     * @param name    for thread names and logging
+     * @param threads maximum number of threads
+     */
+    public FopDispatcher(String name, int threads) {
+        this.name = name;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // threads go away when the field of play is idle
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Object key, String description, Runnable task) {
+        Lane toStart = null;
+        synchronized (lanes) {
+            Lane lane = lanes.get(key);
+            if (lane == null) {
+                lane = new Lane(key, description);
+                lanes.put(key, lane);
+                toStart = lane;
+            }
+            lane.pending.add(new Delivery(task));
+        }
+        int depth = queueDepth.incrementAndGet();
+        synchronized (this) {
+            if (depth > maxQueueDepth) {
+                maxQueueDepth = depth;
+            }
+        }
+        if (toStart != null) {
+            executor.execute(toStart);
+        }
+    }
+
+    /**
+     * @return number of subscribers with events being delivered or waiting
+     */
+    public int getActiveLanes() {
+        synchronized (lanes) {
+            return lanes.size();
+        }
+    }
+
+    public synchronized double getAverageWaitMillis() {
+        return delivered > 0 ? (totalWaitNanos / (double) delivered) / 1_000_000.0 : 0.0;
+    }
+
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+
+    public synchronized long getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public synchronized double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    /**
+     * @return number of events waiting to be delivered
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Reset the maximums and averages.
+     */
+    public synchronized void resetStatistics() {
+        delivered = 0;
+        totalWaitNanos = 0;
+        maxWaitNanos = 0;
+        maxQueueDepth = queueDepth.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s queued=%d (max %d) lanes=%d delivered=%d wait avg=%.1fms max=%.1fms", name,
+                getQueueDepth(), getMaxQueueDepth(), getActiveLanes(), getDelivered(), getAverageWaitMillis(),
+                getMaxWaitMillis());
+    }
+
+    private void recordWait(Lane lane, long waitNanos) {
+        boolean warn = false;
+        synchronized (this) {
+            delivered++;
+            totalWaitNanos += waitNanos;
+            if (waitNanos > maxWaitNanos) {
+                maxWaitNanos = waitNanos;
+            }
+            long now = System.currentTimeMillis();
+            if (waitNanos > SLOW_MILLIS * 1_000_000 && now - lastWarningMillis > WARNING_INTERVAL_MILLIS) {
+                lastWarningMillis = now;
+                warn = true;
+            }
+        }
+        if (warn) {
+            logger.warn("{} event for {} waited {}ms; {}", name, lane.description, waitNanos / 1_000_000, this);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.StartupUtils;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * The thread that changes the state of a field of play.
+ *
+ * Events and delayed actions are queued in a bounded mailbox and handled one at a time, in order, so the state machine
+ * never runs on two threads at once. An event posted while another is being handled (from inside the handler) is
+ * handled right away, as part of the current one.
+ *
+ * User interfaces read the state of the field of play after posting, so a poster waits until its event has been
+ * handled, but no longer than fopEventWaitMillis (OWLCMS_FOPEVENTWAITMILLIS, 0 to never wait); a slow database then
+ * delays the screens but does not freeze the button. The mailbox size is set with fopMailboxSize
+ * (OWLCMS_FOPMAILBOXSIZE); posters wait when it is full.
+ *
+ * @author owlcms
+ */
+public class FopEventLoop implements OrderedEventBus.LaneExecutor {
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(FopEventLoop.class);
+
+    private final BlockingQueue<FutureTask<Void>> mailbox;
+    private final String name;
+    private volatile boolean stopped;
+    private final Thread thread;
+    private final long waitMillis;
+
+    public FopEventLoop(String name) {
+        this(name, StartupUtils.getIntegerParam("fopMailboxSize", 1000),
+                StartupUtils.getIntegerParam("fopEventWaitMillis", 2000));
+    }
+
+    public FopEventLoop(String name, int capacity, long waitMillis) {
+        this.name = name;
+        this.mailbox = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.waitMillis = waitMillis;
+        this.thread = new Thread(this::loop, name + "-loop");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Called by the event bus; the poster waits for the event to be handled.
+     */
+    @Override
+    public void execute(Object lane, String description, Runnable task) {
+        submit(task, true);
+    }
+
+    /**
+     * @return number of events and actions waiting
+     */
+    public int getPending() {
+        return mailbox.size();
+    }
+
+    /**
+     * @return true if called from inside an event handler
+     */
+    public boolean isLoopThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Stop handling events; used when the platform is removed.
+     */
+    public void shutdown() {
+        stopped = true;
+        thread.interrupt();
+    }
+
+    /**
+     * If the calling thread is interrupted while the mailbox is full, the task is discarded and an error is logged; the
+     * interrupt status is kept.
+     *
+     * @param task action on the field of play
+     * @param wait if true, wait for the task to be done (up to the configured limit), and propagate its exceptions
+     */
+    public void submit(Runnable task, boolean wait) {
+        if (isLoopThread()) {
+            task.run();
+            return;
+        }
+        // the poster may have stopped waiting (or never waits), so failures are always logged here; they are also
+        // rethrown to a poster that is still waiting.
+        boolean waiting = wait && waitMillis > 0;
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                logger./**/error("{} {}", name, LoggerUtils.stackTrace(e));
+                if (waiting) {
+                    throw e;
+                }
+            }
+            return null;
+        });
+        boolean queued = false;
+        try {
+            if (!mailbox.offer(future)) {
+                logger.warn("{} mailbox full ({} pending), waiting", name, mailbox.size());
+                mailbox.put(future);
+            }
+            queued = true;
+            if (waiting) {
+                future.get(waitMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            logger.warn("{} event not handled after {}ms, not waiting [{}]", name, waitMillis, LoggerUtils.whereFrom());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (queued) {
+                // the event stays in the mailbox and will be handled
+                logger.warn("{} interrupted, not waiting for event [{}]", name, LoggerUtils.whereFrom());
+            } else {
+                future.cancel(false);
+                logger./**/error("{} interrupted while mailbox full, event discarded [{}]", name,
+                        LoggerUtils.whereFrom());
+            }
+        }
+    }
+
+    private void loop() {
+        while (!stopped) {
+            FutureTask<Void> task;
+            try {
+                task = mailbox.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // exceptions are kept in the future
+            task.run();
+        }
+        logger.info("{} event loop stopped", name);
+    }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Event bus that delivers the events of each subscriber through a {@link LaneExecutor}, keyed by the subscribing
+ * object, so that each subscriber receives its events in the order they were posted.
+ *
+ * Each subscriber is registered on its own plain, synchronous {@link EventBus}; posting hands the event to the lane of
+ * every subscriber that has a method for it, and the lane posts it to that subscriber's bus.
+ *
+ * @author owlcms
+ */
+public class OrderedEventBus extends EventBus {
+
+    /**
+     * Runs tasks; tasks with the same lane run one at a time, in submission order.
+     */
+    public interface LaneExecutor {
+        /**
+         * @param lane        the subscribing object
+         * @param description for monitoring
+         * @param task        the delivery
+         */
+        void execute(Object lane, String description, Runnable task);
+    }
+
+    private static class Lane {
+        private final EventBus bus;
+        private final Set<Class<?>> eventTypes;
+        private final Object subscriber;
+
+        private Lane(String identifier, Object subscriber, Set<Class<?>> eventTypes) {
+            this.subscriber = subscriber;
+            this.eventTypes = eventTypes;
+            this.bus = new EventBus(identifier);
+            this.bus.register(subscriber);
+        }
+
+        private boolean accepts(Object event) {
+            for (Class<?> type : eventTypes) {
+                if (type.isInstance(event)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final Map<Class<?>, Set<Class<?>>> eventTypesByClass = new ConcurrentHashMap<>();
+
+    private static void addEventTypes(Class<?> c, Set<Class<?>> types) {
+        if (c == null) {
+            return;
+        }
+        for (Method m : c.getDeclaredMethods()) {
+            if (m.isAnnotationPresent(Subscribe.class) && !m.isSynthetic() && m.getParameterCount() == 1) {
+                types.add(Primitives.wrap(m.getParameterTypes()[0]));
+            }
+        }
+        addEventTypes(c.getSuperclass(), types);
+        for (Class<?> i : c.getInterfaces()) {
+            addEventTypes(i, types);
+        }
+    }
+
+    /**
+     * @return the types of events accepted by the {@link Subscribe} methods of the class and its supertypes
+     */
+    private static Set<Class<?>> eventTypes(Class<?> clazz) {
+        return eventTypesByClass.computeIfAbsent(clazz, c -> {
+            Set<Class<?>> types = new LinkedHashSet<>();
+            addEventTypes(c, types);
+            return types;
+        });
+    }
+
+    private final LaneExecutor executor;
+    private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+
+    public OrderedEventBus(String identifier, LaneExecutor executor) {
+        super(identifier);
+        this.executor = executor;
+    }
+
+    @Override
+    public void post(Object event) {
+        for (Lane lane : lanes) {
+            if (lane.accepts(event)) {
+                executor.execute(lane.subscriber, lane.subscriber.getClass().getSimpleName(),
+                        () -> lane.bus.post(event));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void register(Object object) {
+        if (find(object) != null) {
+            return;
+        }
+        Set<Class<?>> types = eventTypes(object.getClass());
+        if (!types.isEmpty()) {
+            lanes.add(new Lane(identifier(), object, types));
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the object is not registered, as {@link EventBus#unregister(Object)}
+     */
+    @Override
+    public synchronized void unregister(Object object) {
+        Lane lane = find(object);
+        if (lane == null) {
+            throw new IllegalArgumentException("missing event subscriber for an annotated method. Is " + object
+                    + " registered?");
+        }
+        lanes.remove(lane);
+    }
+
+    private Lane find(Object object) {
+        for (Lane lane : lanes) {
+            if (lane.subscriber == object) {
+                return lane;
+            }
+        }
+        return null;
+    }
+}
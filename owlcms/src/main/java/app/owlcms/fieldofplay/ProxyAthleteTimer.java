@@ -145,7 +145,7 @@ public class ProxyAthleteTimer implements IProxyTimer {
             logger.warn/**/("starting with no time {}", LoggerUtils.whereFrom());
         }
         getFop().pushOutUIEvent(
-                new UIEvent.StartTime(timeRemaining, null, getFop().isEmitSoundsOnServer(), LoggerUtils.stackTrace()));
+                new UIEvent.StartTime(timeRemaining, null, getFop().isEmitSoundsOnServer(), LoggerUtils.whereFrom()));
         running = true;
     }
 
@@ -174,12 +174,12 @@ public class ProxyAthleteTimer implements IProxyTimer {
         }
         // leave enough time for buzzer event to propagate allowing for some clock drift
         if (running) {
-            try {
-                // timers that are more than 1 sec. late will now stop silently.
-                Thread.sleep(1000);
-                this.stop();
-            } catch (InterruptedException e) {
-            }
+            // timers that are more than 1 sec. late will now stop silently.
+            getFop().getScheduler().schedule(() -> {
+                if (running) {
+                    this.stop();
+                }
+            }, 1000);
         }
     }
 
@@ -196,7 +196,7 @@ public class ProxyBreakTimer implements IProxyTimer, IBreakTimer {
         this.setEnd(null);
         getFop().pushOutUIEvent(
                 new UIEvent.BreakSetTime(getFop().getBreakType(), getFop().getCountdownType(), getTimeRemaining(), null,
-                        true, this, LoggerUtils.stackTrace()));
+                        true, this, LoggerUtils.whereFrom()));
         setRunning(false);
         indefinite = true;
     }
@@ -235,7 +235,7 @@ public class ProxyBreakTimer implements IProxyTimer, IBreakTimer {
         UIEvent.BreakStarted event = new UIEvent.BreakStarted(
                 millisRemaining, getOrigin(), false,
                 breakType,
-                getFop().getCountdownType(), LoggerUtils.stackTrace(), this.indefinite);
+                getFop().getCountdownType(), LoggerUtils.whereFrom(), this.indefinite);
         logger.debug("posting {}", event);
         getFop().pushOutUIEvent(event);
         setRunning(true);
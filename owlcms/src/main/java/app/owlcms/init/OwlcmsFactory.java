@@ -169,6 +169,7 @@ public class OwlcmsFactory {
         }
         try {
             FieldOfPlay fop = fopByName.get(name);
+            fop.stopEventLoop();
             fop.getFopEventBus().unregister(fop);
         } catch (IllegalArgumentException e) {
         }
@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.sound;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.ResourceWalker;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Plays sounds on a mixer with low latency.
+ *
+ * Sounds are decoded once into PCM, in a single format, and decoded again if the file is replaced in the local override
+ * directory. Each mixer has one output line, opened once and kept open, fed by its own thread; sounds requested while
+ * another is playing are mixed in. Requests go through a lock-free queue, so the caller never waits for the sound
+ * system. If the line fails, it is closed, and opened again for the next sound.
+ *
+ * Without a mixer (headless tests), sounds are mixed and counted but not output.
+ *
+ * @author owlcms
+ */
+public class SoundPlayer {
+
+    private static final class Decoded {
+        private final String version;
+        private final byte[] pcm;
+
+        private Decoded(String version, byte[] pcm) {
+            this.version = version;
+            this.pcm = pcm;
+        }
+    }
+
+    private static final class Voice {
+        private final byte[] pcm;
+        private int position;
+
+        private Voice(byte[] pcm) {
+            this.pcm = pcm;
+        }
+    }
+
+    /**
+     * format of the sounds provided with the application.
+     */
+    public static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+
+    /**
+     * sounds used by the field of play, decoded when the first player is created.
+     */
+    public static final List<String> PLATFORM_SOUNDS = List.of("down.wav", "initialWarning.wav", "finalWarning.wav",
+            "timeOver.wav");
+
+    /**
+     * 10ms per write, so a new sound starts quickly.
+     */
+    private static final int CHUNK_BYTES = 441 * 4;
+
+    /**
+     * line buffer (about 50ms).
+     */
+    private static final int LINE_BUFFER_BYTES = CHUNK_BYTES * 5;
+
+    private static final Map<String, Decoded> decoded = new ConcurrentHashMap<>();
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(SoundPlayer.class);
+    private static final String NO_MIXER = "";
+    private static final Map<String, SoundPlayer> players = new ConcurrentHashMap<>();
+
+    /**
+     * @param soundName file name in the sounds directory, e.g. down.wav
+     * @return the sound in {@link #FORMAT}, decoded on first use or when the file has changed; null if it cannot be
+     *         read (not remembered, so reading is attempted again)
+     */
+    public static byte[] decode(String soundName) {
+        String name = Sound.SOUND_PREFIX + soundName;
+        Path path;
+        String version;
+        try {
+            path = ResourceWalker.getFileOrResourcePath(name);
+            version = path.toUri() + "|" + Files.getLastModifiedTime(path).toMillis();
+        } catch (Exception e) {
+            logger.error("cannot find sound {} {}", name, e.toString());
+            return null;
+        }
+        Decoded d = decoded.compute(soundName,
+                (k, previous) -> previous != null && previous.version.equals(version) ? previous
+                        : doDecode(path, version));
+        return d != null ? d.pcm : null;
+    }
+
+    /**
+     * @param mixer null for a player that does not output anything
+     * @return the player for the mixer, created and started on first use
+     */
+    public static SoundPlayer forMixer(Mixer mixer) {
+        String key = mixer == null ? NO_MIXER : mixer.getMixerInfo().getName();
+        return players.computeIfAbsent(key, k -> {
+            PLATFORM_SOUNDS.forEach(SoundPlayer::decode);
+            return new SoundPlayer(mixer);
+        });
+    }
+
+    /**
+     * Sine wave with shaped ends, in {@link #FORMAT}.
+     *
+     * @param hz
+     * @param msecs
+     * @param vol   between 0.0 and 1.0
+     * @return pcm bytes
+     */
+    public static byte[] tone(int hz, int msecs, double vol) {
+        if (vol > 1.0 || vol < 0.0) {
+            throw new IllegalArgumentException("Volume out of range 0.0 - 1.0");
+        }
+        float rate = FORMAT.getSampleRate();
+        int frames = (int) (rate * msecs / 1000);
+        int ramp = Math.min(frames / 2, (int) (rate / 400)); // 2.5ms
+        byte[] buf = new byte[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            double amplitude = Math.sin(i / (rate / hz) * 2.0 * Math.PI) * Short.MAX_VALUE * vol;
+            int fromEnd = Math.min(i, frames - 1 - i);
+            if (fromEnd < ramp) {
+                amplitude = amplitude * fromEnd / ramp;
+            }
+            short sample = (short) amplitude;
+            for (int channel = 0; channel < 2; channel++) {
+                buf[i * 4 + channel * 2] = (byte) sample;
+                buf[i * 4 + channel * 2 + 1] = (byte) (sample >> 8);
+            }
+        }
+        return buf;
+    }
+
+    private static Decoded doDecode(Path path, String version) {
+        try (InputStream is = Files.newInputStream(path)) {
+            // force WaveFileReader, the resource stream does not support the mark/reset done by AudioSystem
+            AudioInputStream ais = new WaveFileReader().getAudioInputStream(new BufferedInputStream(is));
+            AudioFormat source = ais.getFormat();
+            if (!source.matches(FORMAT)) {
+                // the converters change either the encoding or the rate and channels, not both at once
+                AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                        source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+                if (!source.matches(pcm)) {
+                    ais = AudioSystem.getAudioInputStream(pcm, ais);
+                }
+                ais = AudioSystem.getAudioInputStream(FORMAT, ais);
+            }
+            return new Decoded(version, ais.readAllBytes());
+        } catch (Exception e) {
+            logger.error("cannot decode sound {} {}", path, LoggerUtils.stackTrace(e));
+            return null;
+        }
+    }
+
+    private final Queue<byte[]> commands = new ConcurrentLinkedQueue<>();
+    private SourceDataLine line;
+    private final Mixer mixer;
+    private final String name;
+    private final AtomicLong played = new AtomicLong();
+    private final Thread thread;
+
+    private SoundPlayer(Mixer mixer) {
+        this.mixer = mixer;
+        this.name = mixer == null ? "none" : mixer.getMixerInfo().getName();
+        openLine();
+        this.thread = new Thread(this::playbackLoop, "sound-" + name);
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MAX_PRIORITY);
+        this.thread.start();
+    }
+
+    /**
+     * @return number of sounds played to the end
+     */
+    public long getPlayed() {
+        return played.get();
+    }
+
+    /**
+     * Opens the output again if it has failed.
+     *
+     * @return false if there is no mixer, or if its output cannot be opened
+     */
+    public boolean isLineOpen() {
+        return openLine() != null;
+    }
+
+    /**
+     * Start playing a sound; returns immediately.
+     *
+     * @param pcm in {@link #FORMAT}
+     */
+    public void play(byte[] pcm) {
+        if (pcm == null || pcm.length == 0) {
+            return;
+        }
+        commands.offer(pcm);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * @param soundName file name in the sounds directory, e.g. down.wav
+     * @return false if the sound cannot be read, or the output of the mixer cannot be opened
+     */
+    public boolean play(String soundName) {
+        byte[] pcm = decode(soundName);
+        if (pcm == null || (mixer != null && !isLineOpen())) {
+            return false;
+        }
+        play(pcm);
+        return true;
+    }
+
+    private synchronized void closeLine() {
+        if (line != null) {
+            line.close();
+            line = null;
+        }
+    }
+
+    private int mix(List<Voice> voices, byte[] chunk) {
+        int length = 0;
+        for (Voice v : voices) {
+            length = Math.max(length, Math.min(chunk.length, v.pcm.length - v.position));
+        }
+        for (int i = 0; i + 1 < length; i += 2) {
+            int sum = 0;
+            for (Voice v : voices) {
+                int p = v.position + i;
+                if (p + 1 < v.pcm.length) {
+                    sum += (short) ((v.pcm[p] & 0xFF) | (v.pcm[p + 1] << 8));
+                }
+            }
+            sum = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum));
+            chunk[i] = (byte) sum;
+            chunk[i + 1] = (byte) (sum >> 8);
+        }
+        for (Iterator<Voice> iterator = voices.iterator(); iterator.hasNext();) {
+            Voice v = iterator.next();
+            v.position += length;
+            if (v.position >= v.pcm.length) {
+                iterator.remove();
+                played.incrementAndGet();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the open line, opened if needed; null if there is no mixer or the line cannot be opened
+     */
+    private synchronized SourceDataLine openLine() {
+        if (mixer == null) {
+            return null;
+        }
+        if (line != null && line.isOpen()) {
+            return line;
+        }
+        closeLine();
+        try {
+            SourceDataLine sdl = AudioSystem.getSourceDataLine(FORMAT, mixer.getMixerInfo());
+            sdl.open(FORMAT, LINE_BUFFER_BYTES);
+            sdl.start();
+            line = sdl;
+        } catch (Exception e) {
+            logger.error("cannot open sound output {} {}", name, LoggerUtils.stackTrace(e));
+        }
+        return line;
+    }
+
+    private void playbackLoop() {
+        List<Voice> voices = new ArrayList<>();
+        byte[] chunk = new byte[CHUNK_BYTES];
+        while (true) {
+            byte[] pcm;
+            while ((pcm = commands.poll()) != null) {
+                voices.add(new Voice(pcm));
+            }
+            if (voices.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            SourceDataLine out = openLine();
+            if (mixer != null && out == null) {
+                // output unavailable, already logged; do not retry for every chunk
+                voices.clear();
+                continue;
+            }
+            try {
+                int length = mix(voices, chunk);
+                if (out != null) {
+                    // blocks while the line buffer is full, which paces the loop
+                    out.write(chunk, 0, length);
+                }
+            } catch (Exception e) {
+                logger.error("sound output {} failed {}", name, LoggerUtils.stackTrace(e));
+                closeLine();
+                voices.clear();
+            }
+        }
+    }
+}
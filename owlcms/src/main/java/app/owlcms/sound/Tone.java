@@ -6,16 +6,15 @@
  *******************************************************************************/
 package app.owlcms.sound;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
-import javax.sound.sampled.SourceDataLine;
 
+/**
+ * Play a tone, generated in the format of the {@link SoundPlayer} of the mixer; {@link #emit()} does not wait.
+ */
 public class Tone {
-    private AudioFormat af;
     private byte[] buf;
-    private SourceDataLine sdl;
+    private SoundPlayer player;
 
     public Tone(Mixer mixer, int hz, int msecs, double vol) throws IllegalArgumentException, LineUnavailableException {
         if (mixer == null) {
@@ -24,21 +23,11 @@ public class Tone {
         init(hz, msecs, vol, mixer);
     }
 
-    /**
-     * @param buf
-     * @param af
-     * @param sdl
-     * @throws LineUnavailableException
-     */
     public void emit() throws IllegalArgumentException, LineUnavailableException {
-        if (sdl == null) {
+        if (player == null) {
             return;
         }
-        sdl.open(af, buf.length);
-        sdl.start();
-        sdl.write(buf, 0, buf.length);
-        sdl.drain();
-        sdl.close();
+        player.play(buf);
     }
 
     /**
@@ -46,27 +35,15 @@ public class Tone {
      * @param msecs
      * @param vol
      * @param mixer
+     * @throws LineUnavailableException if the output of the mixer cannot be opened
      */
     protected void init(int hz, int msecs, double vol, Mixer mixer)
             throws LineUnavailableException, IllegalArgumentException {
-        if (vol > 1.0 || vol < 0.0) {
-            throw new IllegalArgumentException("Volume out of range 0.0 - 1.0");
-        }
-        buf = new byte[msecs * 8];
-
-        for (int i = 0; i < buf.length; i++) {
-            double angle = i / (8000.0 / hz) * 2.0 * Math.PI;
-            buf[i] = (byte) (Math.sin(angle) * 127.0 * vol);
+        buf = SoundPlayer.tone(hz, msecs, vol);
+        player = SoundPlayer.forMixer(mixer);
+        if (!player.isLineOpen()) {
+            throw new LineUnavailableException(mixer.getMixerInfo().getName());
         }
-
-        // shape the front and back ends of the wave form
-        for (int i = 0; i < 20 && i < buf.length / 2; i++) {
-            buf[i] = (byte) (buf[i] * i / 20);
-            buf[buf.length - 1 - i] = (byte) (buf[buf.length - 1 - i] * i / 20);
-        }
-
-        af = new AudioFormat(8000f, 8, 1, true, false);
-        sdl = AudioSystem.getSourceDataLine(af, mixer.getMixerInfo());
     }
 
 }
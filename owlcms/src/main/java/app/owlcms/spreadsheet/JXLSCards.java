@@ -7,6 +7,7 @@
 package app.owlcms.spreadsheet;
 
 import java.util.List;
+import java.util.Locale;
 
 import org.apache.poi.ss.usermodel.Workbook;
 import org.slf4j.Logger;
@@ -52,10 +53,10 @@ public class JXLSCards extends JXLSWorkbookStreamSource {
      * (non-Javadoc)
      *
      * @see org.concordiainternational.competition.spreadsheet.JXLSWorkbookStreamSource#
-     * postProcess(org.apache.poi.ss.usermodel.Workbook)
+     * postProcess(org.apache.poi.ss.usermodel.Workbook, java.util.Locale)
      */
     @Override
-    protected void postProcess(Workbook workbook) {
+    protected void postProcess(Workbook workbook, Locale locale) {
 //        setPageBreaks(workbook);
     }
 
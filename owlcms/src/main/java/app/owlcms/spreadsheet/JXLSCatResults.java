@@ -6,6 +6,8 @@
  *******************************************************************************/
 package app.owlcms.spreadsheet;
 
+import java.util.Locale;
+
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -42,14 +44,14 @@ public class JXLSCatResults extends JXLSWorkbookStreamSource {
         super();
     }
 
-    public void fix(Workbook workbook, int rownum, int cellnum, String value) {
+    public void fix(Workbook workbook, int rownum, int cellnum, String label, String value) {
         Row row = workbook.getSheetAt(0).getRow(rownum);
         final Cell cellLeft = row.getCell(cellnum);
         if (cellLeft == null) {
             return;
         }
 
-        cellLeft.setCellValue(Translator.translate("Category"));
+        cellLeft.setCellValue(label);
 
         Cell cellRight = row.getCell(cellnum + 1);
         if (cellRight == null) {
@@ -86,15 +88,15 @@ public class JXLSCatResults extends JXLSWorkbookStreamSource {
      * (non-Javadoc)
      *
      * @see org.concordiainternational.competition.spreadsheet.JXLSWorkbookStreamSource#
-     * postProcess(org.apache.poi.ss.usermodel.Workbook)
+     * postProcess(org.apache.poi.ss.usermodel.Workbook, java.util.Locale)
      */
     @Override
-    protected void postProcess(Workbook workbook) {
+    protected void postProcess(Workbook workbook, Locale locale) {
         final Category cat = getCategory();
         if (cat == null) {
             zapCellPair(workbook, 3, 9);
         } else {
-            fix(workbook, 3, 9, cat.toString());
+            fix(workbook, 3, 9, Translator.translate("Category", locale), cat.toString());
         }
     }
 }
@@ -6,7 +6,9 @@
  *******************************************************************************/
 package app.owlcms.spreadsheet;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.apache.poi.ss.usermodel.Sheet;
@@ -20,7 +22,6 @@ import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.i18n.Translator;
-import app.owlcms.init.OwlcmsSession;
 import net.sf.jxls.transformer.XLSTransformer;
 
 /**
@@ -99,11 +100,11 @@ public class JXLSCompetitionBook extends JXLSWorkbookStreamSource {
      * team result sheets need columns hidden, print area fixed
      *
      * @see org.concordiainternational.competition.spreadsheet.JXLSWorkbookStreamSource#
-     * postProcess(org.apache.poi.ss.usermodel.Workbook)
+     * postProcess(org.apache.poi.ss.usermodel.Workbook, java.util.Locale)
      */
     @Override
-    protected void postProcess(Workbook workbook) {
-        super.postProcess(workbook);
+    protected void postProcess(Workbook workbook, Locale locale) {
+        super.postProcess(workbook, locale);
         @SuppressWarnings("unchecked")
         int nbClubs = ((Set<String>) getReportingBeans().get("clubs")).size();
 
@@ -118,7 +119,7 @@ public class JXLSCompetitionBook extends JXLSWorkbookStreamSource {
         setTeamSheetPrintArea(workbook, "WCT", nbClubs);
         setTeamSheetPrintArea(workbook, "MWCT", nbClubs);
 
-        translateSheets(workbook);
+        translateSheets(workbook, locale);
         workbook.setForceFormulaRecalculation(true);
 
     }
@@ -126,10 +127,10 @@ public class JXLSCompetitionBook extends JXLSWorkbookStreamSource {
     @Override
     protected void setReportingInfo() {
         Competition competition = Competition.getCurrent();
-        competition.computeReportingInfo(getAgeGroupPrefix(), getAgeDivision());
+        HashMap<String, Object> beans = competition.computeReportingInfo(getAgeGroupPrefix(), getAgeDivision());
 
         super.setReportingInfo();
-        setReportingBeans(competition.getReportingBeans());
+        setReportingBeans(beans);
     }
 
     private void setTeamSheetPrintArea(Workbook workbook, String sheetName, int nbClubs) {
@@ -144,45 +145,46 @@ public class JXLSCompetitionBook extends JXLSWorkbookStreamSource {
      * jxls does not translate sheet names and header/footers.
      *
      * @param workbook
+     * @param locale
      */
-    private void translateSheets(Workbook workbook) {
+    private void translateSheets(Workbook workbook, Locale locale) {
         int nbSheets = workbook.getNumberOfSheets();
         for (int sheetIndex = 0; sheetIndex < nbSheets; sheetIndex++) {
             Sheet curSheet = workbook.getSheetAt(sheetIndex);
             String sheetName = curSheet.getSheetName();
             workbook.setSheetName(sheetIndex,
-                    Translator.translate("CompetitionBook." + sheetName, OwlcmsSession.getLocale()));
+                    Translator.translate("CompetitionBook." + sheetName, locale));
 
             // use translate so this shows as missing on the sheet.
             String leftHeader = Translator.translate("CompetitionBook." + sheetName + "_LeftHeader",
-                    OwlcmsSession.getLocale());
+                    locale);
             if (leftHeader != null) {
                 curSheet.getHeader().setLeft(leftHeader);
             }
             String centerHeader = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_CenterHeader",
-                    OwlcmsSession.getLocale());
+                    locale);
             if (centerHeader != null) {
                 curSheet.getHeader().setCenter(centerHeader);
             }
             // use translate so this shows as missing on the sheet.
             String rightHeader = Translator.translate("CompetitionBook." + sheetName + "_RightHeader",
-                    OwlcmsSession.getLocale());
+                    locale);
             if (rightHeader != null) {
                 curSheet.getHeader().setRight(rightHeader);
             }
 
             String leftFooter = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_LeftFooter",
-                    OwlcmsSession.getLocale());
+                    locale);
             if (leftFooter != null) {
                 curSheet.getFooter().setLeft(leftFooter);
             }
             String centerFooter = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_CenterFooter",
-                    OwlcmsSession.getLocale());
+                    locale);
             if (centerFooter != null) {
                 curSheet.getFooter().setCenter(centerFooter);
             }
             String rightFooter = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_RightFooter",
-                    OwlcmsSession.getLocale());
+                    locale);
             if (rightFooter != null) {
                 curSheet.getFooter().setRight(rightFooter);
             }
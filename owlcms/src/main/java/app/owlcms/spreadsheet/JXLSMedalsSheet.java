@@ -9,6 +9,7 @@ package app.owlcms.spreadsheet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -83,10 +84,15 @@ public class JXLSMedalsSheet extends JXLSWorkbookStreamSource {
      * (non-Javadoc)
      *
      * @see org.concordiainternational.competition.spreadsheet.JXLSWorkbookStreamSource#
-     * postProcess(org.apache.poi.ss.usermodel.Workbook)
+     * postProcess(org.apache.poi.ss.usermodel.Workbook, java.util.Locale)
      */
     @Override
-    protected void postProcess(Workbook workbook) {
+    protected void postProcess(Workbook workbook, Locale locale) {
+    }
+
+    @Override
+    protected boolean isCacheable() {
+        return true;
     }
 
 }
@@ -8,6 +8,7 @@ package app.owlcms.spreadsheet;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 import org.apache.poi.ss.usermodel.Workbook;
@@ -116,14 +117,19 @@ public class JXLSResultSheet extends JXLSWorkbookStreamSource {
      * (non-Javadoc)
      *
      * @see org.concordiainternational.competition.spreadsheet.JXLSWorkbookStreamSource#
-     * postProcess(org.apache.poi.ss.usermodel.Workbook)
+     * postProcess(org.apache.poi.ss.usermodel.Workbook, java.util.Locale)
      */
     @Override
-    protected void postProcess(Workbook workbook) {
+    protected void postProcess(Workbook workbook, Locale locale) {
         final Group currentCompetitionSession = getGroup();
         if (currentCompetitionSession == null) {
             zapCellPair(workbook, 3, 9);
         }
     }
 
+    @Override
+    protected boolean isCacheable() {
+        return true;
+    }
+
 }
@@ -63,4 +63,9 @@ public class JXLSStartingList extends JXLSWorkbookStreamSource {
         }
     }
 
+    @Override
+    protected boolean isCacheable() {
+        return true;
+    }
+
 }
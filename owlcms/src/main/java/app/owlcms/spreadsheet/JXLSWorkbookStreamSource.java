@@ -6,6 +6,7 @@
  *******************************************************************************/
 package app.owlcms.spreadsheet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,6 +16,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -37,12 +39,14 @@ import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.competition.Competition;
+import app.owlcms.data.competition.ReportingService;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.ResourceWalker;
+import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import net.sf.jxls.transformer.XLSTransformer;
@@ -63,6 +67,14 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         tagLogger.setLevel(Level.ERROR);
     }
 
+    /**
+     * Workbooks are built in memory; building too many at once (e.g. final packages requested from several
+     * computers) exhausts the heap. Set with the reportConcurrency parameter (OWLCMS_REPORTCONCURRENCY).
+     */
+    protected static final int MAX_CONCURRENT_TRANSFORMS = Math.max(1,
+            StartupUtils.getIntegerParam("reportConcurrency", 2));
+    private static final Semaphore transforms = new Semaphore(MAX_CONCURRENT_TRANSFORMS, true);
+
     protected List<Athlete> sortedAthletes;
 
     private AgeDivision ageDivision;
@@ -74,6 +86,7 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
     private InputStream inputStream;
     private HashMap<String, Object> reportingBeans;
     private String templateFileName;
+    private String templateName;
     private UI ui;
 
     public JXLSWorkbookStreamSource() {
@@ -85,46 +98,70 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
     /**
      * Read the xls template and write the processed XLS file out.
      *
+     * The reporting information and the template are obtained while holding the session lock, since they depend on
+     * the session (locale, field of play, selected group). The workbook is produced and written without the lock, using
+     * only the locale resolved under the lock, so the user interface remains responsive during large reports. The
+     * number of workbooks being produced at the same time is bounded to limit memory use.
+     *
      * @see com.vaadin.flow.server.StreamResourceWriter#accept(java.io.OutputStream,
      *      com.vaadin.flow.server.VaadinSession)
      */
     @SuppressWarnings("unchecked")
     @Override
     public void accept(OutputStream stream, VaadinSession session) throws IOException {
+        Workbook workbook = null;
         try {
+            HashMap<String, Object> reportingInfo;
+            InputStream template = null;
+            String cacheKey;
+            Locale locale;
+            String noAthletes;
             session.lock();
-            Locale locale = OwlcmsSession.getLocale();
-            XLSTransformer transformer = new XLSTransformer();
-            configureTransformer(transformer);
-            Workbook workbook = null;
             try {
+                locale = OwlcmsSession.getLocale();
+                noAthletes = Translator.translate("NoAthletes", locale);
+                cacheKey = getCacheKey(locale);
+                ReportCache.getCurrent().requested(locale);
+                byte[] cached = cacheKey != null ? ReportCache.getCurrent().get(cacheKey) : null;
+                if (cached != null) {
+                    logger.debug("{} from cache", getClass().getSimpleName());
+                    stream.write(cached);
+                    return;
+                }
                 // logger.debug("wsss setReportingInfo");
                 setReportingInfo();
-                HashMap<String, Object> reportingInfo = getReportingBeans();
+                reportingInfo = getReportingBeans();
                 List<Athlete> athletes = (List<Athlete>) reportingInfo.get("athletes");
                 if (athletes != null && athletes.size() > 0) {
-                    workbook = transformer.transformXLS(getTemplate(locale), reportingInfo);
-                    if (workbook != null) {
-                        postProcess(workbook);
-                    }
-                } else {
-                    String noAthletes = Translator.translate("NoAthletes");
-                    logger./**/warn("no athletes: empty report.");
-                    ui.access(() -> {
-                        Notification notif = new Notification();
-                        notif.addThemeVariants(NotificationVariant.LUMO_ERROR);
-                        notif.setPosition(Position.TOP_STRETCH);
-                        notif.setDuration(3000);
-                        notif.setText(noAthletes);
-                        notif.open();
-                    });
-                    workbook = new HSSFWorkbook();
-                    workbook.createSheet().createRow(1).createCell(1).setCellValue(noAthletes);
+                    template = getTemplate(locale);
                 }
             } catch (Exception e) {
                 LoggerUtils.logError(logger, e);
+                return;
+            } finally {
+                session.unlock();
             }
-            if (workbook != null) {
+
+            if (template != null) {
+                workbook = transform(template, reportingInfo, locale);
+            } else {
+                logger./**/warn("no athletes: empty report.");
+                ui.access(() -> {
+                    Notification notif = new Notification();
+                    notif.addThemeVariants(NotificationVariant.LUMO_ERROR);
+                    notif.setPosition(Position.TOP_STRETCH);
+                    notif.setDuration(3000);
+                    notif.setText(noAthletes);
+                    notif.open();
+                });
+                workbook = new HSSFWorkbook();
+                workbook.createSheet().createRow(1).createCell(1).setCellValue(noAthletes);
+            }
+            if (workbook != null && template != null && cacheKey != null) {
+                byte[] bytes = toBytes(workbook);
+                ReportCache.getCurrent().put(cacheKey, bytes);
+                stream.write(bytes);
+            } else if (workbook != null) {
                 workbook.write(stream);
             }
         } catch (IOException e) {
@@ -132,7 +169,10 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         } catch (Throwable t) {
             logger.error(LoggerUtils./**/stackTrace(t));
         } finally {
-            session.unlock();
+            if (workbook != null) {
+                // release the memory held by large workbooks right away
+                workbook.close();
+            }
         }
     }
 
@@ -181,6 +221,13 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         return tryList;
     }
 
+    /**
+     * @return name of the template set with {@link #setInputStream(InputStream)}, used to identify cached results
+     */
+    public String getTemplateName() {
+        return templateName;
+    }
+
     public String getTemplateFileName() {
         logger.debug("getTemplateFileName {}", templateFileName);
         return templateFileName;
@@ -221,6 +268,10 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         this.reportingBeans = jXLSBeans;
     }
 
+    public void setTemplateName(String templateName) {
+        this.templateName = templateName;
+    }
+
     public void setSortedAthletes(List<Athlete> sortedAthletes) {
         this.sortedAthletes = sortedAthletes;
     }
@@ -258,6 +309,96 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         // do nothing, to be overridden as needed,
     }
 
+    /**
+     * Identify the rendered workbook for {@link ReportCache}. The key covers everything the report depends on: data
+     * version, report type, template, filters, explicitly provided athletes and locale.
+     *
+     * @param locale
+     * @return null if the result must not be cached
+     */
+    protected String getCacheKey(Locale locale) {
+        if (!isCacheable() || templateName == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(ReportCache.versionPrefix(ReportingService.getCurrent().getDataVersion()));
+        sb.append(getClass().getName()).append('|').append(templateName).append('|').append(locale);
+        sb.append("|g=").append(group != null ? group.getId() : null);
+        sb.append("|c=").append(category != null ? category.getCode() : null);
+        sb.append("|ag=").append(ageGroupPrefix).append("|ad=").append(ageDivision);
+        sb.append("|x=").append(excludeNotWeighed);
+        if (sortedAthletes != null) {
+            sb.append("|a=");
+            for (Athlete a : sortedAthletes) {
+                sb.append(a.getId()).append(',');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Apply the template to the reporting beans. At most {@link #MAX_CONCURRENT_TRANSFORMS} workbooks are built at
+     * the same time; other requests wait their turn.
+     *
+     * @param template
+     * @param reportingInfo
+     * @param locale        locale for the text added by {@link #postProcess(Workbook, Locale)}
+     * @return the workbook, or null if the template could not be processed
+     * @throws InterruptedException
+     */
+    protected Workbook transform(InputStream template, HashMap<String, Object> reportingInfo, Locale locale)
+            throws InterruptedException {
+        XLSTransformer transformer = new XLSTransformer();
+        configureTransformer(transformer);
+        Workbook workbook = null;
+        transforms.acquire();
+        try {
+            long start = System.currentTimeMillis();
+            workbook = transformer.transformXLS(template, reportingInfo);
+            if (workbook != null) {
+                postProcess(workbook, locale);
+            }
+            logger.debug("{} transformed in {}ms", getClass().getSimpleName(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            LoggerUtils.logError(logger, e);
+        } finally {
+            transforms.release();
+        }
+        return workbook;
+    }
+
+    /**
+     * Render the workbook outside of any user session and keep it in {@link ReportCache}.
+     *
+     * @param locale
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    void renderToCache(Locale locale) throws Exception {
+        String cacheKey = getCacheKey(locale);
+        if (cacheKey == null || ReportCache.getCurrent().get(cacheKey) != null) {
+            return;
+        }
+        setReportingInfo();
+        List<Athlete> athletes = (List<Athlete>) getReportingBeans().get("athletes");
+        if (athletes == null || athletes.isEmpty()) {
+            return;
+        }
+        Workbook workbook = transform(getTemplate(locale), getReportingBeans(), locale);
+        if (workbook != null) {
+            try {
+                ReportCache.getCurrent().put(cacheKey, toBytes(workbook));
+            } finally {
+                workbook.close();
+            }
+        }
+    }
+
+    private byte[] toBytes(Workbook workbook) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        workbook.write(bytes);
+        return bytes.toByteArray();
+    }
+
     /**
      * Try the possible variations of a template based on locale. For "/templates/start/startList", ".xls", and a locale
      * of fr_CA, the following names will be tried /templates/start/startList_fr_CA.xls
@@ -313,7 +454,21 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         setReportingBeans(new HashMap<String, Object>());
     }
 
-    protected void postProcess(Workbook workbook) {
+    /**
+     * @return true if the workbook only depends on the values in {@link #getCacheKey(Locale)}
+     */
+    protected boolean isCacheable() {
+        return false;
+    }
+
+    /**
+     * Adjust the workbook produced by the template. Runs without the session lock: the locale is passed in, and the
+     * session must not be used.
+     *
+     * @param workbook
+     * @param locale
+     */
+    protected void postProcess(Workbook workbook, Locale locale) {
         // do nothing, to be overridden as needed,
     }
 
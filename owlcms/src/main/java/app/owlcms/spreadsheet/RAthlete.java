@@ -18,10 +18,8 @@ import org.slf4j.LoggerFactory;
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.athlete.Gender;
 import app.owlcms.data.category.Category;
-import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.group.Group;
 import app.owlcms.i18n.Translator;
-import app.owlcms.init.OwlcmsSession;
 import app.owlcms.utils.DateTimeUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -99,7 +97,8 @@ public class RAthlete {
                             eligibleCategories.add(c2);
                         } else {
                             throw new Exception(
-                                    Translator.translate("Upload.CategoryNotFoundByName", eligibleName.trim()));
+                                    Translator.translate("Upload.CategoryNotFoundByName", RCompetition.getLocale(),
+                                            eligibleName.trim()));
                         }
                     }
                 }
@@ -120,11 +119,13 @@ public class RAthlete {
             // try by explicit name
             Category category = RCompetition.getActiveCategories().get(categoryName);
             if (category == null) {
-                throw new Exception(Translator.translate("Upload.CategoryNotFoundByName", categoryName));
+                throw new Exception(Translator.translate("Upload.CategoryNotFoundByName", RCompetition.getLocale(),
+                        categoryName));
             }
             if (category.getGender() != a.getGender()) {
                 throw new Exception(
-                        Translator.translate("Upload.GenderMismatch", categoryName, a.getGender()));
+                        Translator.translate("Upload.GenderMismatch", RCompetition.getLocale(), categoryName,
+                                a.getGender()));
             }
             a.setCategory(category);
             return;
@@ -147,7 +148,7 @@ public class RAthlete {
             age = LocalDate.now().getYear() - a.getYearOfBirth();
         }
 
-        List<Category> found = CategoryRepository.findByGenderAgeBW(a.getGender(), age, searchBodyWeight);
+        List<Category> found = RCompetition.findByGenderAgeBW(a.getGender(), age, searchBodyWeight);
         Set<Category> eligibles = new LinkedHashSet<>();
         eligibles.addAll(found);
         a.setEligibleCategories(eligibles);
@@ -155,7 +156,7 @@ public class RAthlete {
         if (category == null) {
             throw new Exception(
                     Translator.translate(
-                            "Upload.CategoryNotFound", age, a.getGender(),
+                            "Upload.CategoryNotFound", RCompetition.getLocale(), age, a.getGender(),
                             legacyResult.group(2) + legacyResult.group(3)));
         }
 
@@ -227,7 +228,7 @@ public class RAthlete {
             return;
         } catch (NumberFormatException e) {
             // logger.debug("localized");
-            LocalDate parse = DateTimeUtils.parseLocalizedOrISO8601Date(content, OwlcmsSession.getLocale());
+            LocalDate parse = DateTimeUtils.parseLocalizedOrISO8601Date(content, RCompetition.getLocale());
             a.setFullBirthDate(parse);
         }
     }
@@ -321,7 +322,8 @@ public class RAthlete {
             // letter present, should match gender
             if ((genderLetter.equalsIgnoreCase("f") && a.getGender() != Gender.F)
                     || (genderLetter.equalsIgnoreCase("m") && a.getGender() != Gender.M)) {
-                throw new Exception(Translator.translate("Upload.GenderMismatch", result.group(0), a.getGender()));
+                throw new Exception(Translator.translate("Upload.GenderMismatch", RCompetition.getLocale(),
+                        result.group(0), a.getGender()));
             }
         } else {
             // nothing to do gender is known and consistent.
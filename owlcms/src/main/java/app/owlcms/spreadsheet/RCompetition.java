@@ -7,25 +7,37 @@
 package app.owlcms.spreadsheet;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.LoggerFactory;
 
+import app.owlcms.data.agegroup.AgeGroup;
+import app.owlcms.data.athlete.Gender;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
-import app.owlcms.init.OwlcmsSession;
 import app.owlcms.utils.DateTimeUtils;
 import ch.qos.logback.classic.Logger;
 
 public class RCompetition {
 
     static Map<String, Category> activeCategories = new HashMap<>();
+    /**
+     * active categories in registration preference order, loaded once per import.
+     */
+    static List<Category> activeCategoryList;
     static Map<String, Group> activeGroups = new HashMap<>();
     static Map<Long, Set<Category>> athleteToEligibles = new HashMap<>();
+    /**
+     * locale of the user doing the import, for dates and messages; the import does not run in the user's session.
+     */
+    static volatile Locale locale = Locale.ENGLISH;
 
     public static Map<String, Category> getActiveCategories() {
         return activeCategories;
@@ -39,9 +51,42 @@ public class RCompetition {
         return athleteToEligibles;
     }
 
+    public static Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Same result as {@link CategoryRepository#findByGenderAgeBW(Gender, Integer, Double)}, without a query per
+     * athlete.
+     *
+     * @param gender
+     * @param age
+     * @param bodyWeight
+     * @return matching active categories, preferred first
+     */
+    public static List<Category> findByGenderAgeBW(Gender gender, Integer age, Double bodyWeight) {
+        List<Category> active = activeCategoryList;
+        if (active == null) {
+            active = CategoryRepository.findActive();
+            activeCategoryList = active;
+        }
+        // filtering preserves the preference order; null values never match, as in the query.
+        return active.stream()
+                .filter(c -> gender == null || c.getGender() == gender)
+                .filter(c -> {
+                    AgeGroup ag = c.getAgeGroup();
+                    return age == null || (ag != null && ag.getMinAge() != null && ag.getMaxAge() != null
+                            && ag.getMinAge() <= age && ag.getMaxAge() >= age);
+                })
+                .filter(c -> bodyWeight == null || (c.getMinimumWeight() != null && c.getMaximumWeight() != null
+                        && c.getMinimumWeight() < bodyWeight && c.getMaximumWeight() >= bodyWeight))
+                .collect(Collectors.toList());
+    }
+
     public static void resetActiveCategories() {
         activeCategories.clear();
-        CategoryRepository.findActive().forEach(c -> {
+        activeCategoryList = CategoryRepository.findActive();
+        activeCategoryList.forEach(c -> {
             activeCategories.put(c.getName(), c);
         });
     }
@@ -58,6 +103,13 @@ public class RCompetition {
         athleteToEligibles = new HashMap<>();
     }
 
+    /**
+     * @param locale locale of the user doing the import, obtained from the user's session
+     */
+    public static void setLocale(Locale locale) {
+        RCompetition.locale = locale;
+    }
+
 
     Competition c = new Competition();
 
@@ -82,7 +134,7 @@ public class RCompetition {
         if (date == null || date.isBlank()) {
             return;
         }
-        c.setCompetitionDate(DateTimeUtils.parseExcelDate(date, OwlcmsSession.getLocale()));
+        c.setCompetitionDate(DateTimeUtils.parseExcelDate(date, getLocale()));
     }
 
     /**
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.spreadsheet;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.competition.ReportingService;
+import app.owlcms.data.group.Group;
+import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.ResourceWalker;
+import app.owlcms.utils.StartupUtils;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Rendered workbooks, so that downloading the same report again is a copy of bytes.
+ *
+ * Keys include the data version from {@link ReportingService}, which changes whenever an athlete is saved or a
+ * decision is recorded, so entries never outlive the data they were computed from. Entries for older versions are
+ * dropped, and the total size is bounded (reportCacheMB parameter, OWLCMS_REPORTCACHEMB).
+ *
+ * When a group is done, the protocol and medals sheets for that group are rendered in the background, in the locales
+ * in which reports have been downloaded.
+ *
+ * @author owlcms
+ */
+public class ReportCache {
+
+    /**
+     * leave time for the last decision to be recorded and ranks to be written.
+     */
+    private static final long WARM_DELAY_MILLIS = 2000;
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(ReportCache.class);
+
+    private static ReportCache current = new ReportCache();
+
+    public static ReportCache getCurrent() {
+        return current;
+    }
+
+    static String versionPrefix(long version) {
+        return "v" + version + "|";
+    }
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Locale> locales = new CopyOnWriteArraySet<>();
+    private final long maxBytes = Math.max(0, StartupUtils.getIntegerParam("reportCacheMB", 32)) * 1024L * 1024L;
+    private long totalBytes;
+    private final ScheduledExecutorService warmer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "report-warmer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /**
+     * @param key as computed by {@link JXLSWorkbookStreamSource}
+     * @return the rendered workbook, or null
+     */
+    public synchronized byte[] get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * @param key   as computed by {@link JXLSWorkbookStreamSource}
+     * @param bytes the rendered workbook
+     */
+    public synchronized void put(String key, byte[] bytes) {
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        String prefix = versionPrefix(ReportingService.getCurrent().getDataVersion());
+        if (!key.startsWith(prefix)) {
+            // data changed while rendering
+            return;
+        }
+        byte[] previous = entries.put(key, bytes);
+        if (previous != null) {
+            totalBytes -= previous.length;
+        }
+        totalBytes += bytes.length;
+
+        // entries for older data can never be used again; then evict least recently used
+        for (Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<String, byte[]> e = iterator.next();
+            if (!e.getKey().startsWith(prefix) || totalBytes > maxBytes) {
+                totalBytes -= e.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remember the locale of a user downloading a report, so that reports are prepared in that locale.
+     *
+     * @param locale as resolved in the user's session
+     */
+    public void requested(Locale locale) {
+        if (locale != null) {
+            locales.add(locale);
+        }
+    }
+
+    /**
+     * Render the protocol and medals sheets for a group that is done, using the templates selected for the
+     * competition, in the background.
+     *
+     * @param g
+     */
+    public void warm(Group g) {
+        if (g == null || maxBytes == 0 || locales.isEmpty()) {
+            return;
+        }
+        Competition comp = Competition.getCurrent();
+        String protocol = "/templates/protocol/" + comp.getComputedProtocolTemplateFileName();
+        String medals = "/templates/medals/" + comp.getComputedMedalsTemplateFileName();
+        warmer.schedule(() -> {
+            for (Locale locale : locales) {
+                warm(g, locale, protocol, JXLSResultSheet::new);
+                warm(g, locale, medals, JXLSMedalsSheet::new);
+            }
+        }, WARM_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void warm(Group g, Locale locale, String templateName,
+            Supplier<JXLSWorkbookStreamSource> sourceSupplier) {
+        try {
+            InputStream is = ResourceWalker.getFileOrResource(templateName);
+            if (is == null) {
+                return;
+            }
+            JXLSWorkbookStreamSource source = sourceSupplier.get();
+            source.setGroup(g);
+            source.setInputStream(is);
+            source.setTemplateName(templateName);
+            source.renderToCache(locale);
+        } catch (Throwable t) {
+            logger.warn("could not prepare {} for group {}: {}", templateName, g, LoggerUtils.stackTrace(t));
+        }
+    }
+}
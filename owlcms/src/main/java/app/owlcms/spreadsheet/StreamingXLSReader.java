@@ -0,0 +1,450 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.spreadsheet;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import ch.qos.logback.classic.Logger;
+import net.sf.jxls.reader.XLSReadMessage;
+import net.sf.jxls.reader.XLSReadStatus;
+
+/**
+ * Reads a spreadsheet row by row with the POI event (SAX) readers, without building the workbook in memory.
+ *
+ * Understands the subset of the jxls-reader XML mapping used for registration files: one worksheet, fixed cells
+ * (header sections) followed by a loop of one-row items that ends at the first row whose check cell is empty. Cells
+ * are converted and set exactly as jxls does, so the same R* beans are used, and errors are reported as the same
+ * {@link XLSReadMessage}s. Each loop item is given to a listener as soon as its row has been read.
+ *
+ * Both .xls (BIFF8) and .xlsx files are read.
+ *
+ * @author owlcms
+ */
+public class StreamingXLSReader {
+
+    private static final class Mapping {
+        private final String bean;
+        private final int col;
+        private final String property;
+        private final int row;
+
+        private Mapping(int row, int col, String path) {
+            this.row = row;
+            this.col = col;
+            int dot = path.indexOf('.');
+            this.bean = path.substring(0, dot).trim();
+            this.property = path.substring(dot + 1).trim();
+        }
+    }
+
+    /**
+     * Gathers the cells of the current row; rows are seen in increasing order.
+     */
+    private final class RowCollector {
+        private Map<Integer, String> cells = new HashMap<>();
+        private int currentRow = -1;
+        private int nextLoopRow = loopStartRow;
+        private boolean loopDone;
+        private final Map<String, Object> beans;
+        private final Consumer<Object> listener;
+        private final String sheetName;
+        private final XLSReadStatus status;
+
+        private RowCollector(Map<String, Object> beans, Consumer<Object> listener, String sheetName,
+                XLSReadStatus status) {
+            this.beans = beans;
+            this.listener = listener;
+            this.sheetName = sheetName;
+            this.status = status;
+        }
+
+        private void cell(int row, int col, String value) {
+            if (row != currentRow) {
+                endRow();
+                currentRow = row;
+            }
+            cells.put(col, value);
+        }
+
+        private void endRow() {
+            if (currentRow < 0) {
+                return;
+            }
+            for (Mapping m : fixedMappings) {
+                if (m.row == currentRow) {
+                    populate(beans.get(m.bean), m, currentRow, cells.get(m.col));
+                }
+            }
+            if (loopItems != null && !loopDone && currentRow >= loopStartRow) {
+                String check = cells.get(breakCol);
+                // a row with no cells at all is empty
+                if (currentRow != nextLoopRow || check == null || check.isEmpty()) {
+                    loopDone = true;
+                } else {
+                    loopItem();
+                    nextLoopRow++;
+                }
+            }
+            cells = new HashMap<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void loopItem() {
+            Object item;
+            try {
+                item = loopVarType.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+            for (Mapping m : loopMappings) {
+                populate(item, m, currentRow, cells.get(m.col));
+            }
+            Object items = beans.get(loopItems);
+            if (items instanceof Collection) {
+                ((Collection<Object>) items).add(item);
+            }
+            if (listener != null) {
+                listener.accept(item);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void populate(Object bean, Mapping m, int row, String value) {
+            if (bean == null) {
+                return;
+            }
+            try {
+                Class<?> type = PropertyUtils.getPropertyType(bean, m.property);
+                PropertyUtils.setProperty(bean, m.property, ConvertUtils.convert(value, type));
+            } catch (Exception e) {
+                String cellName = new CellReference(row, m.col).formatAsString();
+                // addMessage is not public, the list is the one kept by the status.
+                status.getReadMessages().add(new XLSReadMessage("Can't read cell " + cellName + " on " + sheetName
+                        + " spreadsheet", e));
+                status.setStatusOK(false);
+            }
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(StreamingXLSReader.class);
+
+    /**
+     * @param xmlSpec jxls-reader mapping
+     * @return a reader for the spreadsheets described by the mapping
+     * @throws IOException  if the mapping cannot be read
+     * @throws SAXException if the mapping is not valid XML
+     */
+    public static StreamingXLSReader buildFromXML(InputStream xmlSpec) throws IOException, SAXException {
+        Document doc = XMLHelper.newDocumentBuilder().parse(xmlSpec);
+        return new StreamingXLSReader((Element) doc.getElementsByTagName("worksheet").item(0));
+    }
+
+    /**
+     * Same conversion as jxls: whole numbers without decimals.
+     */
+    private static String numeric(double d) {
+        return d == (int) d ? Integer.toString((int) d) : Double.toString(d);
+    }
+
+    private static int intAttribute(Element e, String name, int defaultValue) {
+        String value = e.getAttribute(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private int breakCol;
+    private final List<Mapping> fixedMappings = new ArrayList<>();
+    private String loopItems;
+    private final List<Mapping> loopMappings = new ArrayList<>();
+    private int loopStartRow;
+    private Class<?> loopVarType;
+    private final int sheetIndex;
+
+    private StreamingXLSReader(Element worksheet) {
+        sheetIndex = intAttribute(worksheet, "idx", 0);
+        int nextRow = 0;
+        NodeList children = worksheet.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!(children.item(i) instanceof Element)) {
+                continue;
+            }
+            Element child = (Element) children.item(i);
+            if (child.getTagName().equals("section")) {
+                NodeList mappings = child.getElementsByTagName("mapping");
+                for (int j = 0; j < mappings.getLength(); j++) {
+                    Element m = (Element) mappings.item(j);
+                    int row;
+                    int col;
+                    if (!m.getAttribute("cell").isBlank()) {
+                        CellReference ref = new CellReference(m.getAttribute("cell"));
+                        row = ref.getRow();
+                        col = ref.getCol();
+                    } else {
+                        row = intAttribute(m, "row", 0);
+                        col = intAttribute(m, "col", 0);
+                    }
+                    fixedMappings.add(new Mapping(row, col, m.getTextContent()));
+                }
+                nextRow = intAttribute(child, "endRow", nextRow - 1) + 1;
+            } else if (child.getTagName().equals("loop")) {
+                loopItems = child.getAttribute("items");
+                loopStartRow = intAttribute(child, "startRow", nextRow);
+                String var = child.getAttribute("var");
+                try {
+                    loopVarType = Class.forName(child.getAttribute("varType"));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                NodeList mappings = child.getElementsByTagName("mapping");
+                for (int j = 0; j < mappings.getLength(); j++) {
+                    Element m = (Element) mappings.item(j);
+                    // items are one row long, the row attribute is not needed.
+                    Mapping mapping = new Mapping(0, intAttribute(m, "col", 0), m.getTextContent());
+                    if (!mapping.bean.equals(var)) {
+                        throw new IllegalArgumentException("loop mapping " + m.getTextContent() + " not on " + var);
+                    }
+                    loopMappings.add(mapping);
+                }
+                NodeList cellChecks = child.getElementsByTagName("cellcheck");
+                breakCol = cellChecks.getLength() > 0 ? intAttribute((Element) cellChecks.item(0), "offset", 0) : 0;
+            }
+        }
+    }
+
+    /**
+     * Read the spreadsheet.
+     *
+     * @param inputStream .xls or .xlsx content
+     * @param beans       objects named in the mapping; the loop items are added to the collection named by the loop,
+     *                    if present
+     * @param listener    called with each loop item once its row has been read, may be null
+     * @return the cells that could not be read
+     * @throws InvalidFormatException if the content is not a spreadsheet
+     * @throws IOException
+     */
+    public XLSReadStatus read(InputStream inputStream, Map<String, Object> beans, Consumer<Object> listener)
+            throws InvalidFormatException, IOException {
+        XLSReadStatus status = new XLSReadStatus();
+        InputStream is = FileMagic.prepareToCheckMagic(inputStream);
+        FileMagic fm = FileMagic.valueOf(is);
+        if (fm == FileMagic.OLE2) {
+            readXls(is, beans, listener, status);
+        } else if (fm == FileMagic.OOXML) {
+            readXlsx(is, beans, listener, status);
+        } else {
+            throw new InvalidFormatException("not a spreadsheet: " + fm);
+        }
+        return status;
+    }
+
+    private void readXls(InputStream is, Map<String, Object> beans, Consumer<Object> listener, XLSReadStatus status)
+            throws IOException {
+        List<String> sheetNames = new ArrayList<>();
+        SSTRecord[] sst = new SSTRecord[1];
+        int[] worksheet = { -1 };
+        // charts inside a worksheet have their own BOF/EOF
+        int[] depth = { 0 };
+        RowCollector[] rows = new RowCollector[1];
+        FormulaRecord[] pendingString = new FormulaRecord[1];
+
+        HSSFListener hssfListener = (Record record) -> {
+            switch (record.getSid()) {
+            case BoundSheetRecord.sid:
+                sheetNames.add(((BoundSheetRecord) record).getSheetname());
+                break;
+            case SSTRecord.sid:
+                sst[0] = (SSTRecord) record;
+                break;
+            case BOFRecord.sid:
+                depth[0]++;
+                if (depth[0] == 1 && ((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    worksheet[0]++;
+                    if (worksheet[0] == sheetIndex) {
+                        String name = sheetIndex < sheetNames.size() ? sheetNames.get(sheetIndex) : "";
+                        rows[0] = new RowCollector(beans, listener, name, status);
+                    }
+                }
+                break;
+            case EOFRecord.sid:
+                if (depth[0] == 1 && rows[0] != null && worksheet[0] == sheetIndex) {
+                    rows[0].endRow();
+                }
+                depth[0]--;
+                break;
+            default:
+                if (rows[0] == null || worksheet[0] != sheetIndex || depth[0] != 1) {
+                    break;
+                }
+                if (record instanceof StringRecord && pendingString[0] != null) {
+                    FormulaRecord f = pendingString[0];
+                    rows[0].cell(f.getRow(), f.getColumn(), ((StringRecord) record).getString());
+                    pendingString[0] = null;
+                } else if (record instanceof CellValueRecordInterface) {
+                    CellValueRecordInterface c = (CellValueRecordInterface) record;
+                    String value = null;
+                    if (record instanceof LabelSSTRecord) {
+                        value = sst[0].getString(((LabelSSTRecord) record).getSSTIndex()).getString();
+                    } else if (record instanceof LabelRecord) {
+                        value = ((LabelRecord) record).getValue();
+                    } else if (record instanceof NumberRecord) {
+                        value = numeric(((NumberRecord) record).getValue());
+                    } else if (record instanceof BoolErrRecord) {
+                        BoolErrRecord b = (BoolErrRecord) record;
+                        value = b.isBoolean() ? Boolean.toString(b.getBooleanValue()) : null;
+                    } else if (record instanceof FormulaRecord) {
+                        FormulaRecord f = (FormulaRecord) record;
+                        int type = f.getCachedResultType();
+                        if (type == CellType.NUMERIC.getCode()) {
+                            value = numeric(f.getValue());
+                        } else if (type == CellType.BOOLEAN.getCode()) {
+                            value = Boolean.toString(f.getCachedBooleanValue());
+                        } else if (type == CellType.STRING.getCode() && f.hasCachedResultString()) {
+                            // value is in the StringRecord that follows
+                            pendingString[0] = f;
+                            break;
+                        }
+                    }
+                    rows[0].cell(c.getRow(), c.getColumn(), value);
+                }
+                break;
+            }
+        };
+
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(hssfListener);
+        try (POIFSFileSystem fs = new POIFSFileSystem(is)) {
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+        }
+        if (rows[0] == null) {
+            logger.warn("no worksheet {}", sheetIndex);
+        }
+    }
+
+    private void readXlsx(InputStream is, Map<String, Object> beans, Consumer<Object> listener,
+            XLSReadStatus status) throws IOException, InvalidFormatException {
+        try (OPCPackage pkg = OPCPackage.open(is)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                try (InputStream sheet = sheets.next()) {
+                    if (i != sheetIndex) {
+                        continue;
+                    }
+                    RowCollector rows = new RowCollector(beans, listener, sheets.getSheetName(), status);
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new DefaultHandler() {
+                        private String ref;
+                        private String type;
+                        private final StringBuilder text = new StringBuilder();
+                        private boolean inValue;
+
+                        @Override
+                        public void characters(char[] ch, int start, int length) {
+                            if (inValue) {
+                                text.append(ch, start, length);
+                            }
+                        }
+
+                        @Override
+                        public void endElement(String uri, String localName, String qName) {
+                            if (localName.equals("v") || (localName.equals("t") && "inlineStr".equals(type))) {
+                                inValue = false;
+                            } else if (localName.equals("c")) {
+                                CellReference cr = new CellReference(ref);
+                                rows.cell(cr.getRow(), cr.getCol(), value());
+                            }
+                        }
+
+                        @Override
+                        public void startElement(String uri, String localName, String qName, Attributes atts) {
+                            if (localName.equals("c")) {
+                                ref = atts.getValue("r");
+                                type = atts.getValue("t");
+                                text.setLength(0);
+                            } else if (localName.equals("v") || (localName.equals("t") && "inlineStr".equals(type))) {
+                                inValue = true;
+                            }
+                        }
+
+                        private String value() {
+                            if (text.length() == 0) {
+                                return null;
+                            }
+                            String v = text.toString();
+                            if (type == null || type.equals("n")) {
+                                return numeric(Double.parseDouble(v));
+                            } else if (type.equals("s")) {
+                                return strings.getItemAt(Integer.parseInt(v)).getString();
+                            } else if (type.equals("b")) {
+                                return Boolean.toString(v.equals("1"));
+                            } else if (type.equals("e")) {
+                                return null;
+                            }
+                            // str (formula) and inlineStr
+                            return v;
+                        }
+                    });
+                    parser.parse(new InputSource(new BufferedInputStream(sheet)));
+                    rows.endRow();
+                    return;
+                }
+            }
+            logger.warn("no worksheet {}", sheetIndex);
+        } catch (InvalidFormatException e) {
+            throw e;
+        } catch (SAXException | OpenXML4JException | ParserConfigurationException e) {
+            throw new InvalidFormatException(e.getMessage());
+        }
+    }
+}
@@ -11,29 +11,39 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
+import javax.persistence.EntityManager;
+
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.html.H3;
 import com.vaadin.flow.component.html.H5;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.component.textfield.TextArea;
 import com.vaadin.flow.component.upload.Upload;
 import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
 
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athleteSort.RankingIndex;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.competition.Competition;
+import app.owlcms.data.competition.ReportingService;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
 import app.owlcms.data.jpa.JPAService;
@@ -41,19 +51,29 @@ import app.owlcms.data.platform.Platform;
 import app.owlcms.data.platform.PlatformRepository;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsFactory;
+import app.owlcms.init.OwlcmsSession;
 import app.owlcms.spreadsheet.RAthlete;
 import app.owlcms.spreadsheet.RCompetition;
 import app.owlcms.spreadsheet.RGroup;
+import app.owlcms.spreadsheet.StreamingXLSReader;
 import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.ResourceWalker;
+import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
-import net.sf.jxls.reader.ReaderBuilder;
 import net.sf.jxls.reader.ReaderConfig;
 import net.sf.jxls.reader.XLSReadMessage;
 import net.sf.jxls.reader.XLSReadStatus;
-import net.sf.jxls.reader.XLSReader;
 
+/**
+ * Replaces the athletes, groups and platforms with those from a registration spreadsheet.
+ *
+ * The spreadsheet is read row by row ({@link StreamingXLSReader}) on a separate thread, one import at a time. The
+ * locale of the user is obtained when the upload completes, since the import does not run in the user's session.
+ * Categories and groups are looked up in tables loaded once, and athletes are saved in transactions of
+ * registrationBatchSize (OWLCMS_REGISTRATIONBATCHSIZE) athletes as they are read; the dialog shows the progress after
+ * each transaction. If a transaction fails, its athletes are saved one at a time and those rejected are listed.
+ */
 @SuppressWarnings("serial")
 public class RegistrationFileUploadDialog extends Dialog {
 
@@ -61,6 +81,11 @@ public class RegistrationFileUploadDialog extends Dialog {
     final static Logger logger = (Logger) LoggerFactory.getLogger(RegistrationFileUploadDialog.class);
 
     private static final String GROUPS_READER_SPEC = "/templates/registration/GroupsReader.xml";
+    private static final ExecutorService importExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "registration-import");
+        t.setDaemon(true);
+        return t;
+    });
     private static final String REGISTRATION_READER_SPEC = "/templates/registration/RegistrationReader.xml";
     static {
         jxlsLogger.setLevel(Level.ERROR);
@@ -79,6 +104,10 @@ public class RegistrationFileUploadDialog extends Dialog {
     }
 
     private boolean keepParticipations;
+    private Locale locale;
+    private Span progress;
+    private ProgressBar progressBar;
+    private UI ui;
 
     public RegistrationFileUploadDialog() {
 
@@ -96,17 +125,38 @@ public class RegistrationFileUploadDialog extends Dialog {
         ta.setWidth("80em");
         ta.setVisible(false);
 
+        progressBar = new ProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setWidth("40em");
+        progressBar.setVisible(false);
+        progress = new Span();
+
         upload.addSucceededListener(event -> {
-            processInput(event.getFileName(), buffer.getInputStream(), ta);
+            // the session is locked here; the import only uses what is obtained now
+            ui = UI.getCurrent();
+            locale = OwlcmsSession.getLocale();
+            progressBar.setVisible(true);
+            String fileName = event.getFileName();
+            InputStream inputStream = buffer.getInputStream();
+            importExecutor.execute(() -> {
+                try {
+                    processInput(fileName, inputStream, ta);
+                } catch (RuntimeException e) {
+                    LoggerUtils.logError(logger, e);
+                } finally {
+                    uiAccess(() -> progressBar.setVisible(false));
+                }
+            });
         });
 
         upload.addStartedListener(event -> {
             ta.clear();
             ta.setVisible(false);
+            progress.setText("");
         });
 
         H3 title = new H3(getTranslation("UploadRegistrationFile"));
-        VerticalLayout vl = new VerticalLayout(title, label, upload, ta);
+        VerticalLayout vl = new VerticalLayout(title, label, upload, progressBar, progress, ta);
         add(vl);
     }
 
@@ -119,7 +169,7 @@ public class RegistrationFileUploadDialog extends Dialog {
         if (localizedMessage.trim().contentEquals("text")) {
             localizedMessage = "Empty or invalid.";
         }
-        String cleanMessage = getTranslation("Cell") + " " + cell + ": " + localizedMessage;
+        String cleanMessage = Translator.translate("Cell", locale) + " " + cell + ": " + localizedMessage;
         return cleanMessage;
     }
 
@@ -144,8 +194,11 @@ public class RegistrationFileUploadDialog extends Dialog {
             sb.append(System.lineSeparator());
         }
         if (sb.length() > 0) {
-            ta.setValue(sb.toString());
-            ta.setVisible(true);
+            String errorText = sb.toString();
+            uiAccess(() -> {
+                ta.setValue(errorText);
+                ta.setVisible(true);
+            });
         }
     }
 
@@ -153,43 +206,58 @@ public class RegistrationFileUploadDialog extends Dialog {
         StringBuffer sb = new StringBuffer();
         try (InputStream xmlInputStream = ResourceWalker.getResourceAsStream(REGISTRATION_READER_SPEC)) {
             inputStream.reset();
-            ReaderConfig readerConfig = ReaderConfig.getInstance();
-            readerConfig.setUseDefaultValuesForPrimitiveTypes(true);
-            readerConfig.setSkipErrors(true);
-            XLSReader reader = ReaderBuilder.buildFromXML(xmlInputStream);
+            // cells are converted by the same converters as jxls
+            ReaderConfig.getInstance().setUseDefaultValuesForPrimitiveTypes(true);
+            StreamingXLSReader reader = StreamingXLSReader.buildFromXML(xmlInputStream);
 
             try (InputStream xlsInputStream = inputStream) {
                 RCompetition c = new RCompetition();
                 RCompetition.resetActiveCategories();
                 RCompetition.resetActiveGroups();
                 RCompetition.resetAthleteToEligibles();
-
-                List<RAthlete> athletes = new ArrayList<>();
+                RCompetition.setLocale(locale);
 
                 Map<String, Object> beans = new HashMap<>();
                 beans.put("competition", c);
-                beans.put("athletes", athletes);
 
-                XLSReadStatus status = reader.read(inputStream, beans);
+                // athletes are saved as they are read
+                int batchSize = Math.max(1, StartupUtils.getIntegerParam("registrationBatchSize", 100));
+                List<RAthlete> batch = new ArrayList<>(batchSize);
+                int[] read = { 0 };
+                int[] saved = { 0 };
+                XLSReadStatus status = reader.read(xlsInputStream, beans, r -> {
+                    read[0]++;
+                    if (dryRun) {
+                        return;
+                    }
+                    batch.add((RAthlete) r);
+                    if (batch.size() >= batchSize) {
+                        saved[0] += saveAthletes(sb, batch);
+                        batch.clear();
+                        showProgress(read[0], saved[0]);
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    saved[0] += saveAthletes(sb, batch);
+                    showProgress(read[0], saved[0]);
+                }
 
-                // we created a batch of new athletes. the ones that are exact matches have
-                // their eligibility already done.
-                keepParticipations = beans.values().stream()
-                        .filter(r -> ((RAthlete) r).getAthlete().getEligibleCategories() != null).findFirst()
-                        .isPresent();
+                // the athletes that are exact matches have their eligibility already done.
+                keepParticipations = !RCompetition.getAthleteToEligibles().isEmpty();
 
-                logger.info(getTranslation("DataRead") + " " + athletes.size() + " athletes");
+                logger.info(Translator.translate("DataRead", locale) + " " + read[0] + " athletes");
                 if (dryRun) {
-                    return athletes.size();
+                    return read[0];
                 }
 
-                if (athletes.size() > 0) {
-                    updateAthletes(sb, c, athletes);
+                if (read[0] > 0) {
+                    updateCompetition(sb, c);
                     appendErrors(ta, sb, status);
                 } else {
-                    ta.setValue(Translator.translate("NoAthletes"));
+                    String noAthletes = Translator.translate("NoAthletes", locale);
+                    uiAccess(() -> ta.setValue(noAthletes));
                 }
-                return athletes.size();
+                return read[0];
             } catch (InvalidFormatException | IOException e) {
                 LoggerUtils.stackTrace(e);
                 LoggerUtils.logError(logger, e);
@@ -205,10 +273,8 @@ public class RegistrationFileUploadDialog extends Dialog {
         StringBuffer sb = new StringBuffer();
         try (InputStream xmlInputStream = ResourceWalker.getResourceAsStream(GROUPS_READER_SPEC)) {
             inputStream.reset();
-            ReaderConfig readerConfig = ReaderConfig.getInstance();
-            readerConfig.setUseDefaultValuesForPrimitiveTypes(true);
-            readerConfig.setSkipErrors(true);
-            XLSReader reader = ReaderBuilder.buildFromXML(xmlInputStream);
+            ReaderConfig.getInstance().setUseDefaultValuesForPrimitiveTypes(true);
+            StreamingXLSReader reader = StreamingXLSReader.buildFromXML(xmlInputStream);
 
             try (InputStream xlsInputStream = inputStream) {
                 List<RGroup> groups = new ArrayList<>();
@@ -217,7 +283,7 @@ public class RegistrationFileUploadDialog extends Dialog {
                 beans.put("groups", groups);
 
                 // logger.info(getTranslation("ReadingData_"));
-                XLSReadStatus status = reader.read(inputStream, beans);
+                XLSReadStatus status = reader.read(xlsInputStream, beans, null);
                 logger.info("Read {} groups.", groups.size());
                 if (!dryRun) {
                     updatePlatformsAndGroups(groups);
@@ -235,27 +301,32 @@ public class RegistrationFileUploadDialog extends Dialog {
     }
 
     private void processInput(String fileName, InputStream inputStream, TextArea ta) {
-        // clear athletes to be able to clear groups
-        resetAthletes();
-        listGroups("after reset athletes");
-
-        // dry run to count groups
-        int nbGroups = processGroups(inputStream, ta, true);
-        listGroups("after processGroups dryRun");
-        if (nbGroups > 0) {
-            // new format, reset groups from spreadsheet
-            resetGroups();
-            processGroups(inputStream, ta, false);
-            listGroups("after processGroups real");
-        }
+        try {
+            // clear athletes to be able to clear groups
+            resetAthletes();
+            listGroups("after reset athletes");
+
+            // dry run to count groups
+            int nbGroups = processGroups(inputStream, ta, true);
+            listGroups("after processGroups dryRun");
+            if (nbGroups > 0) {
+                // new format, reset groups from spreadsheet
+                resetGroups();
+                processGroups(inputStream, ta, false);
+                listGroups("after processGroups real");
+            }
 
-        // process athletes now that groups have been adjusted
-        processAthletes(inputStream, ta, false);
-        if (!keepParticipations) {
-            AthleteRepository.resetParticipations();
+            // process athletes now that groups have been adjusted
+            processAthletes(inputStream, ta, false);
+            if (!keepParticipations) {
+                AthleteRepository.resetParticipations();
+            }
+            listGroups("after processAthletes real");
+        } finally {
+            // the athletes were replaced even if the import stopped part way
+            RankingIndex.getCurrent().invalidate();
+            ReportingService.getCurrent().dataChanged();
         }
-        listGroups("after processAthletes real");
-        return;
     }
 
     private void resetAthletes() {
@@ -268,6 +339,7 @@ public class RegistrationFileUploadDialog extends Dialog {
             em.flush();
             return null;
         });
+        RankingIndex.getCurrent().invalidate();
     }
 
     private void resetGroups() {
@@ -282,10 +354,76 @@ public class RegistrationFileUploadDialog extends Dialog {
         });
     }
 
-    private void updateAthletes(StringBuffer sb, RCompetition c, List<RAthlete> athletes) {
-//      for (Category c1: athlete.getEligibleCategories()) {
-//      em.merge(c1);
-//  }
+    private void saveAthlete(EntityManager em, RAthlete r) {
+        Athlete athlete = r.getAthlete();
+        Set<Category> eligibles = RCompetition.getAthleteToEligibles().get(athlete.getId());
+        if (eligibles != null) {
+            Category first = eligibles.stream().findFirst().orElse(null);
+            athlete.setCategory(first);
+            athlete.setEligibleCategories(eligibles);
+        }
+        em.merge(athlete);
+    }
+
+    /**
+     * Save a batch of athletes in one transaction. If the transaction fails, save the athletes one at a time, and list
+     * those that cannot be saved.
+     *
+     * @return the number of athletes saved
+     */
+    private int saveAthletes(StringBuffer sb, List<RAthlete> batch) {
+        try {
+            JPAService.runInTransaction(em -> {
+                for (RAthlete r : batch) {
+                    saveAthlete(em, r);
+                }
+                em.flush();
+                return null;
+            });
+            RankingIndex.getCurrent().invalidate();
+            return batch.size();
+        } catch (RuntimeException e) {
+            logger.warn("batch of {} athletes not saved, saving one at a time: {}", batch.size(), e.toString());
+        }
+        int saved = 0;
+        for (RAthlete r : batch) {
+            try {
+                JPAService.runInTransaction(em -> {
+                    saveAthlete(em, r);
+                    em.flush();
+                    return null;
+                });
+                saved++;
+            } catch (RuntimeException e) {
+                LoggerUtils.logError(logger, e);
+                sb.append(r.getAthlete().getFullName());
+                sb.append(": ");
+                sb.append(e.getLocalizedMessage());
+                sb.append(System.lineSeparator());
+            }
+        }
+        RankingIndex.getCurrent().invalidate();
+        return saved;
+    }
+
+    private void showProgress(int read, int saved) {
+        String text = Translator.translate("Upload.Progress", locale, read, saved);
+        uiAccess(() -> progress.setText(text));
+    }
+
+    /**
+     * The import runs outside of the user's session; the dialog is only changed through {@link UI#access}.
+     */
+    private void uiAccess(Runnable r) {
+        try {
+            ui.access(() -> r.run());
+        } catch (UIDetachedException e) {
+            // dialog closed, the import goes on
+            logger.debug("ui detached, not showing {}", e.toString());
+        }
+    }
+
+    private void updateCompetition(StringBuffer sb, RCompetition c) {
         JPAService.runInTransaction(em -> {
             Competition curC = Competition.getCurrent();
             try {
@@ -299,12 +437,6 @@ public class RegistrationFileUploadDialog extends Dialog {
                 BeanUtils.copyProperties(curC, rCompetition);
                 // update in database and set current to result of JPA merging.
                 Competition.setCurrent(em.merge(curC));
-
-                // Create the new athletes.
-                athletes.stream().forEach(r -> {
-                    Athlete athlete = r.getAthlete();
-                    em.merge(athlete);
-                });
                 em.flush();
             } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
                 LoggerUtils.stackTrace(e);
@@ -313,23 +445,6 @@ public class RegistrationFileUploadDialog extends Dialog {
 
             return null;
         });
-
-        JPAService.runInTransaction(em -> {
-            AthleteRepository.findAll().stream().forEach(a2 -> {
-                LinkedHashSet<Category> eligibles = (LinkedHashSet<Category>) RCompetition
-                        .getAthleteToEligibles()
-                        .get(a2.getId());
-                if (eligibles != null) {
-                    Category first = eligibles.stream().findFirst().orElse(null);
-                    a2.setCategory(first);
-                    a2.setEligibleCategories(eligibles);
-                    em.merge(a2);
-                }
-            });
-            em.flush();
-
-            return null;
-        });
     }
 
     private void updatePlatformsAndGroups(List<RGroup> groups) {
@@ -372,4 +487,4 @@ public class RegistrationFileUploadDialog extends Dialog {
         });
     }
 
-}
+}
\ No newline at end of file
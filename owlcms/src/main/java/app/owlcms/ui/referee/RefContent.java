@@ -11,8 +11,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +54,7 @@ import app.owlcms.ui.shared.RequireLogin;
 import app.owlcms.ui.shared.SafeEventBusRegistration;
 import app.owlcms.uievents.UIEvent;
 import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.SharedScheduler;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -69,21 +68,6 @@ import ch.qos.logback.classic.Logger;
 public class RefContent extends VerticalLayout implements FOPParameters, SafeEventBusRegistration,
         UIEventProcessor, HasDynamicTitle, RequireLogin, PageConfigurator, BeforeEnterListener {
 
-    private class DelayTimer {
-        private final Timer t = new Timer();
-
-        public TimerTask schedule(final Runnable r, long delay) {
-            final TimerTask task = new TimerTask() {
-                @Override
-                public void run() {
-                    r.run();
-                }
-            };
-            t.schedule(task, delay);
-            return task;
-        }
-    }
-
     final private static Logger logger = (Logger) LoggerFactory.getLogger(RefContent.class);
     private static final String REF_INDEX = "num";
     final private static Logger uiEventLogger = (Logger) LoggerFactory.getLogger("UI" + logger.getName());
@@ -252,10 +236,10 @@ public class RefContent extends VerticalLayout implements FOPParameters, SafeEve
             topRow.setVisible(false);
             beeper.beep();
             UI currentUI = UI.getCurrent();
-            new DelayTimer().schedule(() -> currentUI.access(() -> {
+            SharedScheduler.getCurrent().schedule(() -> currentUI.access(() -> {
                 beeper.beep();
             }), 1000);
-            new DelayTimer().schedule(() -> currentUI.access(() -> {
+            SharedScheduler.getCurrent().schedule(() -> currentUI.access(() -> {
                 warningRow.setVisible(false);
                 topRow.setVisible(true);
             }), 9000);
@@ -63,7 +63,6 @@ import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
-import app.owlcms.data.jpa.JPAService;
 import app.owlcms.displays.athletecard.AthleteCard;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsSession;
@@ -119,9 +118,7 @@ public final class AthleteRegistrationFormFactory extends OwlcmsCrudFormFactory<
      */
     @Override
     public Athlete add(Athlete athlete) {
-        Athlete nAthlete = JPAService.runInTransaction((em) -> {
-            return em.merge(athlete);
-        });
+        Athlete nAthlete = AthleteRepository.save(athlete);
         enablePrint(nAthlete);
         return nAthlete;
     }
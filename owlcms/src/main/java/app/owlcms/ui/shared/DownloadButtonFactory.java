@@ -40,7 +40,7 @@ public class DownloadButtonFactory {
                     LocalDateTime now = LocalDateTime.now().withNano(0);
                     return prefix
                             + "_" + now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH'h'mm"))
-                            + ".json";
+                            + (CompetitionData.isExportCompressed() ? ".json.gz" : ".json");
                 },
                 () -> {
                     return new CompetitionData().exportData();
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.uievents;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonValue;
+
+/**
+ * Shrinks the scoreboard updates sent to the remote results site.
+ *
+ * Each update gets a version number. Large values that rarely change (translations, records) are sent once and then
+ * only referred to by their hash. The athlete tables are sent as the rows that differ from the last version the remote
+ * site has acknowledged. When the remote site does not have what an update refers to, it answers with
+ * {@link #VERSION_GAP} and the update is sent again in full.
+ *
+ * The remote site acknowledges an update by returning the {@link #DELTA_HEADER} header; until it does (older
+ * versions), everything is sent in full.
+ *
+ * Not thread-safe: used from the single thread that sends the posts of a field of play.
+ *
+ * @author owlcms
+ */
+public class DeltaEncoder {
+
+    public static final String DELTA_HEADER = "X-Owlcms-Delta";
+    public static final int VERSION_GAP = 409;
+
+    private static final String[] BLOBS = { "translationMap", "records" };
+    private static final String[] ROWS = { "groupAthletes", "leaders" };
+    private static final String VERSION = "updateVersion";
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(DeltaEncoder.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static String hash(String value) {
+        return Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+
+    private static List<String> split(String value) {
+        JsonValue parsed = Json.parse(value);
+        if (!(parsed instanceof JsonArray)) {
+            return null;
+        }
+        JsonArray array = (JsonArray) parsed;
+        List<String> rows = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            rows.add(array.get(i).toJson());
+        }
+        return rows;
+    }
+
+    private Map<String, String> ackedHashes = new HashMap<>();
+    private Map<String, List<String>> ackedRows = new HashMap<>();
+    private Map<String, Long> ackedRowVersions = new HashMap<>();
+    private Map<String, String> sentHashes;
+    private Map<String, List<String>> sentRows;
+    private long version = 0;
+
+    /**
+     * The remote site has the last update that was encoded.
+     */
+    public void acknowledge() {
+        if (sentHashes == null) {
+            return;
+        }
+        ackedHashes.putAll(sentHashes);
+        for (Map.Entry<String, List<String>> e : sentRows.entrySet()) {
+            ackedRows.put(e.getKey(), e.getValue());
+            ackedRowVersions.put(e.getKey(), version);
+        }
+        sentHashes = null;
+        sentRows = null;
+    }
+
+    /**
+     * @param full the update with all values present
+     * @return the parameters to actually send
+     */
+    public Map<String, String> encode(Map<String, String> full) {
+        Map<String, String> encoded = new HashMap<>(full);
+        version++;
+        encoded.put(VERSION, Long.toString(version));
+
+        sentHashes = new HashMap<>();
+        for (String name : BLOBS) {
+            String value = full.get(name);
+            if (value == null) {
+                continue;
+            }
+            String hash = hash(value);
+            encoded.put(name + "Hash", hash);
+            sentHashes.put(name, hash);
+            if (hash.equals(ackedHashes.get(name))) {
+                encoded.remove(name);
+            }
+        }
+
+        sentRows = new HashMap<>();
+        for (String name : ROWS) {
+            String value = full.get(name);
+            if (value == null) {
+                continue;
+            }
+            List<String> rows = split(value);
+            if (rows == null) {
+                continue;
+            }
+            sentRows.put(name, rows);
+            List<String> base = ackedRows.get(name);
+            if (base == null) {
+                continue;
+            }
+            String delta = delta(ackedRowVersions.get(name), base, rows);
+            if (delta.length() < value.length()) {
+                encoded.remove(name);
+                encoded.put(name + "Delta", delta);
+            }
+        }
+        logger.trace("encoded version {}: {}", version, encoded.keySet());
+        return encoded;
+    }
+
+    /**
+     * Forget what the remote site has; the next update will be complete.
+     */
+    public void reset() {
+        ackedHashes.clear();
+        ackedRows.clear();
+        ackedRowVersions.clear();
+        sentHashes = null;
+        sentRows = null;
+    }
+
+    /**
+     * @return {"base": baseVersion, "size": n, "rows": {"index": row, ...}} with only the rows that differ
+     */
+    private String delta(long baseVersion, List<String> base, List<String> rows) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"base\":").append(baseVersion)
+                .append(",\"size\":").append(rows.size())
+                .append(",\"rows\":{");
+        boolean first = true;
+        for (int i = 0; i < rows.size(); i++) {
+            String row = rows.get(i);
+            if (i < base.size() && base.get(i).equals(row)) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append('"').append(i).append("\":").append(row);
+            first = false;
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+}
@@ -13,7 +13,6 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,8 +27,6 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.StringBody;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.LoggerFactory;
@@ -99,14 +96,14 @@ public class EventForwarder implements BreakDisplay {
     private EventBus postBus;
     private int previousHashCode = 0;
     private long previousMillis = 0L;
+    private PostQueue postQueue;
     private JsonArray sattempts;
     private Integer startNumber;
     private String teamName;
     private Integer timeAllowed;
-    private JsonObject translationMap;
-    private long translatorResetTimeStamp;
     private Integer weight;
     private boolean wideTeamNames;
+    private DeltaEncoder deltaEncoder = new DeltaEncoder();
     private String noLiftRanks;
     private JsonValue records;
 
@@ -117,8 +114,7 @@ public class EventForwarder implements BreakDisplay {
 
         postBus = getFop().getPostEventBus();
         postBus.register(this);
-
-        translatorResetTimeStamp = 0L;
+        postQueue = new PostQueue(emittingFop.getName(), this::doPost);
 
         String updateKey = Config.getCurrent().getParamUpdateKey();
         String updateUrl = Config.getCurrent().getParamUpdateUrl();
@@ -201,10 +197,6 @@ public class EventForwarder implements BreakDisplay {
         return timeAllowed;
     }
 
-    public JsonObject getTranslationMap() {
-        return translationMap;
-    }
-
     /**
      * Change the messages because we are not showing live timers
      *
@@ -442,18 +434,6 @@ public class EventForwarder implements BreakDisplay {
         pushUpdate();
     }
 
-    protected void setTranslationMap() {
-        JsonObject translations = Json.createObject();
-        Enumeration<String> keys = Translator.getKeys();
-        while (keys.hasMoreElements()) {
-            String curKey = keys.nextElement();
-            if (curKey.startsWith("Scoreboard.")) {
-                translations.put(curKey.replace("Scoreboard.", ""), Translator.translate(curKey));
-            }
-        }
-        setTranslationMap(translations);
-    }
-
     void setAttempt(String formattedAttempt) {
         this.attempt = formattedAttempt;
     }
@@ -622,11 +602,6 @@ public class EventForwarder implements BreakDisplay {
         Map<String, String> sb = new HashMap<>();
         mapPut(sb, "updateKey", Config.getCurrent().getParamUpdateKey());
 
-        if (translatorResetTimeStamp != Translator.getResetTimeStamp()) {
-            // translation map has been updated (reload or language change)
-            setTranslationMap();
-        }
-
         // competition state
         mapPut(sb, "competitionName", Competition.getCurrent().getCompetitionName());
         mapPut(sb, "fop", getFop().getName());
@@ -670,7 +645,8 @@ public class EventForwarder implements BreakDisplay {
         createRecord(sb);
 
         // presentation information
-        mapPut(sb, "translationMap", translationMap.toJson());
+        // serialized once per language by the translator
+        mapPut(sb, "translationMap", Translator.getTranslationMapJson(Translator.SCOREBOARD_PREFIX));
         mapPut(sb, "hidden", String.valueOf(hidden));
         mapPut(sb, "wideTeamNames", String.valueOf(wideTeamNames));
         mapPut(sb, "sinclairMeet", Boolean.toString(Competition.getCurrent().isSinclair()));
@@ -725,22 +701,26 @@ public class EventForwarder implements BreakDisplay {
     }
 
     private void doPost(String url, Map<String, String> parameters) {
-        HttpPost post = new HttpPost(url);
-        // add request parameters or form parameters
-        List<NameValuePair> urlParameters = new ArrayList<>();
-        parameters.entrySet().stream()
-                .forEach((e) -> urlParameters.add(new BasicNameValuePair(e.getKey(), e.getValue())));
-
+        boolean isUpdate = url.equals(Config.getCurrent().getParamUpdateUrl());
         boolean done = false;
         int nbTries = 0;
-        // send post. if missing config, we send it back, and try again one more time
+        // send post. if missing config or missing previous update, we send it, and try again one more time
         while (!done && nbTries <= 1) {
+            // encoded only now, against what the remote site has acknowledged so far
+            Map<String, String> sent = isUpdate ? deltaEncoder.encode(parameters) : parameters;
+            HttpPost post = new HttpPost(url);
+            // add request parameters or form parameters
+            List<NameValuePair> urlParameters = new ArrayList<>();
+            sent.entrySet().stream()
+                    .forEach((e) -> urlParameters.add(new BasicNameValuePair(e.getKey(), e.getValue())));
             try {
                 post.setEntity(new UrlEncodedFormEntity(urlParameters, "UTF-8"));
-                try (CloseableHttpClient httpClient = HttpClients.createDefault();
-                        CloseableHttpResponse response = httpClient.execute(post)) {
+                try (CloseableHttpResponse response = PostQueue.getHttpClient().execute(post)) {
                     StatusLine statusLine = response.getStatusLine();
                     Integer statusCode = statusLine != null ? statusLine.getStatusCode() : null;
+                    boolean deltaSupported = response.containsHeader(DeltaEncoder.DELTA_HEADER);
+                    // read the response fully so the connection goes back to the pool
+                    EntityUtils.consume(response.getEntity());
                     if (statusCode != null && statusCode != 200) {
                         synchronized (singleThreadLock) {
                             if (nbTries == 0 && statusCode != null && statusCode == 412) {
@@ -749,6 +729,11 @@ public class EventForwarder implements BreakDisplay {
                                         LoggerUtils.whereFrom(1));
                                 sendConfig(parameters.get("updateKey"));
                                 nbTries++;
+                            } else if (isUpdate && nbTries == 0 && statusCode == DeltaEncoder.VERSION_GAP) {
+                                logger.info("{}remote site missing previous update, sending full update",
+                                        getFop().getLoggingName());
+                                deltaEncoder.reset();
+                                nbTries++;
                             } else {
                                 logger.error("{}could not post to {} {} {}", getFop().getLoggingName(), url, statusLine,
                                         LoggerUtils.whereFrom(1));
@@ -756,6 +741,9 @@ public class EventForwarder implements BreakDisplay {
                             }
                         }
                     } else {
+                        if (isUpdate && deltaSupported) {
+                            deltaEncoder.acknowledge();
+                        }
                         done = true;
                     }
                 } catch (Exception e1) {
@@ -1000,7 +988,7 @@ public class EventForwarder implements BreakDisplay {
             return;
         }
         logger.trace("pushing {}", det);
-        sendPost(decisionUrl, createDecision(det));
+        sendPost(decisionUrl, createDecision(det), false);
     }
 
     private void pushTimer(UIEvent e) {
@@ -1008,7 +996,7 @@ public class EventForwarder implements BreakDisplay {
         if (timerUrl == null) {
             return;
         }
-        sendPost(timerUrl, createTimer(e));
+        sendPost(timerUrl, createTimer(e), true);
     }
 
     private void pushUpdate() {
@@ -1017,7 +1005,7 @@ public class EventForwarder implements BreakDisplay {
         if (updateUrl == null) {
             return;
         }
-        sendPost(updateUrl, createUpdate());
+        sendPost(updateUrl, createUpdate(), true);
     }
 
     private void sendConfig(String updateKey) {
@@ -1059,8 +1047,7 @@ public class EventForwarder implements BreakDisplay {
                 HttpEntity entity = builder.build();
 
                 post.setEntity(entity);
-                try (CloseableHttpClient httpClient = HttpClients.createDefault();
-                        CloseableHttpResponse response = httpClient.execute(post)) {
+                try (CloseableHttpResponse response = PostQueue.getHttpClient().execute(post)) {
                     StatusLine statusLine = response.getStatusLine();
                     Integer statusCode = statusLine != null ? statusLine.getStatusCode() : null;
                     if (statusCode != null && statusCode != 200) {
@@ -1079,14 +1066,21 @@ public class EventForwarder implements BreakDisplay {
         }
     }
 
-    private void sendPost(String url, Map<String, String> parameters) {
+    /**
+     * Queue a post to the remote site.
+     *
+     * @param url         destination
+     * @param parameters  form parameters
+     * @param replaceable true if a newer post of the same kind can replace this one while it is waiting to be sent
+     */
+    private void sendPost(String url, Map<String, String> parameters, boolean replaceable) {
         // logger.debug("{}posting update {}", getFop().getLoggingName(), LoggerUtils.whereFrom());
         long deltaMillis = System.currentTimeMillis() - previousMillis;
         int hashCode = parameters.hashCode();
         // debounce, sometimes several identical updates in a rapid succession
         // identical updates are ok after 1 sec.
         if (hashCode != previousHashCode || (deltaMillis > 1000)) {
-            new Thread(() -> doPost(url, parameters)).start();
+            postQueue.send(url, parameters, replaceable);
 
             previousHashCode = hashCode;
             previousMillis = System.currentTimeMillis();
@@ -1126,10 +1120,6 @@ public class EventForwarder implements BreakDisplay {
         this.timeAllowed = timeAllowed;
     }
 
-    private void setTranslationMap(JsonObject translations) {
-        this.translationMap = translations;
-    }
-
     private void setWideTeamNames(boolean b) {
         wideTeamNames = b;
     }
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.uievents;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Sends the posts of one field of play to the remote results site, in order, one at a time.
+ *
+ * A post that is still waiting is dropped when a newer one of the same kind arrives (same URL, event type and field
+ * of play), so a burst of scoreboard updates or timer events results in a single request with the latest values. The
+ * newer post is queued last, so it never goes out ahead of posts of other kinds queued before it.
+ * Posts that must not be merged (decisions) are never replaced nor dropped, and nothing queued before them is replaced
+ * by something queued after them. When the remote site does not keep up, the oldest replaceable posts are dropped.
+ *
+ * All the queues share a single pooled HTTP client so connections to the remote site are kept alive.
+ *
+ * @author owlcms
+ */
+public class PostQueue {
+
+    private static class PendingPost {
+        private final String key;
+        private final Map<String, String> parameters;
+        private final boolean replaceable;
+        private final String url;
+
+        private PendingPost(String url, Map<String, String> parameters, boolean replaceable) {
+            this.url = url;
+            this.key = replacementKey(url, parameters);
+            this.parameters = parameters;
+            this.replaceable = replaceable;
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(PostQueue.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int MAX_CONNECTIONS = 20;
+    private static final int MAX_QUEUED = 50;
+    private static final int SOCKET_TIMEOUT_MS = 15000;
+
+    private static CloseableHttpClient httpClient;
+
+    /**
+     * @return the HTTP client shared by all the fields of play, with persistent connections
+     */
+    public static synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+            cm.setMaxTotal(MAX_CONNECTIONS);
+            cm.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                    .setConnectionRequestTimeout(CONNECT_TIMEOUT_MS)
+                    .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                    .build();
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(cm)
+                    .setDefaultRequestConfig(requestConfig)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(30, TimeUnit.SECONDS)
+                    .build();
+        }
+        return httpClient;
+    }
+
+    /**
+     * @return what identifies posts that replace one another: the URL, the event type and the field of play
+     */
+    private static String replacementKey(String url, Map<String, String> parameters) {
+        String fop = parameters.get("fop");
+        if (fop == null) {
+            fop = parameters.get("fopName");
+        }
+        return url + "|" + parameters.get("eventType") + "|" + fop;
+    }
+
+    private boolean draining = false;
+    private final ThreadPoolExecutor executor;
+    private final String name;
+    private final Deque<PendingPost> pending = new ArrayDeque<>();
+    private final BiConsumer<String, Map<String, String>> poster;
+
+    /**
+     * @param name   used for the thread name and logging
+     * @param poster performs the actual post
+     */
+    public PostQueue(String name, BiConsumer<String, Map<String, String>> poster) {
+        this.name = name;
+        this.poster = poster;
+        // a single thread keeps the posts in order; it goes away when the field of play is idle.
+        this.executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "post-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a post.
+     *
+     * @param url         destination
+     * @param parameters  form parameters
+     * @param replaceable true if a newer post of the same kind makes this one useless
+     */
+    public void send(String url, Map<String, String> parameters, boolean replaceable) {
+        synchronized (pending) {
+            PendingPost post = new PendingPost(url, parameters, replaceable);
+            if (replaceable) {
+                removeReplaced(post);
+            }
+            if (pending.size() >= MAX_QUEUED) {
+                dropOldestReplaceable();
+            }
+            pending.addLast(post);
+            if (!draining) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            PendingPost next;
+            synchronized (pending) {
+                next = pending.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                poster.accept(next.url, next.parameters);
+            } catch (Exception e) {
+                logger.error("{} could not post to {} {}", name, next.url, LoggerUtils.stackTrace(e));
+            }
+        }
+    }
+
+    /**
+     * Make room by dropping the oldest post that can be replaced. Posts that cannot be replaced are kept even if the
+     * queue goes over its limit.
+     */
+    private void dropOldestReplaceable() {
+        Iterator<PendingPost> it = pending.iterator();
+        while (it.hasNext()) {
+            PendingPost p = it.next();
+            if (p.replaceable) {
+                it.remove();
+                logger.warn("{} remote site not keeping up, dropping post to {}", name, p.url);
+                return;
+            }
+        }
+        logger.warn("{} remote site not keeping up, {} posts waiting", name, pending.size());
+    }
+
+    /**
+     * Remove the waiting post of the same kind, unless a post that cannot be replaced was queued after it.
+     */
+    private void removeReplaced(PendingPost post) {
+        Iterator<PendingPost> it = pending.descendingIterator();
+        while (it.hasNext()) {
+            PendingPost p = it.next();
+            if (!p.replaceable) {
+                return;
+            }
+            if (p.key.equals(post.key)) {
+                it.remove();
+                return;
+            }
+        }
+    }
+}
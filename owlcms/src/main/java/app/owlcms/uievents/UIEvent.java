@@ -574,7 +574,7 @@ public class UIEvent {
                 boolean currentDisplayAffected, boolean displayToggle, Object origin, boolean inBreak,
                 Integer newWeight) {
             super(athlete, origin);
-            this.setTrace(LoggerUtils.stackTrace());
+            this.setTrace(LoggerUtils.whereFrom());
             this.nextAthlete = nextAthlete;
             this.previousAthlete = previousAthlete;
             this.changingAthlete = changingAthlete;
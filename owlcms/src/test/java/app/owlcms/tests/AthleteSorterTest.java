@@ -147,6 +147,12 @@ public class AthleteSorterTest {
         Collections.sort(athletes, new WinningOrderComparator(Ranking.TOTAL, false));
         AthleteSorter.assignCategoryRanks(athletes, Ranking.TOTAL);
         assertEqualsToReferenceFile("/seq1_medals_bodyWeight.txt", DebugUtils.shortDump(athletes));
+
+        // partial selection used for medals gives the same podium as a full sort
+        for (Ranking r : new Ranking[] { Ranking.SNATCH, Ranking.CLEANJERK, Ranking.TOTAL }) {
+            assertEquals(AthleteSorter.resultsOrderCopy(athletes, r).subList(0, 3),
+                    AthleteSorter.resultsOrderTop(athletes, r, a -> true, 3));
+        }
     }
 
     @Test
@@ -114,6 +114,29 @@ public class AthleteTest {
         assertEquals("total with no clean and jerk results", 0, (long) athlete.getTotal());
     }
 
+    @Test
+    public void testZeroIfInvalid() {
+        assertEquals(0, Athlete.zeroIfInvalid(null));
+        assertEquals(0, Athlete.zeroIfInvalid(""));
+        assertEquals(0, Athlete.zeroIfInvalid("-"));
+        assertEquals(0, Athlete.zeroIfInvalid("6O"));
+        assertEquals(0, Athlete.zeroIfInvalid("99999999999"));
+        assertEquals(-80, Athlete.zeroIfInvalid("-80"));
+        assertEquals(Integer.MIN_VALUE, Athlete.zeroIfInvalid(Integer.toString(Integer.MIN_VALUE)));
+    }
+
+    @Test
+    public void testLiftValueFollowsField() {
+        athlete.setSnatch1ActualLift("60");
+        assertEquals(60, athlete.getBestSnatch().intValue());
+        athlete.setSnatch1ActualLift("-60");
+        assertEquals(0, athlete.getBestSnatch().intValue());
+        assertEquals(-60, athlete.getActualLiftValue(1));
+        athlete.setSnatch1ActualLift(new String("61"));
+        assertEquals(61, athlete.getBestSnatch().intValue());
+        assertEquals(61, (int) athlete.getActualLift(1));
+    }
+
     /**
      * Test method for {@link org.concordiainternational.competition.data.Athlete#getTotal()}.
      */
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+
+import app.owlcms.fieldofplay.FopDispatcher;
+import app.owlcms.fieldofplay.OrderedEventBus;
+
+public class FopDispatcherTest {
+
+    public static class Listener {
+        private final CountDownLatch done;
+        private final CountDownLatch gate;
+        private final List<Integer> received = new ArrayList<>();
+
+        /**
+         * @param done counted down for each event
+         * @param gate the first event waits until it is open, null for no wait
+         */
+        Listener(CountDownLatch done, CountDownLatch gate) {
+            this.done = done;
+            this.gate = gate;
+        }
+
+        @Subscribe
+        public void receive(Integer i) throws InterruptedException {
+            if (gate != null) {
+                assertTrue(gate.await(5, TimeUnit.SECONDS));
+            }
+            synchronized (received) {
+                received.add(i);
+            }
+            done.countDown();
+        }
+    }
+
+    private static final int EVENTS = 100;
+
+    /**
+     * Each subscriber sees the events in posting order, and a blocked subscriber does not hold up the others.
+     */
+    @Test
+    public void orderedPerSubscriber() throws InterruptedException {
+        FopDispatcher dispatcher = new FopDispatcher("test", 2);
+        OrderedEventBus bus = new OrderedEventBus("test", dispatcher);
+        CountDownLatch fastDone = new CountDownLatch(EVENTS);
+        CountDownLatch slowDone = new CountDownLatch(EVENTS);
+        CountDownLatch gate = new CountDownLatch(1);
+        Listener fast = new Listener(fastDone, null);
+        Listener slow = new Listener(slowDone, gate);
+        bus.register(fast);
+        bus.register(slow);
+
+        for (int i = 0; i < EVENTS; i++) {
+            bus.post(i);
+        }
+        // the slow listener holds one thread until the gate opens, the fast one gets all its events on the other
+        assertTrue("fast listener held up", fastDone.await(5, TimeUnit.SECONDS));
+        assertEquals(EVENTS, slowDone.getCount());
+        gate.countDown();
+        assertTrue(slowDone.await(5, TimeUnit.SECONDS));
+
+        for (Listener l : List.of(fast, slow)) {
+            for (int i = 0; i < EVENTS; i++) {
+                assertEquals(Integer.valueOf(i), l.received.get(i));
+            }
+        }
+        assertEquals(2 * EVENTS, dispatcher.getDelivered());
+    }
+
+    /**
+     * Events are only queued for the subscribers that have a method for them, and not after unregistering.
+     */
+    @Test
+    public void onlySubscribedEvents() throws InterruptedException {
+        FopDispatcher dispatcher = new FopDispatcher("test", 1);
+        OrderedEventBus bus = new OrderedEventBus("test", dispatcher);
+        CountDownLatch done = new CountDownLatch(1);
+        Listener listener = new Listener(done, null);
+        bus.register(listener);
+
+        bus.post("not an integer");
+        assertEquals(0, dispatcher.getQueueDepth() + dispatcher.getDelivered());
+        bus.post(1);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        bus.unregister(listener);
+        bus.post(2);
+        assertEquals(1, dispatcher.getQueueDepth() + dispatcher.getDelivered());
+        assertEquals(List.of(1), listener.received);
+    }
+}
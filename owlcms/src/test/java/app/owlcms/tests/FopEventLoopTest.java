@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import app.owlcms.fieldofplay.FopEventLoop;
+
+public class FopEventLoopTest {
+
+    /**
+     * A poster interrupted while waiting for room in the mailbox gives up: its event is not handled later, and the
+     * interrupt status is kept.
+     */
+    @Test
+    public void interruptedWhileMailboxFull() throws InterruptedException {
+        FopEventLoop loop = new FopEventLoop("test", 1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        loop.submit(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, false);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // fills the mailbox
+        loop.submit(() -> {
+        }, false);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread poster = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            loop.submit(() -> ran.set(true), false);
+            stillInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        poster.start();
+        poster.join(5000);
+        assertFalse(poster.isAlive());
+        assertTrue(stillInterrupted.get());
+
+        gate.countDown();
+        // handled after everything queued before it
+        loop.submit(() -> {
+        }, true);
+        assertFalse(ran.get());
+        loop.shutdown();
+    }
+
+    /**
+     * Events from several threads are handled one at a time on the loop thread; an event posted from a handler is
+     * handled as part of it; a poster finds the effect of its event when it returns.
+     */
+    @Test
+    public void singleWriter() throws InterruptedException {
+        FopEventLoop loop = new FopEventLoop("test", 4, 5000);
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        int[] inHandler = { 0 };
+        int[] maxInHandler = { 0 };
+        int posters = 4;
+        int events = 50;
+        CountDownLatch done = new CountDownLatch(posters);
+        for (int p = 0; p < posters; p++) {
+            int poster = p;
+            new Thread(() -> {
+                for (int i = 0; i < events; i++) {
+                    int event = i;
+                    loop.submit(() -> {
+                        assertTrue(loop.isLoopThread());
+                        maxInHandler[0] = Math.max(maxInHandler[0], ++inHandler[0]);
+                        loop.submit(() -> handled.add(poster + "/" + event + " nested"), true);
+                        handled.add(poster + "/" + event);
+                        inHandler[0]--;
+                    }, true);
+                    // waited for: the effect is visible
+                    assertTrue(handled.contains(poster + "/" + event));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2 * posters * events, handled.size());
+        assertEquals(1, maxInHandler[0]);
+        // nested event handled before the end of the one that posted it
+        assertEquals("0/0 nested", handled.stream().filter(s -> s.startsWith("0/0")).findFirst().get());
+        loop.shutdown();
+    }
+}
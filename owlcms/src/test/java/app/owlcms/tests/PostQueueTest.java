@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import app.owlcms.uievents.PostQueue;
+
+public class PostQueueTest {
+
+    private static final String TIMER_URL = "http://localhost/timer";
+
+    /**
+     * A newer post replaces a waiting one of the same kind, but goes out after the posts of other kinds queued in
+     * between, so the remote site ends in the latest state.
+     */
+    @Test
+    public void interleavedEventTypes() throws InterruptedException {
+        List<String> posted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        PostQueue queue = new PostQueue("test", (url, parameters) -> {
+            if (parameters.get("id").equals("first")) {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            posted.add(parameters.get("id"));
+            done.countDown();
+        });
+
+        // keeps the sending thread busy while the others are queued
+        queue.send(TIMER_URL, post("first", "SetTime"), true);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        queue.send(TIMER_URL, post("start1", "StartTime"), true);
+        queue.send(TIMER_URL, post("stop", "StopTime"), true);
+        queue.send(TIMER_URL, post("start2", "StartTime"), true);
+        queue.send(TIMER_URL, post("decision", "FullDecision"), false);
+        // queued after a decision: does not replace the StopTime queued before it
+        queue.send(TIMER_URL, post("stop2", "StopTime"), true);
+        gate.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("first", "stop", "start2", "decision", "stop2"), posted);
+    }
+
+    private Map<String, String> post(String id, String eventType) {
+        return Map.of("id", id, "eventType", eventType, "fopName", "A");
+    }
+}
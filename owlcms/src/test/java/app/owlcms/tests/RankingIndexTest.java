@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.athleteSort.RankingIndex;
+import app.owlcms.data.athleteSort.RankingIndex.RankChanges;
+import app.owlcms.data.category.Participation;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.fieldofplay.FieldOfPlay;
+import app.owlcms.init.OwlcmsSession;
+
+public class RankingIndexTest {
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    List<Athlete> athletes = null;
+
+    /**
+     * Repositioning athletes one at a time must give the same ranks as ranking everybody from scratch.
+     */
+    @Test
+    public void incrementalMatchesRebuild() {
+        RankingIndex index = new RankingIndex();
+        index.rebuild(athletes);
+
+        int i = 0;
+        for (Athlete a : athletes) {
+            int weight = 60 + (i * 7) % 11;
+            a.setSnatch1Declaration(Integer.toString(weight));
+            a.setSnatch1ActualLift((i % 3 == 0 ? "-" : "") + weight);
+            a.setCleanJerk1Declaration(Integer.toString(weight + 20));
+            a.setCleanJerk1ActualLift((i % 4 == 0 ? "-" : "") + (weight + 20));
+            index.update(List.of(a.getId()), List.of(a));
+            i++;
+        }
+        List<String> incremental = dumpRanks(athletes);
+
+        RankChanges changes = new RankingIndex().rebuild(athletes);
+        assertTrue(changes.isEmpty());
+        assertEquals(incremental, dumpRanks(athletes));
+    }
+
+    /**
+     * The overall orders go to the reports, which must get their own copies of the athletes.
+     */
+    @Test
+    public void overallOrdersAreCopies() {
+        RankingIndex index = new RankingIndex();
+        JPAService.runInTransaction(em -> {
+            index.refresh(em);
+            Map<Ranking, List<Athlete>> first = index.findOverallOrders(em);
+            Map<Ranking, List<Athlete>> second = index.findOverallOrders(em);
+            for (Ranking r : List.of(Ranking.BW_SINCLAIR, Ranking.SMM)) {
+                List<Athlete> order = first.get(r);
+                assertFalse(order.isEmpty());
+                assertEquals(order.size(), second.get(r).size());
+                for (int i = 0; i < order.size(); i++) {
+                    assertEquals(order.get(i).getId(), second.get(r).get(i).getId());
+                    assertNotSame(order.get(i), second.get(r).get(i));
+                    assertFalse(em.contains(order.get(i)));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void unchangedAthleteWritesNothing() {
+        RankingIndex index = new RankingIndex();
+        Athlete a = athletes.get(0);
+        a.setSnatch1Declaration("70");
+        a.setSnatch1ActualLift("70");
+        assertFalse(index.rebuild(athletes).isEmpty());
+
+        RankChanges changes = index.update(List.of(a.getId()), List.of(a));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Before
+    public void setupTest() {
+        athletes = JPAService.runInTransaction(em -> AthleteRepository.doFindAllForRankingIndex(em));
+        FieldOfPlay fopState = FieldOfPlay.mockFieldOfPlay(athletes, new MockCountdownTimer(),
+                new MockCountdownTimer());
+        OwlcmsSession.setFop(fopState);
+    }
+
+    private List<String> dumpRanks(List<Athlete> athletes) {
+        List<String> ranks = new ArrayList<>();
+        for (Athlete a : athletes) {
+            for (Participation p : a.getParticipations()) {
+                ranks.add(a.getId() + " " + p.getCategory().getComputedCode() + " " + p.getSnatchRank() + " "
+                        + p.getCleanJerkRank() + " " + p.getTotalRank() + " " + p.getCustomRank());
+            }
+            ranks.add(a.getId() + " " + a.getSinclairRank() + " " + a.getSmmRank());
+        }
+        return ranks;
+    }
+}
@@ -12,6 +12,7 @@ import static org.junit.Assert.assertEquals;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
@@ -32,6 +33,7 @@ import app.owlcms.data.config.Config;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.data.records.RecordDefinitionReader;
 import app.owlcms.data.records.RecordEvent;
+import app.owlcms.data.records.RecordIndex;
 import app.owlcms.data.records.RecordRepository;
 import app.owlcms.spreadsheet.JXLSExportRecords;
 import app.owlcms.utils.LoggerUtils;
@@ -184,4 +186,18 @@ public class RecordDefinitionReaderTest {
         }
         
     }
+
+    @Test
+    public void _10_testIndex() throws IOException {
+        String zipURI = "/testData/records/IWF_EWF.zip";
+        InputStream zipStream = this.getClass().getResourceAsStream(zipURI);
+        RecordDefinitionReader.readZip(zipStream);
+        List<RecordEvent> queried = RecordRepository.findFiltered(Gender.M, 16, 110.0D, null, null);
+        List<RecordEvent> indexed = RecordIndex.getCurrent().findBest(Gender.M, 16, 110.0D);
+        assertEquals("index and query differ",
+                queried.stream().map(RecordEvent::getKey).collect(Collectors.toCollection(TreeSet::new)),
+                indexed.stream().map(RecordEvent::getKey).collect(Collectors.toCollection(TreeSet::new)));
+        assertEquals("record table differs", RecordRepository.buildRecordJson(queried, 150, null, null).toJson(),
+                RecordRepository.buildRecordJson(indexed, 150, null, null).toJson());
+    }
 }
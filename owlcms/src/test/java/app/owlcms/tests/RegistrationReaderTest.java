@@ -6,6 +6,10 @@
  *******************************************************************************/
 package app.owlcms.tests;
 
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -14,7 +18,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -28,6 +38,7 @@ import app.owlcms.data.config.Config;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.spreadsheet.RAthlete;
 import app.owlcms.spreadsheet.RCompetition;
+import app.owlcms.spreadsheet.StreamingXLSReader;
 import ch.qos.logback.classic.Logger;
 import net.sf.jxls.reader.ReaderBuilder;
 import net.sf.jxls.reader.ReaderConfig;
@@ -87,4 +98,79 @@ public class RegistrationReaderTest {
         }
     }
 
+    /**
+     * The streaming reader must give the same athletes as jxls, to the listener as well as in the list.
+     */
+    @Test
+    public void streaming() throws IOException, SAXException, InvalidFormatException {
+        try (InputStream xlsInputStream = this.getClass().getResourceAsStream("/testData/registration.xls")) {
+            readStreaming(xlsInputStream);
+        }
+    }
+
+    /**
+     * Same for .xlsx files, which are read with SAX on the sheet XML; the registration file is converted.
+     */
+    @Test
+    public void streamingXlsx() throws IOException, SAXException, InvalidFormatException {
+        ByteArrayOutputStream xlsx = new ByteArrayOutputStream();
+        try (InputStream xlsInputStream = this.getClass().getResourceAsStream("/testData/registration.xls");
+                HSSFWorkbook source = new HSSFWorkbook(xlsInputStream);
+                XSSFWorkbook target = new XSSFWorkbook()) {
+            for (Sheet sheet : source) {
+                Sheet targetSheet = target.createSheet(sheet.getSheetName());
+                for (Row row : sheet) {
+                    Row targetRow = targetSheet.createRow(row.getRowNum());
+                    for (Cell cell : row) {
+                        copyValue(cell, targetRow.createCell(cell.getColumnIndex()));
+                    }
+                }
+            }
+            target.write(xlsx);
+        }
+        readStreaming(new ByteArrayInputStream(xlsx.toByteArray()));
+    }
+
+    private void copyValue(Cell cell, Cell targetCell) {
+        CellType type = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType()
+                : cell.getCellType();
+        switch (type) {
+        case NUMERIC:
+            targetCell.setCellValue(cell.getNumericCellValue());
+            break;
+        case STRING:
+            targetCell.setCellValue(cell.getStringCellValue());
+            break;
+        case BOOLEAN:
+            targetCell.setCellValue(cell.getBooleanCellValue());
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void readStreaming(InputStream xlsInputStream) throws IOException, SAXException, InvalidFormatException {
+        try (InputStream xmlInputStream = this.getClass().getResourceAsStream(REGISTRATION_READER_SPEC)) {
+
+            ReaderConfig.getInstance().setUseDefaultValuesForPrimitiveTypes(true);
+            StreamingXLSReader reader = StreamingXLSReader.buildFromXML(xmlInputStream);
+
+            RCompetition c = new RCompetition();
+            List<RAthlete> athletes = new ArrayList<>();
+
+            Map<String, Object> beans = new HashMap<>();
+            beans.put("competition", c);
+            beans.put("athletes", athletes);
+
+            List<Object> streamed = new ArrayList<>();
+            reader.read(xlsInputStream, beans, streamed::add);
+
+            List<Athlete> fromListener = streamed.stream().map(r -> ((RAthlete) r).getAthlete())
+                    .collect(Collectors.toList());
+            AllTests.assertEqualsToReferenceFile("/reg_results.txt", DebugUtils.longDump(fromListener));
+            List<Athlete> fromList = athletes.stream().map(r -> r.getAthlete()).collect(Collectors.toList());
+            assertEquals(DebugUtils.longDump(fromListener), DebugUtils.longDump(fromList));
+        }
+    }
+
 }
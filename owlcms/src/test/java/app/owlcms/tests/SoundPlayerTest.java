@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+
+import app.owlcms.sound.SoundPlayer;
+import app.owlcms.utils.ResourceWalker;
+
+public class SoundPlayerTest {
+
+    /**
+     * Without a mixer, sounds are mixed and played to the end without any output.
+     */
+    @Test
+    public void headless() throws InterruptedException {
+        SoundPlayer player = SoundPlayer.forMixer(null);
+        assertFalse(player.isLineOpen());
+        long before = player.getPlayed();
+
+        byte[] tone = SoundPlayer.tone(1100, 1200, 1.0);
+        assertEquals(44100 * 12 / 10 * 4, tone.length);
+        player.play(tone);
+        player.play(SoundPlayer.tone(440, 100, 0.5));
+        player.play(new byte[0]);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (player.getPlayed() < before + 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(before + 2, player.getPlayed());
+    }
+
+    /**
+     * A sound that cannot be read is reported, and not remembered as silence.
+     */
+    @Test
+    public void missingSound() {
+        assertNull(SoundPlayer.decode("noSuchSound.wav"));
+        assertFalse(SoundPlayer.forMixer(null).play("noSuchSound.wav"));
+    }
+
+    /**
+     * A sound in another format is converted; replacing the file in the override directory replaces the sound.
+     */
+    @Test
+    public void overrideReloaded() throws IOException {
+        ResourceWalker.initLocalDir();
+        Path previous = ResourceWalker.getLocalDirPath();
+        Path dir = Files.createTempDirectory("owlcmsSounds");
+        try {
+            ResourceWalker.setLocalDirPath(dir);
+            Path wav = Files.createDirectories(dir.resolve("sounds")).resolve("test.wav");
+
+            // 8-bit unsigned mono at 22050Hz: encoding, rate and channels all differ
+            writeWav(wav, 100);
+            Files.setLastModifiedTime(wav, FileTime.fromMillis(1_000_000L));
+            assertAbout(44100 / 10 * 4, SoundPlayer.decode("test.wav").length);
+
+            writeWav(wav, 200);
+            Files.setLastModifiedTime(wav, FileTime.fromMillis(2_000_000L));
+            assertAbout(44100 / 5 * 4, SoundPlayer.decode("test.wav").length);
+        } finally {
+            ResourceWalker.setLocalDirPath(previous);
+            Files.walk(dir).sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private void assertAbout(int expected, int actual) {
+        assertTrue(expected + " expected, got " + actual, Math.abs(expected - actual) <= 256);
+    }
+
+    private void writeWav(Path wav, int msecs) throws IOException {
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 22050f, 8, 1, 1, 22050f, false);
+        byte[] samples = new byte[22050 * msecs / 1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (byte) (128 + 60 * Math.sin(i / 50.0 * 2 * Math.PI));
+        }
+        try (AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(samples), format,
+                samples.length)) {
+            AudioSystem.write(ais, AudioFileFormat.Type.WAVE, wav.toFile());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import app.owlcms.utils.Scheduler;
+import app.owlcms.utils.VirtualScheduler;
+
+public class VirtualSchedulerTest {
+
+    @Test
+    public void advance() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        List<String> ran = new ArrayList<>();
+        scheduler.schedule(() -> ran.add("reset"), 3500);
+        scheduler.schedule(() -> ran.add("records"), 500);
+        Scheduler.Handle reminder = scheduler.schedule(() -> ran.add("reminder"), 1000);
+
+        scheduler.advance(400);
+        assertTrue(ran.isEmpty());
+        assertTrue(reminder.cancel());
+        scheduler.advance(3100);
+        assertEquals(List.of("records", "reset"), ran);
+        assertEquals(3500, scheduler.currentTimeMillis());
+        assertFalse(reminder.cancel());
+    }
+
+    @Test
+    public void immediate() {
+        VirtualScheduler scheduler = new VirtualScheduler(true);
+        List<String> ran = new ArrayList<>();
+        scheduler.schedule(() -> {
+            ran.add("decision");
+            scheduler.schedule(() -> ran.add("reset"), 3500);
+            scheduler.schedule(() -> ran.add("records"), 500);
+            ran.add("decision done");
+        }, 3000);
+        assertEquals(List.of("decision", "decision done", "records", "reset"), ran);
+        assertEquals(6500, scheduler.currentTimeMillis());
+        assertEquals(0, scheduler.getPending());
+    }
+}
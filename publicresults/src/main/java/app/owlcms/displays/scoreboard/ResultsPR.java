@@ -52,7 +52,7 @@ import ch.qos.logback.classic.Logger;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
-import elemental.json.impl.JreJsonFactory;
+import elemental.json.JsonValue;
 
 /**
  * Class Scoreboard
@@ -356,26 +356,23 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
         BreakType breakType = e.getBreakType();
 
         ui.access(() -> {
-            String athletes = e.getAthletes();
-            String leaders = e.getLeaders();
-            String records = e.getRecords();
-            String translationMap = e.getTranslationMap();
-
-            JreJsonFactory jreJsonFactory = new JreJsonFactory();
+            // parsed once by the servlet, shared by all the sessions
+            JsonArray athletes = e.getAthletesJson();
+            JsonArray leaders = e.getLeadersJson();
+            JsonObject records = e.getRecordsJson();
+            JsonValue translationMap = e.getTranslationMapJson();
 
             if (athletes != null) {
-                JsonArray athleteList = (JsonArray) jreJsonFactory.parse(athletes);
-                this.getElement().setPropertyJson("athletes", athleteList);
-                this.getElement().setProperty("resultLines", athleteList.length() + 1);
+                this.getElement().setPropertyJson("athletes", athletes);
+                this.getElement().setProperty("resultLines", athletes.length() + 1);
             } else {
                 this.getElement().setPropertyJson("athletes", Json.createNull());
                 this.getElement().setProperty("resultLines", 1);
             }
 
             if (leaders != null && (breakType != BreakType.GROUP_DONE || e.isSinclairMeet())) {
-                JsonArray leaderList = (JsonArray) jreJsonFactory.parse(leaders);
-                this.getElement().setPropertyJson("leaders", leaderList);
-                this.getElement().setProperty("leaderLines", leaderList.length() + 1);
+                this.getElement().setPropertyJson("leaders", leaders);
+                this.getElement().setProperty("leaderLines", leaders.length() + 1);
             } else {
                 this.getElement().setPropertyJson("leaders", Json.createNull());
                 this.getElement().setProperty("leaderLines", 1);
@@ -383,8 +380,7 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
 
             if (records != null) {
                 // logger.debug("records = {}", records);
-                JsonObject recordList = (JsonObject) jreJsonFactory.parse(records);
-                this.getElement().setPropertyJson("records", recordList);
+                this.getElement().setPropertyJson("records", records);
                 this.getElement().setProperty("recordKind", e.getRecordKind());
                 this.getElement().setProperty("recordMessage", e.getRecordMessage());
             } else {
@@ -393,7 +389,7 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
             }
 
             this.getElement().setPropertyJson("t",
-                    translationMap != null ? jreJsonFactory.parse(translationMap) : Json.createNull());
+                    translationMap != null ? translationMap : Json.createNull());
 
             getElement().setProperty("noLiftRanks", e.getNoLiftRanks());
 
@@ -121,6 +121,7 @@ public class ConfigReceiverServlet extends HttpServlet {
             IOUtils.copy(uploadedStream, out);
             out.close();
         }
+        ResourceWalker.invalidateResolutions();
     }
 
     private boolean checkUpdateKey(HttpServletRequest req, HttpServletResponse resp, boolean authenticated,
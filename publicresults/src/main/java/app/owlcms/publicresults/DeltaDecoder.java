@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.publicresults;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Rebuilds the complete values of an update sent by owlcms in compact form.
+ *
+ * Large values that rarely change are referred to by hash once they have been received, and athlete tables are sent
+ * as the rows that changed since a previous version. A few recent values and versions are kept for each field of play;
+ * when an update refers to something no longer known, {@link VersionGapException} is thrown and owlcms is asked for a
+ * full update.
+ *
+ * Updates without a version (older owlcms) are used as is.
+ *
+ * @author owlcms
+ */
+public class DeltaDecoder {
+
+    @SuppressWarnings("serial")
+    public static class VersionGapException extends Exception {
+        public VersionGapException(String message) {
+            super(message);
+        }
+    }
+
+    public static final String DELTA_HEADER = "X-Owlcms-Delta";
+    public static final int VERSION_GAP = 409;
+
+    private static final int HISTORY = 4;
+    private static final String VERSION = "updateVersion";
+
+    private static Map<String, DeltaDecoder> decoders = new ConcurrentHashMap<>();
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(DeltaDecoder.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    public static DeltaDecoder getDecoder(String fopName) {
+        return decoders.computeIfAbsent(fopName != null ? fopName : "", (k) -> new DeltaDecoder());
+    }
+
+    private static <K, V> void trim(LinkedHashMap<K, V> map) {
+        Iterator<K> it = map.keySet().iterator();
+        while (map.size() > HISTORY && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String toJson(List<String> rows) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(rows.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    private Map<String, LinkedHashMap<String, String>> blobs = new HashMap<>();
+    private Map<String, LinkedHashMap<Long, List<String>>> rows = new HashMap<>();
+
+    /**
+     * @param req  the update request
+     * @param name a value sent once then referred to by name+"Hash"
+     * @return the value
+     * @throws VersionGapException if only the hash was sent and the value is not known
+     */
+    public synchronized String getBlob(HttpServletRequest req, String name) throws VersionGapException {
+        String value = req.getParameter(name);
+        String hash = req.getParameter(name + "Hash");
+        if (hash == null) {
+            return value;
+        }
+        LinkedHashMap<String, String> known = blobs.computeIfAbsent(name, (k) -> new LinkedHashMap<>());
+        if (value != null) {
+            known.remove(hash);
+            known.put(hash, value);
+            trim(known);
+            return value;
+        }
+        value = known.get(hash);
+        if (value == null) {
+            throw new VersionGapException(name + " " + hash);
+        }
+        return value;
+    }
+
+    /**
+     * @param req  the update request
+     * @param name a JSON array sent either in full or as name+"Delta"
+     * @return the JSON array
+     * @throws VersionGapException if the delta is relative to an unknown version
+     */
+    public synchronized String getRows(HttpServletRequest req, String name) throws VersionGapException {
+        String value = req.getParameter(name);
+        String versionString = req.getParameter(VERSION);
+        if (versionString == null) {
+            return value;
+        }
+        long version = Long.parseLong(versionString);
+        LinkedHashMap<Long, List<String>> versions = rows.computeIfAbsent(name, (k) -> new LinkedHashMap<>());
+        String deltaString = req.getParameter(name + "Delta");
+        List<String> current;
+        if (deltaString != null) {
+            JsonObject delta = Json.parse(deltaString);
+            long base = (long) delta.getNumber("base");
+            List<String> baseRows = versions.get(base);
+            if (baseRows == null) {
+                throw new VersionGapException(name + " " + base);
+            }
+            int size = (int) delta.getNumber("size");
+            JsonObject changed = delta.getObject("rows");
+            current = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String key = Integer.toString(i);
+                if (changed.hasKey(key)) {
+                    current.add(changed.get(key).toJson());
+                } else if (i < baseRows.size()) {
+                    current.add(baseRows.get(i));
+                } else {
+                    throw new VersionGapException(name + " " + base + " row " + i);
+                }
+            }
+            value = toJson(current);
+        } else if (value != null) {
+            JsonValue parsed = Json.parse(value);
+            if (!(parsed instanceof JsonArray)) {
+                return value;
+            }
+            JsonArray array = (JsonArray) parsed;
+            current = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                current.add(array.get(i).toJson());
+            }
+        } else {
+            return null;
+        }
+        versions.put(version, current);
+        trim(versions);
+        logger.trace("{} version {} rows {}", name, version, current.size());
+        return value;
+    }
+}
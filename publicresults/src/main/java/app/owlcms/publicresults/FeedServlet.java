@@ -0,0 +1,389 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.publicresults;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.Subscribe;
+
+import app.owlcms.uievents.BreakTimerEvent;
+import app.owlcms.uievents.DecisionEvent;
+import app.owlcms.uievents.TimerEvent;
+import app.owlcms.uievents.UpdateEvent;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Read-only results feed using Server-Sent Events.
+ *
+ * A viewer of the feed page holds an open HTTP response and no Vaadin session. Each update, timer and decision
+ * received from owlcms is turned into a message once, and the same bytes are written to every viewer of that field of
+ * play. A new viewer first receives the last update in the cache.
+ *
+ * Writes are non-blocking: each viewer has a small queue, emptied whenever its connection can accept more data. If a
+ * viewer does not keep up, the oldest messages in its queue are dropped, and a viewer that makes no progress for
+ * {@link #STALLED_SECONDS} is disconnected, so a slow client never delays the others.
+ *
+ * <pre>
+ * GET /feed?fop=A
+ * </pre>
+ *
+ * @author owlcms
+ */
+@SuppressWarnings("serial")
+@WebServlet(urlPatterns = "/feed", asyncSupported = true)
+public class FeedServlet extends HttpServlet {
+
+    private static class Viewer implements WriteListener {
+        private final AsyncContext context;
+        private final String fopName;
+        private long lastProgress = System.currentTimeMillis();
+        private final ServletOutputStream out;
+        private final Deque<byte[]> queue = new ArrayDeque<>();
+        private boolean unflushed;
+
+        private Viewer(AsyncContext context, String fopName) throws IOException {
+            this.context = context;
+            this.fopName = fopName;
+            this.out = context.getResponse().getOutputStream();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            remove(this);
+        }
+
+        @Override
+        public void onWritePossible() {
+            write();
+        }
+
+        /**
+         * @return true if messages have been waiting for more than {@link #STALLED_SECONDS}
+         */
+        private synchronized boolean isStalled(long now) {
+            return !queue.isEmpty() && now - lastProgress > TimeUnit.SECONDS.toMillis(STALLED_SECONDS);
+        }
+
+        /**
+         * Queue a message and write what the connection accepts without blocking.
+         *
+         * @param message
+         * @param first   true to send the message before those already waiting
+         */
+        private synchronized void send(byte[] message, boolean first) {
+            if (queue.isEmpty()) {
+                lastProgress = System.currentTimeMillis();
+            }
+            if (queue.size() >= MAX_QUEUED) {
+                queue.pollFirst();
+                logger.debug("viewer of {} not keeping up, dropping message", fopName);
+            }
+            if (first) {
+                queue.addFirst(message);
+            } else {
+                queue.addLast(message);
+            }
+            write();
+        }
+
+        /**
+         * Write until the queue is empty or the connection is not ready; in the latter case the container calls
+         * {@link #onWritePossible()} when it is.
+         */
+        private synchronized void write() {
+            try {
+                while (out.isReady()) {
+                    byte[] next = queue.pollFirst();
+                    if (next == null) {
+                        if (!unflushed) {
+                            return;
+                        }
+                        unflushed = false;
+                        out.flush();
+                    } else {
+                        out.write(next);
+                        unflushed = true;
+                    }
+                    lastProgress = System.currentTimeMillis();
+                }
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+            }
+        }
+    }
+
+    private static final long HEARTBEAT_SECONDS = 20;
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(FeedServlet.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    /**
+     * messages waiting for a viewer, beyond which the oldest are dropped.
+     */
+    private static final int MAX_QUEUED = 64;
+
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * a viewer whose messages have not moved for this long is disconnected.
+     */
+    private static final long STALLED_SECONDS = 60;
+
+    /**
+     * messages are queued from a single thread, in the order received, without holding up the receiving servlets.
+     */
+    private static final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "feed-sender");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Map<String, String> translationsSent = new ConcurrentHashMap<>();
+    private static final Set<Viewer> viewers = ConcurrentHashMap.newKeySet();
+
+    static {
+        // a single instance receives the events, regardless of how many the container creates
+        FeedServlet listener = new FeedServlet();
+        UpdateReceiverServlet.getEventBus().register(listener);
+        TimerReceiverServlet.getEventBus().register(listener);
+        DecisionReceiverServlet.getEventBus().register(listener);
+        sender.scheduleWithFixedDelay(FeedServlet::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    private static void broadcast(String fopName, byte[] message) {
+        for (Viewer v : viewers) {
+            if (fopName == null || fopName.equals(v.fopName)) {
+                v.send(message, false);
+            }
+        }
+    }
+
+    /**
+     * Disconnect the viewers that are stuck, ping the others.
+     */
+    private static void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Viewer v : viewers) {
+            if (v.isStalled(now)) {
+                logger.debug("viewer of {} stalled", v.fopName);
+                remove(v);
+            } else {
+                v.send(PING, false);
+            }
+        }
+    }
+
+    private static byte[] message(String event, JsonObject data) {
+        return ("event: " + event + "\ndata: " + data.toJson() + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void put(JsonObject o, String key, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Boolean) {
+            o.put(key, (Boolean) value);
+        } else if (value instanceof Number) {
+            o.put(key, ((Number) value).doubleValue());
+        } else {
+            o.put(key, value.toString());
+        }
+    }
+
+    private static void remove(Viewer v) {
+        if (viewers.remove(v)) {
+            logger.debug("viewer of {} gone, {} remaining", v.fopName, viewers.size());
+            try {
+                v.context.complete();
+            } catch (Exception e) {
+                // already closed
+            }
+        }
+    }
+
+    private static JsonObject updateJson(UpdateEvent e, boolean withTranslations) {
+        JsonObject o = Json.createObject();
+        put(o, "competitionName", e.getCompetitionName());
+        put(o, "fopName", e.getFopName());
+        put(o, "fopState", e.getFopState());
+        put(o, "break", e.isBreak());
+        put(o, "breakType", e.getBreakType());
+        put(o, "groupName", e.getGroupName());
+        put(o, "liftsDone", e.getLiftsDone());
+        put(o, "fullName", e.getFullName());
+        put(o, "teamName", e.getTeamName());
+        put(o, "startNumber", e.getStartNumber());
+        put(o, "categoryName", e.getCategoryName());
+        put(o, "attempt", e.getAttempt());
+        put(o, "weight", e.getWeight());
+        put(o, "hidden", e.getHidden());
+        put(o, "recordKind", e.getRecordKind());
+        put(o, "recordMessage", e.getRecordMessage());
+        if (e.getAthletesJson() != null) {
+            o.put("athletes", e.getAthletesJson());
+        }
+        if (e.getLeadersJson() != null) {
+            o.put("leaders", e.getLeadersJson());
+        }
+        if (withTranslations && e.getTranslationMapJson() != null) {
+            o.put("t", e.getTranslationMapJson());
+        }
+        return o;
+    }
+
+    @Subscribe
+    public void slaveBreakTimer(BreakTimerEvent e) {
+        JsonObject o = Json.createObject();
+        put(o, "type", e.getClass().getSimpleName());
+        if (e instanceof BreakTimerEvent.BreakStart) {
+            put(o, "timeRemaining", ((BreakTimerEvent.BreakStart) e).getTimeRemaining());
+            put(o, "indefinite", ((BreakTimerEvent.BreakStart) e).isIndefinite());
+        } else if (e instanceof BreakTimerEvent.BreakSetTime) {
+            put(o, "timeRemaining", ((BreakTimerEvent.BreakSetTime) e).getTimeRemaining());
+            put(o, "indefinite", ((BreakTimerEvent.BreakSetTime) e).isIndefinite());
+        } else if (e instanceof BreakTimerEvent.BreakPaused) {
+            put(o, "timeRemaining", ((BreakTimerEvent.BreakPaused) e).getTimeRemaining());
+        }
+        byte[] message = message("breakTimer", o);
+        sender.execute(() -> broadcast(e.getFopName(), message));
+    }
+
+    @Subscribe
+    public void slaveDecision(DecisionEvent e) {
+        JsonObject o = Json.createObject();
+        put(o, "eventType", e.getEventType());
+        put(o, "d1", e.getDecisionLight1());
+        put(o, "d2", e.getDecisionLight2());
+        put(o, "d3", e.getDecisionLight3());
+        put(o, "down", e.isDown());
+        put(o, "visible", e.isDecisionLightsVisible());
+        put(o, "recordKind", e.getRecordKind());
+        put(o, "recordMessage", e.getRecordMessage());
+        byte[] message = message("decision", o);
+        sender.execute(() -> broadcast(e.getFopName(), message));
+    }
+
+    @Subscribe
+    public void slaveTimer(TimerEvent e) {
+        JsonObject o = Json.createObject();
+        put(o, "type", e.getClass().getSimpleName());
+        if (e instanceof TimerEvent.SetTime) {
+            put(o, "timeRemaining", ((TimerEvent.SetTime) e).getTimeRemaining());
+        } else if (e instanceof TimerEvent.StartTime) {
+            put(o, "timeRemaining", ((TimerEvent.StartTime) e).getTimeRemaining());
+        } else if (e instanceof TimerEvent.StopTime) {
+            put(o, "timeRemaining", ((TimerEvent.StopTime) e).getTimeRemaining());
+        }
+        byte[] message = message("timer", o);
+        sender.execute(() -> broadcast(e.getFopName(), message));
+    }
+
+    @Subscribe
+    public void slaveUpdate(UpdateEvent e) {
+        String fopName = e.getFopName();
+        if (fopName == null) {
+            return;
+        }
+        // the translations are only repeated when they change; new viewers get them with their first update.
+        String translationMap = e.getTranslationMap();
+        boolean withTranslations = translationMap != null
+                && !Objects.equals(translationsSent.put(fopName, translationMap), translationMap);
+        byte[] message = message("update", updateJson(e, withTranslations));
+        sender.execute(() -> broadcast(fopName, message));
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String fopName = req.getParameter("fop");
+        if (fopName == null) {
+            UpdateEvent current = UpdateReceiverServlet.sync(null);
+            fopName = current != null ? current.getFopName() : null;
+        }
+        if (fopName == null) {
+            resp.sendError(404, "No competition data received yet.");
+            return;
+        }
+
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        // ask reverse proxies not to buffer the stream
+        resp.setHeader("X-Accel-Buffering", "no");
+        resp.setStatus(200);
+
+        AsyncContext context = req.startAsync();
+        context.setTimeout(0);
+        Viewer viewer = new Viewer(context, fopName);
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                remove(viewer);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                remove(viewer);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                remove(viewer);
+            }
+        });
+        viewer.out.setWriteListener(viewer);
+        viewers.add(viewer);
+        logger.debug("new viewer of {}, {} total", fopName, viewers.size());
+
+        // the snapshot is taken after registering, so no update falls in between; updates already queued for the
+        // viewer are at least as recent, so the snapshot goes before them.
+        UpdateEvent current = UpdateReceiverServlet.sync(fopName);
+        viewer.send(current != null ? message("update", updateJson(current, true)) : PING, true);
+    }
+
+    @Override
+    public void destroy() {
+        for (Viewer v : viewers) {
+            remove(v);
+        }
+        logger.info("feed stopped");
+    }
+}
@@ -11,7 +11,10 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -32,13 +35,15 @@ import app.owlcms.utils.ResourceWalker;
 import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import elemental.json.JsonValue;
+import elemental.json.impl.JreJsonFactory;
 
 @WebServlet("/update")
 public class UpdateReceiverServlet extends HttpServlet {
 
     private static String defaultFopName;
     static EventBus eventBus = new AsyncEventBus(UpdateReceiverServlet.class.getSimpleName(),
-            Executors.newCachedThreadPool());
+            newBoundedExecutor());
     private static Map<String, UpdateEvent> updateCache = new HashMap<>();
     static long lastUpdate = 0;
 
@@ -54,6 +59,34 @@ public class UpdateReceiverServlet extends HttpServlet {
         UpdateReceiverServlet.updateCache = updateCache;
     }
 
+    /**
+     * Each session is notified by a separate task; with hundreds of viewers, a fixed number of threads works through
+     * them instead of creating a thread per viewer.
+     */
+    private static ExecutorService newBoundedExecutor() {
+        int nbThreads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(nbThreads, nbThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "update-fanout");
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends JsonValue> T parse(JreJsonFactory jsonFactory, String value, String prevValue,
+            T prevJson) {
+        if (value == null) {
+            return null;
+        }
+        if (prevJson != null && value.equals(prevValue)) {
+            return prevJson;
+        }
+        return (T) jsonFactory.parse(value);
+    }
+
     public static UpdateEvent sync(String fopName) {
         if (fopName == null) {
             fopName = defaultFopName;
@@ -69,6 +102,22 @@ public class UpdateReceiverServlet extends HttpServlet {
 
     private String secret = StartupUtils.getStringParam("updateKey");
 
+    /**
+     * Parse the JSON values once for all the sessions. Values identical to those of the previous update for the same
+     * field of play (the translations, most of the time) are reused.
+     */
+    private void parseJson(UpdateEvent updateEvent, UpdateEvent prev) {
+        JreJsonFactory jsonFactory = new JreJsonFactory();
+        updateEvent.setAthletesJson(parse(jsonFactory, updateEvent.getAthletes(),
+                prev != null ? prev.getAthletes() : null, prev != null ? prev.getAthletesJson() : null));
+        updateEvent.setLeadersJson(parse(jsonFactory, updateEvent.getLeaders(),
+                prev != null ? prev.getLeaders() : null, prev != null ? prev.getLeadersJson() : null));
+        updateEvent.setRecordsJson(parse(jsonFactory, updateEvent.getRecords(),
+                prev != null ? prev.getRecords() : null, prev != null ? prev.getRecordsJson() : null));
+        updateEvent.setTranslationMapJson(parse(jsonFactory, updateEvent.getTranslationMap(),
+                prev != null ? prev.getTranslationMap() : null, prev != null ? prev.getTranslationMapJson() : null));
+    }
+
     /**
      * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
      *      javax.servlet.http.HttpServletResponse)
@@ -94,9 +143,7 @@ public class UpdateReceiverServlet extends HttpServlet {
                 return;
             }
 
-            try {
-                ResourceWalker.getFileOrResource("styles/results.css");
-            } catch (Exception e) {
+            if (!ResourceWalker.fileOrResourceExists("styles/results.css")) {
                 logger.info("requesting customization");
                 resp.sendError(412, "Missing configuration files.");
                 return;
@@ -113,6 +160,23 @@ public class UpdateReceiverServlet extends HttpServlet {
                 }
             }
 
+            // large values may have been sent earlier, and athletes may be sent as changes since a previous update
+            DeltaDecoder decoder = DeltaDecoder.getDecoder(req.getParameter("fop"));
+            String groupAthletes;
+            String leaders;
+            String records;
+            String translationMap;
+            try {
+                groupAthletes = decoder.getRows(req, "groupAthletes");
+                leaders = decoder.getRows(req, "leaders");
+                records = decoder.getBlob(req, "records");
+                translationMap = decoder.getBlob(req, "translationMap");
+            } catch (DeltaDecoder.VersionGapException e) {
+                logger.info("requesting full update, missing {}", e.getMessage());
+                resp.sendError(DeltaDecoder.VERSION_GAP, "Missing previous update.");
+                return;
+            }
+
             UpdateEvent updateEvent = new UpdateEvent();
 
             updateEvent.setCompetitionName(req.getParameter("competitionName"));
@@ -132,10 +196,10 @@ public class UpdateReceiverServlet extends HttpServlet {
             updateEvent.setWeight(weight != null ? Integer.parseInt(weight) : null);
 
             updateEvent.setNoLiftRanks(req.getParameter("noLiftRanks"));
-            updateEvent.setAthletes(req.getParameter("groupAthletes"));
-            updateEvent.setLeaders(req.getParameter("leaders"));
+            updateEvent.setAthletes(groupAthletes);
+            updateEvent.setLeaders(leaders);
 
-            updateEvent.setRecords(req.getParameter("records"));
+            updateEvent.setRecords(records);
             updateEvent.setRecordKind(req.getParameter("recordKind"));
             updateEvent.setRecordMessage(req.getParameter("recordMessage"));
             updateEvent.setLiftsDone(req.getParameter("liftsDone"));
@@ -144,7 +208,7 @@ public class UpdateReceiverServlet extends HttpServlet {
             String timeAllowed = req.getParameter("timeAllowed");
             updateEvent.setTimeAllowed(timeAllowed != null ? Integer.parseInt(req.getParameter("timeAllowed")) : null);
 
-            updateEvent.setTranslationMap(req.getParameter("translationMap"));
+            updateEvent.setTranslationMap(translationMap);
 
             String breakString = req.getParameter("break");
             String breakTypeString = req.getParameter("breakType");
@@ -166,6 +230,8 @@ public class UpdateReceiverServlet extends HttpServlet {
             }
 
             String fopName = updateEvent.getFopName();
+            parseJson(updateEvent, updateCache.get(fopName));
+
             // put in the cache first so events can know which FOPs are active;
 
             long now = System.currentTimeMillis();
@@ -186,7 +252,9 @@ public class UpdateReceiverServlet extends HttpServlet {
             if (defaultFopName == null) {
                 defaultFopName = fopName;
             }
-            resp.sendError(200);
+            // tell the sender it can send changes only
+            resp.setHeader(DeltaDecoder.DELTA_HEADER, "1");
+            resp.setStatus(200);
         } catch (Exception e) {
             logger.error(LoggerUtils.stackTrace(e));
         }
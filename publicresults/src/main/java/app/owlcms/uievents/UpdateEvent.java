@@ -8,6 +8,10 @@ package app.owlcms.uievents;
 
 import java.util.Objects;
 
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
 public class UpdateEvent {
 
     private String leaders;
@@ -37,6 +41,14 @@ public class UpdateEvent {
     private String recordMessage;
     private boolean sinclairMeet;
 
+    /*
+     * parsed once when the update is received, shared read-only by all the sessions
+     */
+    private JsonArray athletesJson;
+    private JsonArray leadersJson;
+    private JsonObject recordsJson;
+    private JsonValue translationMapJson;
+
     public UpdateEvent() {
         setLeaders(leaders);
     }
@@ -68,6 +80,13 @@ public class UpdateEvent {
         return this.athletes;
     }
 
+    /**
+     * @return the parsed athletes, shared between sessions and not to be modified
+     */
+    public JsonArray getAthletesJson() {
+        return athletesJson;
+    }
+
     public String getAttempt() {
         return attempt;
     }
@@ -112,6 +131,13 @@ public class UpdateEvent {
         return leaders;
     }
 
+    /**
+     * @return the parsed leaders, shared between sessions and not to be modified
+     */
+    public JsonArray getLeadersJson() {
+        return leadersJson;
+    }
+
     public String getLiftsDone() {
         return this.liftsDone;
     }
@@ -132,6 +158,13 @@ public class UpdateEvent {
         return records;
     }
 
+    /**
+     * @return the parsed records, shared between sessions and not to be modified
+     */
+    public JsonObject getRecordsJson() {
+        return recordsJson;
+    }
+
     public Integer getStartNumber() {
         return startNumber;
     }
@@ -148,6 +181,13 @@ public class UpdateEvent {
         return this.translationMap;
     }
 
+    /**
+     * @return the parsed translation map, shared between sessions and not to be modified
+     */
+    public JsonValue getTranslationMapJson() {
+        return translationMapJson;
+    }
+
     public Integer getWeight() {
         return weight;
     }
@@ -179,6 +219,10 @@ public class UpdateEvent {
         this.athletes = athletes;
     }
 
+    public void setAthletesJson(JsonArray athletesJson) {
+        this.athletesJson = athletesJson;
+    }
+
     public void setAttempt(String parameter) {
         this.attempt = parameter;
     }
@@ -231,6 +275,10 @@ public class UpdateEvent {
         this.leaders = leaders;
     }
 
+    public void setLeadersJson(JsonArray leadersJson) {
+        this.leadersJson = leadersJson;
+    }
+
     public void setLiftsDone(String liftsDone) {
         this.liftsDone = liftsDone;
     }
@@ -251,6 +299,10 @@ public class UpdateEvent {
         this.records = records;
     }
 
+    public void setRecordsJson(JsonObject recordsJson) {
+        this.recordsJson = recordsJson;
+    }
+
     public void setSinclairMeet(boolean sinclairMeet) {
         this.sinclairMeet = sinclairMeet;
     }
@@ -271,6 +323,10 @@ public class UpdateEvent {
         this.translationMap = translationMap;
     }
 
+    public void setTranslationMapJson(JsonValue translationMapJson) {
+        this.translationMapJson = translationMapJson;
+    }
+
     public void setWeight(Integer integer) {
         this.weight = integer;
     }
@@ -17,15 +17,15 @@ import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.MissingResourceException;
 import java.util.Properties;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import org.apache.commons.text.StringEscapeUtils;
@@ -34,11 +34,14 @@ import org.supercsv.io.CsvListReader;
 import org.supercsv.io.ICsvListReader;
 import org.supercsv.prefs.CsvPreference;
 
+import com.google.common.collect.ImmutableMap;
 import com.vaadin.flow.i18n.I18NProvider;
 
 import app.owlcms.utils.MemTempUtils;
 import app.owlcms.utils.ResourceWalker;
 import ch.qos.logback.classic.Logger;
+import elemental.json.Json;
+import elemental.json.JsonObject;
 
 /**
  * This class creates a resource bundle from a CSV file containing the various translations, and provides translations
@@ -47,10 +50,75 @@ import ch.qos.logback.classic.Logger;
  * Static variations of the translation routines are also provided for translations that do not take place inside Vaadin
  * components (e.g. spreadsheets).
  *
+ * The translations for a locale are copied once from the bundle into an immutable snapshot, so that looking up a
+ * translation does not lock. Snapshots are discarded by {@link #reset()}.
+ *
  */
 
 public class Translator implements I18NProvider {
 
+    /**
+     * Immutable copy of the translations for one locale, built once after each reset.
+     */
+    private static final class Snapshot {
+
+        private static Snapshot build(Locale locale) {
+            PropertyResourceBundle bundle = (PropertyResourceBundle) getBundleFromCSV(locale);
+            ImmutableMap.Builder<String, String> translations = ImmutableMap.builder();
+            ImmutableMap.Builder<String, String> own = ImmutableMap.builder();
+            for (String key : bundle.keySet()) {
+                translations.put(key, bundle.getString(key));
+                Object value = bundle.handleGetObject(key);
+                if (value != null) {
+                    own.put(key, (String) value);
+                }
+            }
+            return new Snapshot(locale, translations.build(), own.build());
+        }
+
+        private final Locale locale;
+        /**
+         * translations for the locale, including those inherited from the parent locales.
+         */
+        private final Map<String, String> translations;
+        /**
+         * translations defined for the locale itself.
+         */
+        private final Map<String, String> own;
+        /**
+         * prefix subsets, as serialized JSON objects with the prefix removed from the keys.
+         */
+        private final Map<String, String> subsetJson = new ConcurrentHashMap<>();
+
+        private Snapshot(Locale locale, Map<String, String> translations, Map<String, String> own) {
+            this.locale = locale;
+            this.translations = translations;
+            this.own = own;
+        }
+
+        private String getSubsetJson(String prefix) {
+            return subsetJson.computeIfAbsent(prefix, this::computeSubsetJson);
+        }
+
+        private String computeSubsetJson(String prefix) {
+            // same keys for every language, as displays expect
+            JsonObject subset = Json.createObject();
+            for (String key : getSnapshot(Locale.ENGLISH).translations.keySet()) {
+                if (key.startsWith(prefix)) {
+                    String value = translations.get(key);
+                    subset.put(key.substring(prefix.length()),
+                            value != null ? value : "!" + locale.getLanguage() + ": " + key);
+                }
+            }
+            return subset.toJson();
+        }
+    }
+
+    /**
+     * prefix of the translations used by the scoreboards, computed along with the snapshot.
+     */
+    public static final String SCOREBOARD_PREFIX = "Scoreboard.";
+
     private static final long serialVersionUID = 687252956819191905L;
     private static final Logger logger = (Logger) LoggerFactory.getLogger(Translator.class);
     private static Translator helper = new Translator();
@@ -64,6 +132,7 @@ public class Translator implements I18NProvider {
     private static long resetTimeStamp = System.currentTimeMillis();
 
     private static Supplier<Locale> localeSupplier;
+    private static volatile Map<Locale, Snapshot> snapshots = new ConcurrentHashMap<>();
 
     public static Locale createLocale(String localeString) {
         if (localeString == null) {
@@ -100,7 +169,7 @@ public class Translator implements I18NProvider {
     }
 
     public static Enumeration<String> getKeys() {
-        return Translator.getBundleFromCSV(Locale.ENGLISH).getKeys();
+        return Collections.enumeration(getSnapshot(Locale.ENGLISH).translations.keySet());
     }
 
     /**
@@ -110,22 +179,36 @@ public class Translator implements I18NProvider {
         return localeSupplier;
     }
 
+    /**
+     * @return the translations for the current locale; the map is shared and cannot be modified.
+     */
     public static Map<String, String> getMap() {
-        final PropertyResourceBundle bundle = (PropertyResourceBundle) getBundleFromCSV(getLocaleSupplier().get());
-        Map<String, String> translations = new HashMap<>();
-        Enumeration<String> keys = bundle.getKeys();
-        String key;
-        while (keys.hasMoreElements()) {
-            key = keys.nextElement();
-            translations.put(key, bundle.getString(key));
-        }
-        return translations;
+        return getSnapshot(getLocaleSupplier().get()).translations;
     }
 
     public static long getResetTimeStamp() {
         return resetTimeStamp;
     }
 
+    /**
+     * Translations whose key starts with a prefix, with the prefix removed, as expected by the "t" property of the
+     * display templates.
+     *
+     * @param prefix e.g. {@link #SCOREBOARD_PREFIX}
+     * @return a new object, parsed from the serialized form kept with the snapshot
+     */
+    public static JsonObject getTranslationMap(String prefix) {
+        return Json.parse(getTranslationMapJson(prefix));
+    }
+
+    /**
+     * @param prefix e.g. {@link #SCOREBOARD_PREFIX}
+     * @return the serialized form of {@link #getTranslationMap(String)}
+     */
+    public static String getTranslationMapJson(String prefix) {
+        return getSnapshot(helper.overrideLocale(getLocaleSupplier().get())).getSubsetJson(prefix);
+    }
+
     public static List<String> readLine(ICsvListReader listReader) throws IOException {
         line++;
         return listReader.read();
@@ -133,12 +216,16 @@ public class Translator implements I18NProvider {
 
     /**
      * Force a reload of the translation files
+     *
+     * Synchronized with {@link #getBundleFromCSV(Locale)} so that a snapshot being built from the old files ends up in
+     * the discarded map.
      */
-    public static void reset() {
-        resetTimeStamp = System.currentTimeMillis();
+    public static synchronized void reset() {
         locales = null;
         i18nloader = null;
         helper = new Translator();
+        snapshots = new ConcurrentHashMap<>();
+        resetTimeStamp = System.currentTimeMillis();
         logger.debug("cleared translation class loader");
     }
 
@@ -331,6 +418,17 @@ public class Translator implements I18NProvider {
         }
     }
 
+    private static Snapshot getSnapshot(Locale locale) {
+        Map<Locale, Snapshot> current = snapshots;
+        Snapshot snapshot = current.get(locale);
+        if (snapshot == null) {
+            snapshot = current.computeIfAbsent(locale, Snapshot::build);
+            // precompute the subset fetched on every display attach
+            snapshot.getSubsetJson(SCOREBOARD_PREFIX);
+        }
+        return snapshot;
+    }
+
     private static void throwInvalidLocale(String localeString) {
         String message = MessageFormat.format("invalid locale: {0}", localeString);
         logger.error(message);
@@ -358,12 +456,8 @@ public class Translator implements I18NProvider {
             return "";
         }
 
-        final PropertyResourceBundle bundle = (PropertyResourceBundle) getBundleFromCSV(locale);
-
-        String value;
-        try {
-            value = bundle.getString(key);
-        } catch (final MissingResourceException e) {
+        String value = getSnapshot(locale).translations.get(key);
+        if (value == null) {
             return "!" + locale.getLanguage() + ": " + key;
         }
         if (params.length > 0) {
@@ -377,11 +471,8 @@ public class Translator implements I18NProvider {
             nullTranslationKey();
             return "";
         }
-        final PropertyResourceBundle bundle = (PropertyResourceBundle) getBundleFromCSV(locale);
-
-        String value;
-        value = (String) bundle.handleGetObject(key);
-        if (params.length > 0) {
+        String value = getSnapshot(locale).own.get(key);
+        if (params.length > 0 && value != null) {
             value = format(value, params);
         }
         return value;
@@ -394,14 +485,9 @@ public class Translator implements I18NProvider {
             nullTranslationKey();
             return "";
         }
-        final PropertyResourceBundle bundle = (PropertyResourceBundle) getBundleFromCSV(locale);
-
-        String value;
-        try {
-            value = bundle.getString(key);
-        } catch (final MissingResourceException e) {
-            PropertyResourceBundle enBundle = (PropertyResourceBundle) getBundleFromCSV(Locale.ENGLISH);
-            value = (String) enBundle.handleGetObject(key);
+        String value = getSnapshot(locale).translations.get(key);
+        if (value == null) {
+            value = getSnapshot(Locale.ENGLISH).own.get(key);
         }
         if (params.length > 0 && value != null) {
             value = format(value, params);
@@ -8,6 +8,8 @@ package app.owlcms.utils;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.StackWalker.StackFrame;
+import java.util.stream.Collectors;
 
 import ch.qos.logback.classic.Logger;
 
@@ -16,6 +18,24 @@ import ch.qos.logback.classic.Logger;
  */
 public class LoggerUtils {
 
+    /**
+     * StackWalker only materializes the frames that are looked at, unlike {@link Thread#getStackTrace()}.
+     */
+    private static final StackWalker walker = StackWalker.getInstance();
+
+    /**
+     * @param f a stack frame
+     * @return compact form, e.g. FieldOfPlay.handleFOPEvent(FieldOfPlay.java:123)
+     */
+    public static String compactFrame(StackFrame f) {
+        if (f == null) {
+            return "?";
+        }
+        String className = f.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + f.getMethodName() + "("
+                + f.getFileName() + ":" + f.getLineNumber() + ")";
+    }
+
     /**
      * @param e1
      * @return
@@ -46,20 +66,12 @@ public class LoggerUtils {
     public static String stackTrace() {
         StringWriter sw = new StringWriter();
         PrintWriter pw = new PrintWriter(sw);
-        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-        int i = 0;
-        for (StackTraceElement ste : trace) {
-            String string = ste.toString();
-            if (string.startsWith("com.vaadin.flow.server.")
-                    || string.startsWith("com.vaadin.flow.internal")) {
-                break;
-            }
-            if (i > 1) {
-                pw.println("\t" + string);
-            }
-
-            i++;
-        }
+        walker.walk(s -> s.skip(1)
+                .takeWhile(f -> !f.getClassName().startsWith("com.vaadin.flow.server.")
+                        && !f.getClassName().startsWith("com.vaadin.flow.internal"))
+                .map(f -> f.toStackTraceElement())
+                .collect(Collectors.toList()))
+                .forEach(ste -> pw.println("\t" + ste));
         return sw.toString();
     }
 
@@ -90,8 +102,7 @@ public class LoggerUtils {
      * @return the string
      */
     public static String whereFrom(int depth) {
-        String where = Thread.currentThread().getStackTrace()[3 + depth].toString();
-        int firstBracketIx = where.indexOf('(');
-        return where.substring(firstBracketIx);
+        StackFrame f = walker.walk(s -> s.skip(2 + depth).findFirst()).orElse(null);
+        return f == null ? "?" : "(" + f.getFileName() + ":" + f.getLineNumber() + ")";
     }
 }
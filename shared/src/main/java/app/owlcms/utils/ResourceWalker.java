@@ -22,6 +22,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,6 +34,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -49,8 +54,51 @@ import ch.qos.logback.classic.Logger;
  */
 public class ResourceWalker {
 
+    /**
+     * Where a name was found: a file in the override directory or a classpath resource. The content of small
+     * resources is kept.
+     */
+    private static final class Resolution {
+        private byte[] bytes;
+        private final Path path;
+        private final URL url;
+
+        private Resolution(Path path, URL url) {
+            this.path = path;
+            this.url = url;
+        }
+
+        private InputStream open() throws IOException {
+            byte[] b = bytes;
+            if (b != null) {
+                return new ByteArrayInputStream(b);
+            }
+            return path != null ? Files.newInputStream(path) : url.openStream();
+        }
+    }
+
+    /**
+     * content of resources up to this size is kept in memory
+     */
+    private static final int SMALL_RESOURCE_BYTES = 64 * 1024;
+
+    /**
+     * total size of the content kept in memory
+     */
+    private static final long MAX_CACHED_BYTES = 8 * 1024 * 1024;
+
+    private static final Resolution NOT_FOUND = new Resolution(null, null);
+
     static Logger logger = (Logger) LoggerFactory.getLogger(ResourceWalker.class);
 
+    private static long cachedBytes;
+
+    private static volatile long generation;
+
+    private static final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    private static WatchService watchService;
+
     private static boolean initializedLocalDir = false;
 
     private static Path localDirPath = null;
@@ -99,50 +147,54 @@ public class ResourceWalker {
         }
     }
 
+    /**
+     * Check whether a named file exists, in the local override directory structure or on the classpath, without
+     * opening it.
+     *
+     * @param name
+     * @return true if {@link #getFileOrResource(String)} would find it
+     */
+    public static boolean fileOrResourceExists(String name) {
+        return resolve(name) != NOT_FOUND;
+    }
+
     /**
      * Fetch a named file content. First looking in a local override directory structure, and if not found, as a
      * resource on the classpath.
      *
+     * Where the name was found is remembered until the override directory changes.
+     *
      * @param name
      * @return an input stream with the requested content, null if not found.
      * @throws FileNotFoundException
      */
     public static InputStream getFileOrResource(String name) throws FileNotFoundException {
-        InputStream is = null;
-        String relativeName;
-        if (name.startsWith("/")) {
-            relativeName = name.substring(1);
-        } else {
-            relativeName = name;
+        Resolution r = resolve(name);
+        if (r == NOT_FOUND) {
+            logger.trace("not found {} {}", name, LoggerUtils.whereFrom(1));
+            throw new FileNotFoundException(name);
         }
-        Path localDirPath2 = getLocalDirPath();
-        Path target = null;
-        if (localDirPath2 != null) {
-            target = localDirPath2.resolve(relativeName);
-        }
-        if (target != null && Files.exists(target)) {
-            try {
-                logger.trace("found overridden resource {} at {} {}", name, target.toAbsolutePath(),
-                        LoggerUtils.whereFrom(1));
-                return Files.newInputStream(target);
-            } catch (IOException e) {
-                if (name.trim().contentEquals("/") || name.isBlank()) {
-                    // exists but is top level
-                    return null;
-                } else {
-                    throw new RuntimeException("can't happen '" + name + "'", e);
-                }
-            }
-        } else {
-            is = ResourceWalker.class.getResourceAsStream(name);
-            if (is != null) {
-                logger.trace("found classpath resource {} {}", name, LoggerUtils.whereFrom(1));
+        try {
+            return r.open();
+        } catch (IOException e) {
+            if (name.trim().contentEquals("/") || name.isBlank()) {
+                // exists but is top level
+                return null;
             } else {
-                logger.trace("not found {} {}", name, LoggerUtils.whereFrom(1));
-                throw new FileNotFoundException(name);
+                throw new RuntimeException("can't happen '" + name + "'", e);
             }
         }
-        return is;
+    }
+
+    /**
+     * Forget where names were found, after files have been added to or removed from the override directory.
+     */
+    public static void invalidateResolutions() {
+        synchronized (resolutions) {
+            resolutions.clear();
+            cachedBytes = 0;
+            generation++;
+        }
     }
 
     /**
@@ -377,6 +429,8 @@ public class ResourceWalker {
 
     public static void setLocalDirPath(Path curDir) {
         localDirPath = curDir;
+        invalidateResolutions();
+        watchLocalDir(curDir);
     }
 
     /**
@@ -414,6 +468,137 @@ public class ResourceWalker {
         logger.info("new in-memory override path {}", getLocalDirPath().normalize());
     }
 
+    private static Resolution findResolution(String name) {
+        String relativeName;
+        if (name.startsWith("/")) {
+            relativeName = name.substring(1);
+        } else {
+            relativeName = name;
+        }
+        Path localDirPath2 = getLocalDirPath();
+        Path target = null;
+        if (localDirPath2 != null) {
+            target = localDirPath2.resolve(relativeName);
+        }
+        if (target != null && Files.exists(target)) {
+            logger.trace("found overridden resource {} at {} {}", name, target.toAbsolutePath(),
+                    LoggerUtils.whereFrom(2));
+            return new Resolution(target, null);
+        }
+        URL url = ResourceWalker.class.getResource(name);
+        if (url != null) {
+            logger.trace("found classpath resource {} {}", name, LoggerUtils.whereFrom(2));
+            return new Resolution(null, url);
+        }
+        return NOT_FOUND;
+    }
+
+    private static void readSmallContent(Resolution r) {
+        try {
+            if (r.path != null) {
+                if (!Files.isRegularFile(r.path) || Files.size(r.path) > SMALL_RESOURCE_BYTES) {
+                    return;
+                }
+                r.bytes = Files.readAllBytes(r.path);
+            } else {
+                try (InputStream is = r.url.openStream()) {
+                    byte[] b = is.readNBytes(SMALL_RESOURCE_BYTES + 1);
+                    if (b.length <= SMALL_RESOURCE_BYTES) {
+                        r.bytes = b;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // directory or unreadable, will be opened on every call
+        }
+    }
+
+    private static void registerTree(Path dir, WatchService ws) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                d.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Resolution resolve(String name) {
+        Resolution r = resolutions.get(name);
+        if (r != null) {
+            return r;
+        }
+        long gen = generation;
+        r = findResolution(name);
+        if (r != NOT_FOUND) {
+            readSmallContent(r);
+        }
+        synchronized (resolutions) {
+            if (gen != generation) {
+                // override directory changed while resolving
+                return r;
+            }
+            int size = r.bytes != null ? r.bytes.length : 0;
+            if (cachedBytes + size > MAX_CACHED_BYTES) {
+                r.bytes = null;
+                size = 0;
+            }
+            cachedBytes += size;
+            resolutions.put(name, r);
+        }
+        return r;
+    }
+
+    /**
+     * Watch the override directory (and its subdirectories) so that files added, changed or removed by hand are
+     * seen.
+     *
+     * @param dir the new override directory, null if none
+     */
+    private static synchronized void watchLocalDir(Path dir) {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            watchService = null;
+        }
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            WatchService ws = dir.getFileSystem().newWatchService();
+            registerTree(dir, ws);
+            watchService = ws;
+            Thread t = new Thread(() -> {
+                try {
+                    while (true) {
+                        WatchKey key = ws.take();
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            Object context = event.context();
+                            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && context instanceof Path) {
+                                Path created = ((Path) key.watchable()).resolve((Path) context);
+                                if (Files.isDirectory(created)) {
+                                    registerTree(created, ws);
+                                }
+                            }
+                        }
+                        invalidateResolutions();
+                        key.reset();
+                    }
+                } catch (Exception e) {
+                    // closed because the override directory changed
+                }
+            }, "resource-watcher");
+            t.setDaemon(true);
+            t.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("cannot watch override directory {}: {}", dir, e.getMessage());
+        }
+    }
+
     /**
      * Register an additional file system for the resources
      *
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.utils;
+
+/**
+ * Runs tasks after a delay, according to a clock.
+ *
+ * {@link SharedScheduler} uses real time and a thread pool shared by the whole application; {@link VirtualScheduler}
+ * uses a clock that only moves when told to, for tests.
+ *
+ * @author owlcms
+ */
+public interface Scheduler {
+
+    /**
+     * A scheduled task.
+     */
+    public interface Handle {
+        /**
+         * @return false if the task has already run or was already cancelled
+         */
+        boolean cancel();
+    }
+
+    /**
+     * @return the current time according to this scheduler's clock
+     */
+    long currentTimeMillis();
+
+    /**
+     * @param task        the task; exceptions are logged
+     * @param delayMillis delay according to this scheduler's clock
+     * @return a handle to cancel the task
+     */
+    Handle schedule(Runnable task, long delayMillis);
+}
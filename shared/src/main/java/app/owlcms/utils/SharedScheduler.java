@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.utils;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Real-time scheduler shared by the whole application, so that delayed actions do not each need a thread.
+ *
+ * Tasks must be short; anything lengthy should be handed over to another executor. The number of threads is set with
+ * the schedulerThreads parameter (OWLCMS_SCHEDULERTHREADS).
+ *
+ * @author owlcms
+ */
+public class SharedScheduler implements Scheduler {
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(SharedScheduler.class);
+
+    private static SharedScheduler current = new SharedScheduler();
+
+    public static SharedScheduler getCurrent() {
+        return current;
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private SharedScheduler() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, StartupUtils.getIntegerParam("schedulerThreads", 2));
+        executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread t = new Thread(r, "scheduler-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // cancelled tasks (e.g. referee reminders) are removed right away instead of waiting for their delay
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public Handle schedule(Runnable task, long delayMillis) {
+        ScheduledFuture<?> future = executor.schedule(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.error("scheduled task failed {}", LoggerUtils.stackTrace(t));
+            }
+        }, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2022 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.utils;
+
+import java.util.PriorityQueue;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Scheduler with a virtual clock, for tests: time only moves forward when {@link #advance(long)} is called, and tasks
+ * run on the calling thread, in the order of their due time.
+ *
+ * In immediate mode, the clock is advanced as soon as a task is scheduled, so delayed actions take place without
+ * waiting (but still in the order of their due time).
+ *
+ * @author owlcms
+ */
+public class VirtualScheduler implements Scheduler {
+
+    private final class Task implements Handle, Comparable<Task> {
+        private final long due;
+        private final long seq;
+        private final Runnable runnable;
+
+        private Task(long due, long seq, Runnable runnable) {
+            this.due = due;
+            this.seq = seq;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (VirtualScheduler.this) {
+                return queue.remove(this);
+            }
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = Long.compare(due, o.due);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(VirtualScheduler.class);
+
+    private final boolean immediate;
+    private long now;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private boolean running;
+    private long seq;
+
+    /**
+     * Manual mode: tasks run when the clock is advanced.
+     */
+    public VirtualScheduler() {
+        this(false);
+    }
+
+    /**
+     * @param immediate if true, scheduled tasks run right away, advancing the clock to their due time.
+     */
+    public VirtualScheduler(boolean immediate) {
+        this.immediate = immediate;
+    }
+
+    /**
+     * Move the clock forward, running the tasks that become due.
+     *
+     * @param millis
+     */
+    public void advance(long millis) {
+        long target;
+        synchronized (this) {
+            target = now + Math.max(0, millis);
+        }
+        runUntil(target);
+        synchronized (this) {
+            now = Math.max(now, target);
+        }
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * @return number of tasks waiting for their due time
+     */
+    public synchronized int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Run all tasks, including those scheduled by the tasks themselves, advancing the clock as needed.
+     */
+    public void runUntilIdle() {
+        runUntil(Long.MAX_VALUE);
+    }
+
+    @Override
+    public Handle schedule(Runnable runnable, long delayMillis) {
+        Task task;
+        synchronized (this) {
+            task = new Task(now + Math.max(0, delayMillis), seq++, runnable);
+            queue.add(task);
+        }
+        if (immediate) {
+            runUntilIdle();
+        }
+        return task;
+    }
+
+    private void runUntil(long target) {
+        synchronized (this) {
+            if (running) {
+                // called from a task; the outer loop will run what was added.
+                return;
+            }
+            running = true;
+        }
+        try {
+            while (true) {
+                Task task;
+                synchronized (this) {
+                    task = queue.peek();
+                    if (task == null || task.due > target) {
+                        return;
+                    }
+                    queue.poll();
+                    now = Math.max(now, task.due);
+                }
+                try {
+                    task.runnable.run();
+                } catch (Throwable t) {
+                    logger.error("scheduled task failed {}", LoggerUtils.stackTrace(t));
+                }
+            }
+        } finally {
+            synchronized (this) {
+                running = false;
+            }
+        }
+    }
+}